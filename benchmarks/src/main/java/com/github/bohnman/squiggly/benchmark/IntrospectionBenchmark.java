@@ -0,0 +1,73 @@
+package com.github.bohnman.squiggly.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.bohnman.squiggly.bean.BeanInfo;
+import com.github.bohnman.squiggly.bean.BeanInfoIntrospector;
+import com.github.bohnman.squiggly.bean.JacksonBeanInfoIntrospector;
+import com.github.bohnman.squiggly.benchmark.model.Item;
+import com.github.bohnman.squiggly.benchmark.model.WideBean;
+import com.github.bohnman.squiggly.config.SquigglySettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures introspecting the properties and views of a bean class, both when it misses the descriptor cache and when
+ * it's cached.  The wide bean has 64 properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntrospectionBenchmark {
+
+    @Param({"wide", "item"})
+    private String bean;
+
+    @Param({"reflection", "jackson"})
+    private String introspector;
+
+    private Class<?> beanClass;
+    private BeanInfoIntrospector coldIntrospector;
+    private BeanInfoIntrospector cachedIntrospector;
+
+    @Setup
+    public void setUp() {
+        beanClass = "wide".equals(bean) ? WideBean.class : Item.class;
+        coldIntrospector = newIntrospector("maximumSize=0");
+        cachedIntrospector = newIntrospector("maximumSize=100");
+        cachedIntrospector.introspect(beanClass);
+    }
+
+    private BeanInfoIntrospector newIntrospector(String spec) {
+        SquigglySettings settings = SquigglySettings.builder().propertyDescriptorCacheSpec(spec).build();
+
+        if ("jackson".equals(introspector)) {
+            return new JacksonBeanInfoIntrospector(new ObjectMapper(), settings);
+        }
+
+        return new BeanInfoIntrospector(settings);
+    }
+
+    @Benchmark
+    public BeanInfo cold() {
+        return coldIntrospector.introspect(beanClass);
+    }
+
+    @Benchmark
+    public BeanInfo cached() {
+        return cachedIntrospector.introspect(beanClass);
+    }
+}
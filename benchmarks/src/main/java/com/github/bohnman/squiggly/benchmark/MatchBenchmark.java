@@ -0,0 +1,82 @@
+package com.github.bohnman.squiggly.benchmark;
+
+import com.github.bohnman.squiggly.bean.BeanInfoIntrospector;
+import com.github.bohnman.squiggly.benchmark.generator.FilterGenerator;
+import com.github.bohnman.squiggly.benchmark.generator.FilterShape;
+import com.github.bohnman.squiggly.benchmark.model.Item;
+import com.github.bohnman.squiggly.filter.SquigglyFilterPlan;
+import com.github.bohnman.squiggly.parser.SquigglyNode;
+import com.github.bohnman.squiggly.parser.SquigglyParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures deciding whether properties are included, for each shape of filter.  Every property of an item and of
+ * its nested children is decided once per operation.
+ * <p>
+ * Decisions are transitions of a compiled {@link SquigglyFilterPlan}.  The cold benchmark compiles a new plan every
+ * time, so every transition is computed by matching names against the filter, while the memoized benchmark reuses
+ * one plan, which is what happens when the plan cache hits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchBenchmark {
+
+    @Param({"EXACT", "WILDCARD", "REGEX", "VIEW", "NEGATION", "ANY_DEEP", "DOT_PATH"})
+    private FilterShape shape;
+
+    private String[] names;
+    private List<SquigglyNode> nodes;
+    private BeanInfoIntrospector introspector;
+    private SquigglyFilterPlan plan;
+
+    @Setup
+    public void setUp() {
+        FilterGenerator generator = new FilterGenerator(42, Item.class);
+        names = generator.getNames().toArray(new String[0]);
+        nodes = new SquigglyParser().parse(generator.next(shape));
+        introspector = new BeanInfoIntrospector();
+        plan = new SquigglyFilterPlan(nodes, introspector);
+    }
+
+    @Benchmark
+    public void cold(Blackhole blackhole) {
+        decide(new SquigglyFilterPlan(nodes, introspector), blackhole);
+    }
+
+    @Benchmark
+    public void memoized(Blackhole blackhole) {
+        decide(plan, blackhole);
+    }
+
+    private void decide(SquigglyFilterPlan plan, Blackhole blackhole) {
+        SquigglyFilterPlan.State root = plan.getRootState();
+
+        for (String name : names) {
+            blackhole.consume(root.transition(Item.class, name));
+        }
+
+        SquigglyFilterPlan.State child = root.transition(Item.class, "children");
+
+        for (String name : names) {
+            blackhole.consume(child.transition(Item.class, name));
+        }
+    }
+}
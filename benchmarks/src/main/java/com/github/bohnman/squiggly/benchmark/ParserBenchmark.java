@@ -0,0 +1,77 @@
+package com.github.bohnman.squiggly.benchmark;
+
+import com.github.bohnman.squiggly.benchmark.generator.FilterGenerator;
+import com.github.bohnman.squiggly.benchmark.generator.FilterShape;
+import com.github.bohnman.squiggly.benchmark.model.Item;
+import com.github.bohnman.squiggly.config.SquigglySettings;
+import com.github.bohnman.squiggly.parser.SquigglyNode;
+import com.github.bohnman.squiggly.parser.SquigglyParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SquigglyParser#parse(String)} of generated filters, both when every parse misses the node cache
+ * and when every filter is already cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"EXACT", "WILDCARD", "REGEX", "VIEW", "NEGATION", "ANY_DEEP", "DOT_PATH"})
+    private FilterShape shape;
+
+    private String[] filters;
+    private SquigglyParser coldParser;
+    private SquigglyParser cachedParser;
+
+    @Setup
+    public void setUp() {
+        filters = new FilterGenerator(42, Item.class).next(shape, 256).toArray(new String[0]);
+        coldParser = new SquigglyParser(SquigglySettings.builder().parserNodeCacheSpec("maximumSize=0").build());
+        cachedParser = new SquigglyParser(SquigglySettings.builder().parserNodeCacheSpec("maximumSize=1000").build());
+
+        for (String filter : filters) {
+            cachedParser.parse(filter);
+        }
+    }
+
+    @Benchmark
+    public List<SquigglyNode> cold(Cursor cursor) {
+        return coldParser.parse(cursor.next(filters));
+    }
+
+    @Benchmark
+    public List<SquigglyNode> cached(Cursor cursor) {
+        return cachedParser.parse(cursor.next(filters));
+    }
+
+    /**
+     * Cycles through the filters, separately for each thread.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index;
+
+        String next(String[] values) {
+            String value = values[index];
+            index = (index + 1) % values.length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.bohnman.squiggly.benchmark;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs benchmarks with 1, 2, 4... threads up to a maximum, and prints how throughput scales with the thread count.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar com.github.bohnman.squiggly.benchmark.ScalingRunner [regex] [maxThreads]}
+ * <p>
+ * For example, {@code ScalingRunner "SerializationBenchmark.*" 8}.  Efficiency is the throughput at a thread count
+ * divided by the single-threaded throughput times the thread count, so 100% is linear scaling.
+ */
+public class ScalingRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = (args.length > 0) ? args[0] : "SerializationBenchmark|ParserBenchmark.cached";
+        int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        // benchmark and params -> threads -> score
+        Map<String, Map<Integer, Double>> scores = new LinkedHashMap<>();
+        String unit = "";
+
+        for (int threads : threadCounts(maxThreads)) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .build();
+
+            Collection<RunResult> results = new Runner(options).run();
+
+            for (RunResult result : results) {
+                String key = result.getParams().getBenchmark() + describeParams(result);
+                Map<Integer, Double> byThreads = scores.get(key);
+
+                if (byThreads == null) {
+                    byThreads = new TreeMap<>();
+                    scores.put(key, byThreads);
+                }
+
+                byThreads.put(threads, result.getPrimaryResult().getScore());
+                unit = result.getPrimaryResult().getScoreUnit();
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%-100s %8s %16s %10s%n", "Benchmark", "Threads", "Score (" + unit + ")", "Efficiency");
+
+        for (Map.Entry<String, Map<Integer, Double>> entry : scores.entrySet()) {
+            Double single = entry.getValue().get(1);
+
+            for (Map.Entry<Integer, Double> score : entry.getValue().entrySet()) {
+                String efficiency = (single == null) ? "" : String.format("%.0f%%", 100 * score.getValue() / (single * score.getKey()));
+                System.out.printf("%-100s %8d %16.3f %10s%n", entry.getKey(), score.getKey(), score.getValue(), efficiency);
+            }
+        }
+    }
+
+    private static String describeParams(RunResult result) {
+        StringBuilder builder = new StringBuilder();
+
+        for (String key : result.getParams().getParamsKeys()) {
+            builder.append(' ').append(key).append('=').append(result.getParams().getParam(key));
+        }
+
+        return builder.toString();
+    }
+
+    private static List<Integer> threadCounts(int maxThreads) {
+        List<Integer> counts = new ArrayList<>();
+
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            counts.add(threads);
+        }
+
+        counts.add(maxThreads);
+        return counts;
+    }
+}
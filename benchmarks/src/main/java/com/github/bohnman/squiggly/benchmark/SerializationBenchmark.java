@@ -0,0 +1,75 @@
+package com.github.bohnman.squiggly.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.bohnman.squiggly.Squiggly;
+import com.github.bohnman.squiggly.benchmark.generator.DataGenerator;
+import com.github.bohnman.squiggly.benchmark.generator.FilterGenerator;
+import com.github.bohnman.squiggly.benchmark.generator.FilterShape;
+import com.github.bohnman.squiggly.benchmark.model.Item;
+import com.github.bohnman.squiggly.benchmark.model.WideBean;
+import com.google.common.io.ByteStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ObjectMapper#writeValue(OutputStream, Object)} of a whole graph with each shape of filter, against
+ * a plain mapper for {@link FilterShape#NONE}.
+ * <p>
+ * The deep graph is a tree of 1093 items, six levels below the root with three children each.  The wide graph is a
+ * list of 1000 beans with 64 properties each.  All threads share one mapper, so running this with more threads
+ * shows how the plan cache and memoized decisions scale.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final OutputStream NOWHERE = ByteStreams.nullOutputStream();
+
+    @Param({"deep", "wide"})
+    private String graph;
+
+    @Param({"NONE", "EXACT", "WILDCARD", "REGEX", "VIEW", "NEGATION", "ANY_DEEP", "DOT_PATH"})
+    private FilterShape shape;
+
+    private Object value;
+    private ObjectMapper mapper;
+
+    @Setup
+    public void setUp() {
+        DataGenerator data = new DataGenerator(42);
+        Class<?> beanClass;
+
+        if ("deep".equals(graph)) {
+            value = data.deep(6, 3);
+            beanClass = Item.class;
+        } else {
+            value = data.wide(1000);
+            beanClass = WideBean.class;
+        }
+
+        String filter = new FilterGenerator(42, beanClass).next(shape);
+        mapper = (filter == null) ? new ObjectMapper() : Squiggly.init(new ObjectMapper(), filter);
+    }
+
+    @Benchmark
+    public void writeValue() throws IOException {
+        mapper.writeValue(NOWHERE, value);
+    }
+}
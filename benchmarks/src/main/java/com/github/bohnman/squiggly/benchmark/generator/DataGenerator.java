@@ -0,0 +1,96 @@
+package com.github.bohnman.squiggly.benchmark.generator;
+
+import com.github.bohnman.squiggly.benchmark.model.Item;
+import com.github.bohnman.squiggly.benchmark.model.WideBean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Builds synthetic object graphs.  The same seed always builds the same graph, so runs can be compared.
+ */
+public class DataGenerator {
+
+    private static final String[] WORDS = {"alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel",
+            "india", "juliet", "kilo", "lima", "mike", "november", "oscar", "papa"};
+
+    private final Random random;
+    private int nextId;
+
+    public DataGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Build a tree of items where every item has the given number of children, down to the given depth.
+     *
+     * @param depth  levels below the root
+     * @param fanout children per item
+     * @return root item
+     */
+    public Item deep(int depth, int fanout) {
+        List<Item> children;
+
+        if (depth == 0) {
+            children = Collections.emptyList();
+        } else {
+            children = new ArrayList<>(fanout);
+
+            for (int i = 0; i < fanout; i++) {
+                children.add(deep(depth - 1, fanout));
+            }
+        }
+
+        return new Item("item-" + (nextId++), word() + " " + word(), random.nextInt(10000) / 100.0,
+                random.nextBoolean(), sentence(8), Arrays.asList(word(), word(), word()), attributes(3), children);
+    }
+
+    /**
+     * Build a list of beans with many properties.
+     *
+     * @param count number of beans
+     * @return beans
+     */
+    public List<WideBean> wide(int count) {
+        List<WideBean> beans = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            beans.add(new WideBean(random.nextInt(1000000)));
+        }
+
+        return beans;
+    }
+
+    private Map<String, String> attributes(int count) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+
+        for (int i = 0; i < count; i++) {
+            attributes.put(word(), word());
+        }
+
+        return attributes;
+    }
+
+    private String sentence(int words) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+
+            builder.append(word());
+        }
+
+        return builder.toString();
+    }
+
+    private String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.bohnman.squiggly.benchmark.generator;
+
+import com.github.bohnman.squiggly.view.PropertyView;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Builds random filter expressions of a given {@link FilterShape} from the property names and views of a bean class.
+ * The same seed always builds the same filters.
+ */
+public class FilterGenerator {
+
+    // the property through which beans nest into beans of their own class
+    private static final String NESTED_PROPERTY = "children";
+
+    private final Random random;
+    private final List<String> names;
+    private final List<String> views;
+    private final boolean nested;
+
+    public FilterGenerator(long seed, Class<?> beanClass) {
+        this.random = new Random(seed);
+
+        Set<String> names = new LinkedHashSet<>();
+        Set<String> views = new LinkedHashSet<>();
+
+        for (Field field : beanClass.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+
+            names.add(field.getName());
+            PropertyView view = field.getAnnotation(PropertyView.class);
+
+            if (view != null) {
+                Collections.addAll(views, view.value());
+            }
+        }
+
+        this.nested = names.remove(NESTED_PROPERTY);
+        this.names = new ArrayList<>(names);
+        this.views = views.isEmpty() ? Collections.singletonList("base") : new ArrayList<>(views);
+    }
+
+    /**
+     * Build a filter.
+     *
+     * @param shape kind of filter
+     * @return filter, or null for {@link FilterShape#NONE}
+     */
+    public String next(FilterShape shape) {
+        switch (shape) {
+            case NONE:
+                return null;
+            case EXACT:
+                return exact(3) + (nested ? "," + NESTED_PROPERTY + "[" + exact(2) + "]" : "");
+            case WILDCARD:
+                return prefix() + "*";
+            case REGEX:
+                return "~" + prefix() + ".*~";
+            case VIEW:
+                return views.get(random.nextInt(views.size()));
+            case NEGATION:
+                return "**,-" + name();
+            case ANY_DEEP:
+                return "**";
+            case DOT_PATH:
+                return nested ? NESTED_PROPERTY + "." + NESTED_PROPERTY + "." + name() + "," + name() : name();
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+    }
+
+    /**
+     * Build several filters.
+     *
+     * @param shape kind of filter
+     * @param count number of filters
+     * @return filters
+     */
+    public List<String> next(FilterShape shape, int count) {
+        List<String> filters = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            filters.add(next(shape));
+        }
+
+        return filters;
+    }
+
+    /**
+     * Get the property names that filters are built from, excluding the nested property.
+     *
+     * @return names
+     */
+    public List<String> getNames() {
+        return Collections.unmodifiableList(names);
+    }
+
+    private String exact(int count) {
+        List<String> shuffled = new ArrayList<>(names);
+        Collections.shuffle(shuffled, random);
+
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < Math.min(count, shuffled.size()); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+
+            builder.append(shuffled.get(i));
+        }
+
+        return builder.toString();
+    }
+
+    // single letters are not valid names, since 'i' is the case insensitive flag of regexes
+    private String prefix() {
+        String name = name();
+        return name.substring(0, Math.max(2, name.length() - 1 - random.nextInt(name.length())));
+    }
+
+    private String name() {
+        return names.get(random.nextInt(names.size()));
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.bohnman.squiggly.benchmark.generator;
+
+/**
+ * The kinds of filter expression that the benchmarks compare.
+ */
+public enum FilterShape {
+
+    /**
+     * No filter at all, as a baseline.
+     */
+    NONE,
+
+    /**
+     * A few exact property names, eg. {@code id,name,price}.
+     */
+    EXACT,
+
+    /**
+     * A wildcard name, eg. {@code nam*}.
+     */
+    WILDCARD,
+
+    /**
+     * A regex name, eg. {@code ~na.*~}.
+     */
+    REGEX,
+
+    /**
+     * A property view, eg. {@code detail}.
+     */
+    VIEW,
+
+    /**
+     * Everything except one property, eg. {@code **,-name}.
+     */
+    NEGATION,
+
+    /**
+     * Everything, ie. {@code **}.
+     */
+    ANY_DEEP,
+
+    /**
+     * A dotted path into nested beans, eg. {@code children.children.name}.
+     */
+    DOT_PATH
+}
@@ -0,0 +1,73 @@
+package com.github.bohnman.squiggly.benchmark.model;
+
+import com.github.bohnman.squiggly.view.PropertyView;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A node of a synthetic object graph, which can be nested to any depth through its children.
+ */
+public class Item {
+
+    private String id;
+    private String name;
+    private double price;
+    private boolean active;
+
+    @PropertyView("detail")
+    private String description;
+
+    @PropertyView("detail")
+    private List<String> tags;
+
+    private Map<String, String> attributes;
+    private List<Item> children;
+
+    public Item() {
+    }
+
+    public Item(String id, String name, double price, boolean active, String description, List<String> tags,
+                Map<String, String> attributes, List<Item> children) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.active = active;
+        this.description = description;
+        this.tags = tags;
+        this.attributes = attributes;
+        this.children = children;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public List<Item> getChildren() {
+        return children;
+    }
+}
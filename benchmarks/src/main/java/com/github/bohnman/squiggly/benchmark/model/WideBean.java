@@ -0,0 +1,409 @@
+package com.github.bohnman.squiggly.benchmark.model;
+
+import com.github.bohnman.squiggly.view.PropertyView;
+
+/**
+ * A bean with 64 properties, for measuring introspection and serialization of wide classes.  Every eighth property is
+ * only in the "audit" view.
+ */
+public class WideBean {
+
+    private String field00;
+    private int field01;
+    private long field02;
+    private boolean field03;
+    private double field04;
+    private String field05;
+    private int field06;
+    @PropertyView("audit")
+    private long field07;
+    private boolean field08;
+    private double field09;
+    private String field10;
+    private int field11;
+    private long field12;
+    private boolean field13;
+    private double field14;
+    @PropertyView("audit")
+    private String field15;
+    private int field16;
+    private long field17;
+    private boolean field18;
+    private double field19;
+    private String field20;
+    private int field21;
+    private long field22;
+    @PropertyView("audit")
+    private boolean field23;
+    private double field24;
+    private String field25;
+    private int field26;
+    private long field27;
+    private boolean field28;
+    private double field29;
+    private String field30;
+    @PropertyView("audit")
+    private int field31;
+    private long field32;
+    private boolean field33;
+    private double field34;
+    private String field35;
+    private int field36;
+    private long field37;
+    private boolean field38;
+    @PropertyView("audit")
+    private double field39;
+    private String field40;
+    private int field41;
+    private long field42;
+    private boolean field43;
+    private double field44;
+    private String field45;
+    private int field46;
+    @PropertyView("audit")
+    private long field47;
+    private boolean field48;
+    private double field49;
+    private String field50;
+    private int field51;
+    private long field52;
+    private boolean field53;
+    private double field54;
+    @PropertyView("audit")
+    private String field55;
+    private int field56;
+    private long field57;
+    private boolean field58;
+    private double field59;
+    private String field60;
+    private int field61;
+    private long field62;
+    @PropertyView("audit")
+    private boolean field63;
+
+    public WideBean() {
+    }
+
+    public WideBean(long seed) {
+        this.field00 = "value" + seed;
+        this.field01 = (int) seed;
+        this.field02 = seed * 31;
+        this.field03 = seed % 2 == 0;
+        this.field04 = seed / 7.0;
+        this.field05 = "value" + seed;
+        this.field06 = (int) seed;
+        this.field07 = seed * 31;
+        this.field08 = seed % 2 == 0;
+        this.field09 = seed / 7.0;
+        this.field10 = "value" + seed;
+        this.field11 = (int) seed;
+        this.field12 = seed * 31;
+        this.field13 = seed % 2 == 0;
+        this.field14 = seed / 7.0;
+        this.field15 = "value" + seed;
+        this.field16 = (int) seed;
+        this.field17 = seed * 31;
+        this.field18 = seed % 2 == 0;
+        this.field19 = seed / 7.0;
+        this.field20 = "value" + seed;
+        this.field21 = (int) seed;
+        this.field22 = seed * 31;
+        this.field23 = seed % 2 == 0;
+        this.field24 = seed / 7.0;
+        this.field25 = "value" + seed;
+        this.field26 = (int) seed;
+        this.field27 = seed * 31;
+        this.field28 = seed % 2 == 0;
+        this.field29 = seed / 7.0;
+        this.field30 = "value" + seed;
+        this.field31 = (int) seed;
+        this.field32 = seed * 31;
+        this.field33 = seed % 2 == 0;
+        this.field34 = seed / 7.0;
+        this.field35 = "value" + seed;
+        this.field36 = (int) seed;
+        this.field37 = seed * 31;
+        this.field38 = seed % 2 == 0;
+        this.field39 = seed / 7.0;
+        this.field40 = "value" + seed;
+        this.field41 = (int) seed;
+        this.field42 = seed * 31;
+        this.field43 = seed % 2 == 0;
+        this.field44 = seed / 7.0;
+        this.field45 = "value" + seed;
+        this.field46 = (int) seed;
+        this.field47 = seed * 31;
+        this.field48 = seed % 2 == 0;
+        this.field49 = seed / 7.0;
+        this.field50 = "value" + seed;
+        this.field51 = (int) seed;
+        this.field52 = seed * 31;
+        this.field53 = seed % 2 == 0;
+        this.field54 = seed / 7.0;
+        this.field55 = "value" + seed;
+        this.field56 = (int) seed;
+        this.field57 = seed * 31;
+        this.field58 = seed % 2 == 0;
+        this.field59 = seed / 7.0;
+        this.field60 = "value" + seed;
+        this.field61 = (int) seed;
+        this.field62 = seed * 31;
+        this.field63 = seed % 2 == 0;
+    }
+
+    public String getField00() {
+        return field00;
+    }
+
+    public int getField01() {
+        return field01;
+    }
+
+    public long getField02() {
+        return field02;
+    }
+
+    public boolean isField03() {
+        return field03;
+    }
+
+    public double getField04() {
+        return field04;
+    }
+
+    public String getField05() {
+        return field05;
+    }
+
+    public int getField06() {
+        return field06;
+    }
+
+    public long getField07() {
+        return field07;
+    }
+
+    public boolean isField08() {
+        return field08;
+    }
+
+    public double getField09() {
+        return field09;
+    }
+
+    public String getField10() {
+        return field10;
+    }
+
+    public int getField11() {
+        return field11;
+    }
+
+    public long getField12() {
+        return field12;
+    }
+
+    public boolean isField13() {
+        return field13;
+    }
+
+    public double getField14() {
+        return field14;
+    }
+
+    public String getField15() {
+        return field15;
+    }
+
+    public int getField16() {
+        return field16;
+    }
+
+    public long getField17() {
+        return field17;
+    }
+
+    public boolean isField18() {
+        return field18;
+    }
+
+    public double getField19() {
+        return field19;
+    }
+
+    public String getField20() {
+        return field20;
+    }
+
+    public int getField21() {
+        return field21;
+    }
+
+    public long getField22() {
+        return field22;
+    }
+
+    public boolean isField23() {
+        return field23;
+    }
+
+    public double getField24() {
+        return field24;
+    }
+
+    public String getField25() {
+        return field25;
+    }
+
+    public int getField26() {
+        return field26;
+    }
+
+    public long getField27() {
+        return field27;
+    }
+
+    public boolean isField28() {
+        return field28;
+    }
+
+    public double getField29() {
+        return field29;
+    }
+
+    public String getField30() {
+        return field30;
+    }
+
+    public int getField31() {
+        return field31;
+    }
+
+    public long getField32() {
+        return field32;
+    }
+
+    public boolean isField33() {
+        return field33;
+    }
+
+    public double getField34() {
+        return field34;
+    }
+
+    public String getField35() {
+        return field35;
+    }
+
+    public int getField36() {
+        return field36;
+    }
+
+    public long getField37() {
+        return field37;
+    }
+
+    public boolean isField38() {
+        return field38;
+    }
+
+    public double getField39() {
+        return field39;
+    }
+
+    public String getField40() {
+        return field40;
+    }
+
+    public int getField41() {
+        return field41;
+    }
+
+    public long getField42() {
+        return field42;
+    }
+
+    public boolean isField43() {
+        return field43;
+    }
+
+    public double getField44() {
+        return field44;
+    }
+
+    public String getField45() {
+        return field45;
+    }
+
+    public int getField46() {
+        return field46;
+    }
+
+    public long getField47() {
+        return field47;
+    }
+
+    public boolean isField48() {
+        return field48;
+    }
+
+    public double getField49() {
+        return field49;
+    }
+
+    public String getField50() {
+        return field50;
+    }
+
+    public int getField51() {
+        return field51;
+    }
+
+    public long getField52() {
+        return field52;
+    }
+
+    public boolean isField53() {
+        return field53;
+    }
+
+    public double getField54() {
+        return field54;
+    }
+
+    public String getField55() {
+        return field55;
+    }
+
+    public int getField56() {
+        return field56;
+    }
+
+    public long getField57() {
+        return field57;
+    }
+
+    public boolean isField58() {
+        return field58;
+    }
+
+    public double getField59() {
+        return field59;
+    }
+
+    public String getField60() {
+        return field60;
+    }
+
+    public int getField61() {
+        return field61;
+    }
+
+    public long getField62() {
+        return field62;
+    }
+
+    public boolean isField63() {
+        return field63;
+    }
+}
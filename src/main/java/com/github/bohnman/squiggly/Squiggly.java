@@ -1,12 +1,21 @@
 package com.github.bohnman.squiggly;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
 import com.fasterxml.jackson.databind.ser.FilterProvider;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.github.bohnman.squiggly.bean.BeanInfoIntrospector;
+import com.github.bohnman.squiggly.bean.JacksonBeanInfoIntrospector;
+import com.github.bohnman.squiggly.config.SquigglyConfig;
+import com.github.bohnman.squiggly.config.SquigglySettings;
 import com.github.bohnman.squiggly.context.provider.SimpleSquigglyContextProvider;
 import com.github.bohnman.squiggly.context.provider.SquigglyContextProvider;
+import com.github.bohnman.squiggly.filter.SquigglyBeanSerializerModifier;
 import com.github.bohnman.squiggly.filter.SquigglyPropertyFilter;
 import com.github.bohnman.squiggly.filter.SquigglyPropertyFilterMixin;
+import com.github.bohnman.squiggly.filter.SquigglySerializerProvider;
+import com.github.bohnman.squiggly.jfr.SquigglyEvents;
 import com.github.bohnman.squiggly.parser.SquigglyParser;
 
 /**
@@ -29,6 +38,19 @@ public class Squiggly {
         return init(mapper, new SimpleSquigglyContextProvider(new SquigglyParser(), filter));
     }
 
+    /**
+     * Initialize a @{@link SquigglyPropertyFilter} with a static filter expression and settings of its own.
+     *
+     * @param mapper   the Jackson Object Mapper
+     * @param filter   the filter expressions
+     * @param settings settings of the parser, introspector and filter
+     * @return object mapper, mainly for convenience
+     * @throws IllegalStateException if the filter was unable to be registered
+     */
+    public static ObjectMapper init(ObjectMapper mapper, String filter, SquigglySettings settings) throws IllegalStateException {
+        return init(mapper, new SimpleSquigglyContextProvider(new SquigglyParser(settings), filter), settings);
+    }
+
     /**
      * Initialize a @{@link SquigglyPropertyFilter} with a static filter expression.
      *
@@ -41,7 +63,8 @@ public class Squiggly {
     }
 
     /**
-     * Initialize a @{@link SquigglyPropertyFilter} with a specific context provider.
+     * Initialize a @{@link SquigglyPropertyFilter} with a specific context provider.  Bean classes are introspected
+     * the way the mapper sees them when property.introspector is jackson, see {@link JacksonBeanInfoIntrospector}.
      *
      * @param mapper          the Jackson Object Mapper
      * @param contextProvider the context provider to use
@@ -49,18 +72,49 @@ public class Squiggly {
      * @throws IllegalStateException if the filter was unable to be registered
      */
     public static ObjectMapper init(ObjectMapper mapper, SquigglyContextProvider contextProvider) throws IllegalStateException {
+        if (isJacksonIntrospector(SquigglySettings.defaults())) {
+            return init(mapper, new SquigglyPropertyFilter(contextProvider, new JacksonBeanInfoIntrospector(mapper)));
+        }
+
         return init(mapper, new SquigglyPropertyFilter(contextProvider));
     }
 
     /**
-     * Initialize a @{@link SquigglyPropertyFilter} with a specific context provider.
+     * Initialize a @{@link SquigglyPropertyFilter} with a specific context provider and settings of its own.  The
+     * parser of the context provider is configured separately.
+     *
+     * @param mapper          the Jackson Object Mapper
+     * @param contextProvider the context provider to use
+     * @param settings        settings of the introspector and filter
+     * @return object mapper, mainly for convenience
+     * @throws IllegalStateException if the filter was unable to be registered
+     */
+    public static ObjectMapper init(ObjectMapper mapper, SquigglyContextProvider contextProvider, SquigglySettings settings) throws IllegalStateException {
+        BeanInfoIntrospector introspector = isJacksonIntrospector(settings) ? new JacksonBeanInfoIntrospector(mapper, settings) : new BeanInfoIntrospector(settings);
+        return init(mapper, new SquigglyPropertyFilter(contextProvider, introspector, settings));
+    }
+
+    private static boolean isJacksonIntrospector(SquigglySettings settings) {
+        return SquigglyConfig.PROPERTY_INTROSPECTOR_JACKSON.equals(settings.getPropertyIntrospector());
+    }
+
+    /**
+     * Initialize a @{@link SquigglyPropertyFilter} with a specific context provider.  When property.introspector is
+     * jackson, each mapper gets a filter of its own, since classes are introspected the way that mapper sees them.
      *
      * @param mappers          the Jackson Object Mappers to init
      * @param contextProvider the context provider to use
      * @throws IllegalStateException if the filter was unable to be registered
      */
     public static void init(Iterable<ObjectMapper> mappers, SquigglyContextProvider contextProvider) {
-        init(mappers, new SquigglyPropertyFilter(contextProvider));
+        if (!isJacksonIntrospector(SquigglySettings.defaults())) {
+            init(mappers, new SquigglyPropertyFilter(contextProvider));
+            return;
+        }
+
+        for (ObjectMapper mapper : mappers) {
+            init(mapper, contextProvider);
+        }
     }
 
     /**
@@ -88,6 +142,7 @@ public class Squiggly {
 
         simpleFilterProvider.addFilter(SquigglyPropertyFilter.FILTER_ID, filter);
         mapper.addMixIn(Object.class, SquigglyPropertyFilterMixin.class);
+        mapper.registerModule(new SquigglyModule());
 
         return mapper;
     }
@@ -105,4 +160,27 @@ public class Squiggly {
         }
     }
 
+    /**
+     * Record a flight recorder event for each value the mapper serializes, see {@link SquigglySerializerProvider}.
+     * Nothing changes on JVMs without flight recorder, or when the mapper already has a custom serializer provider.
+     *
+     * @param mapper the Jackson Object Mapper
+     * @return object mapper, mainly for convenience
+     */
+    public static ObjectMapper enableFlightRecorder(ObjectMapper mapper) {
+        // only replace jackson's own provider, so that custom providers keep working
+        if (SquigglyEvents.isAvailable() && mapper.getSerializerProvider().getClass() == DefaultSerializerProvider.Impl.class) {
+            mapper.setSerializerProvider(new SquigglySerializerProvider());
+        }
+
+        return mapper;
+    }
+
+    // registering a named module subclass lets jackson ignore repeated registrations on the same mapper
+    private static class SquigglyModule extends SimpleModule {
+        SquigglyModule() {
+            super("Squiggly");
+            setSerializerModifier(new SquigglyBeanSerializerModifier());
+        }
+    }
 }
@@ -1,31 +1,230 @@
 package com.github.bohnman.squiggly.bean;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
+import java.lang.reflect.Type;
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
+/**
+ * Introspected information about a bean class.
+ * <p>
+ * Every property is assigned an ordinal, and every view an ordinal of its own.  Views are stored as bitsets of
+ * property ordinals, with an inverted index of view ordinals for each property, so view membership is a couple of
+ * bit lookups and nothing is allocated when resolving views.
+ */
 public class BeanInfo {
 
-    private Map<String, Set<String>> viewNameToPropertiesNames;
-    private Set<String> unwrappedProperties;
+    private final Map<String, Integer> propertyOrdinals;
+    private final String[] propertyNames;
+    private final Map<String, Integer> viewOrdinals;
+    private final BitSet[] viewProperties;
+    private final BitSet[] propertyViews;
+    private final BitSet unwrappedProperties;
+    private final Supplier<Map<String, Type>> propertyTypes;
 
     public BeanInfo(Map<String, Set<String>> viewNameToPropertiesNames, Set<String> unwrappedProperties) {
-        this.viewNameToPropertiesNames = viewNameToPropertiesNames;
-        this.unwrappedProperties = unwrappedProperties;
+        this(viewNameToPropertiesNames, unwrappedProperties, ImmutableMap.<String, Type>of());
+    }
+
+    public BeanInfo(Map<String, Set<String>> viewNameToPropertiesNames, Set<String> unwrappedProperties, Map<String, Type> propertyTypes) {
+        this(viewNameToPropertiesNames, unwrappedProperties, propertyTypes.keySet(), Suppliers.ofInstance(propertyTypes));
+    }
+
+    // the property types are only needed for projections, so they can be resolved on first use
+    BeanInfo(Map<String, Set<String>> viewNameToPropertiesNames, Set<String> unwrappedProperties, Collection<String> typedPropertyNames, Supplier<Map<String, Type>> propertyTypes) {
+        Set<String> names = new LinkedHashSet<>(typedPropertyNames);
+
+        for (Set<String> viewPropertyNames : viewNameToPropertiesNames.values()) {
+            names.addAll(viewPropertyNames);
+        }
+
+        names.addAll(unwrappedProperties);
+
+        ImmutableMap.Builder<String, Integer> propertyOrdinals = ImmutableMap.builder();
+        this.propertyNames = names.toArray(new String[names.size()]);
+
+        for (int i = 0; i < propertyNames.length; i++) {
+            propertyOrdinals.put(propertyNames[i], i);
+        }
+
+        this.propertyOrdinals = propertyOrdinals.build();
+
+        ImmutableMap.Builder<String, Integer> viewOrdinals = ImmutableMap.builder();
+        this.viewProperties = new BitSet[viewNameToPropertiesNames.size()];
+        this.propertyViews = new BitSet[propertyNames.length];
+        int viewOrdinal = 0;
+
+        for (int i = 0; i < propertyViews.length; i++) {
+            propertyViews[i] = new BitSet();
+        }
+
+        for (Map.Entry<String, Set<String>> entry : viewNameToPropertiesNames.entrySet()) {
+            BitSet bits = new BitSet(propertyNames.length);
+
+            for (String propertyName : entry.getValue()) {
+                int propertyOrdinal = this.propertyOrdinals.get(propertyName);
+                bits.set(propertyOrdinal);
+                propertyViews[propertyOrdinal].set(viewOrdinal);
+            }
+
+            viewOrdinals.put(entry.getKey(), viewOrdinal);
+            viewProperties[viewOrdinal++] = bits;
+        }
+
+        this.viewOrdinals = viewOrdinals.build();
+        this.unwrappedProperties = new BitSet(propertyNames.length);
+
+        for (String propertyName : unwrappedProperties) {
+            this.unwrappedProperties.set(this.propertyOrdinals.get(propertyName));
+        }
+
+        this.propertyTypes = propertyTypes;
+    }
+
+    // a rough estimate of the retained bytes, for weighing caches
+    int estimateSize() {
+        return 256 + 96 * propertyNames.length + 64 * viewProperties.length;
+    }
+
+    /**
+     * Get the ordinal of a property.
+     *
+     * @param property property name
+     * @return ordinal, or -1 if the bean has no such property
+     */
+    public int getPropertyOrdinal(String property) {
+        Integer ordinal = propertyOrdinals.get(property);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Get the ordinal of a view.
+     *
+     * @param view view name
+     * @return ordinal, or -1 if no property of the bean is in the view
+     */
+    public int getViewOrdinal(String view) {
+        Integer ordinal = viewOrdinals.get(view);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Says whether any property of the bean is in a view.
+     *
+     * @param view view name
+     * @return true if the view has properties
+     */
+    public boolean hasView(String view) {
+        int viewOrdinal = getViewOrdinal(view);
+        return viewOrdinal >= 0 && !viewProperties[viewOrdinal].isEmpty();
+    }
+
+    /**
+     * Says whether a property is in a view.
+     *
+     * @param property property name
+     * @param view     view name
+     * @return true if the property is in the view
+     */
+    public boolean isPropertyInView(String property, String view) {
+        return isPropertyInView(getPropertyOrdinal(property), getViewOrdinal(view));
+    }
+
+    /**
+     * Says whether a property is in a view, by ordinal.
+     *
+     * @param propertyOrdinal property ordinal
+     * @param viewOrdinal     view ordinal
+     * @return true if the property is in the view, false if not or if either ordinal is -1
+     */
+    public boolean isPropertyInView(int propertyOrdinal, int viewOrdinal) {
+        return propertyOrdinal >= 0 && viewOrdinal >= 0 && propertyViews[propertyOrdinal].get(viewOrdinal);
     }
 
     public Set<String> getPropertyNamesForView(String view) {
-        Set<String> properties = viewNameToPropertiesNames.get(view);
+        int viewOrdinal = getViewOrdinal(view);
 
-        if (properties == null) {
-            properties = ImmutableSet.of();
+        if (viewOrdinal < 0) {
+            return ImmutableSet.of();
         }
 
-        return properties;
+        return new PropertyNameSet(viewProperties[viewOrdinal]);
     }
 
     public boolean isUnwrapped(String property) {
-        return unwrappedProperties.contains(property);
+        int ordinal = getPropertyOrdinal(property);
+        return ordinal >= 0 && unwrappedProperties.get(ordinal);
+    }
+
+    /**
+     * Get the readable properties of the bean, keyed by property name, whose values are the declared types of the
+     * properties.
+     *
+     * @return property types
+     */
+    public Map<String, Type> getPropertyTypes() {
+        return propertyTypes.get();
+    }
+
+    // read only view of a set of property ordinals as their names
+    private class PropertyNameSet extends AbstractSet<String> {
+        private final BitSet bits;
+
+        PropertyNameSet(BitSet bits) {
+            this.bits = bits;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof String)) {
+                return false;
+            }
+
+            int ordinal = getPropertyOrdinal((String) o);
+            return ordinal >= 0 && bits.get(ordinal);
+        }
+
+        @Override
+        public int size() {
+            return bits.cardinality();
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private int next = bits.nextSetBit(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public String next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+
+                    String name = propertyNames[next];
+                    next = bits.nextSetBit(next + 1);
+                    return name;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
     }
 }
@@ -2,14 +2,19 @@ package com.github.bohnman.squiggly.bean;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonUnwrapped;
-import com.github.bohnman.squiggly.config.SquigglyConfig;
+import com.github.bohnman.squiggly.cache.ReconfigurableCache;
+import com.github.bohnman.squiggly.config.SquigglySettings;
+import com.github.bohnman.squiggly.jfr.SquigglyEvents;
+import com.github.bohnman.squiggly.metric.HotPathMetrics;
 import com.github.bohnman.squiggly.metric.source.GuavaCacheSquigglyMetricsSource;
 import com.github.bohnman.squiggly.view.PropertyView;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.Weigher;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import net.jcip.annotations.ThreadSafe;
@@ -22,43 +27,193 @@ import java.beans.PropertyDescriptor;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Introspects bean classes, looking for @{@link PropertyView} annotations on fields.
+ * <p>
+ * Classes that had a {@link BeanInfoTable} generated at compile time are read from the table instead of being
+ * reflected on.
  */
 @ThreadSafe
 public class BeanInfoIntrospector {
 
     /**
-     * Caches bean class to a map of views to property views.
+     * Caches bean class to a map of views to property views, for all introspectors with the default settings.
      */
-    private static final LoadingCache<Class, BeanInfo> CACHE;
-    private static final GuavaCacheSquigglyMetricsSource METRICS_SOURCE;
+    private static final ReconfigurableCache<Class, BeanInfo> DEFAULT_CACHE = newCache(SquigglySettings.defaults());
+
+    /**
+     * Caches of all introspectors, used for reporting metrics.
+     */
+    private static final Set<Cache> CACHES = Collections.newSetFromMap(new MapMaker().weakKeys().<Cache, Boolean>makeMap());
+    private static final GuavaCacheSquigglyMetricsSource METRICS_SOURCE = new GuavaCacheSquigglyMetricsSource("squiggly.property.descriptorCache.", CACHES);
 
     static {
-        CACHE = CacheBuilder.from(SquigglyConfig.getPropertyDescriptorCacheSpec())
-                .build(new CacheLoader<Class, BeanInfo>() {
-                    @Override
-                    public BeanInfo load(Class key) throws Exception {
-                        return introspectClass(key);
+        CACHES.add(DEFAULT_CACHE);
+    }
+
+    private final SquigglySettings settings;
+    private final ReconfigurableCache<Class, BeanInfo> cache;
+
+    /**
+     * Construct an introspector with the default settings.  All such introspectors share one cache.
+     */
+    public BeanInfoIntrospector() {
+        this.settings = SquigglySettings.defaults();
+        this.cache = DEFAULT_CACHE;
+    }
+
+    /**
+     * Construct an introspector with its own settings and cache.
+     *
+     * @param settings settings
+     */
+    public BeanInfoIntrospector(SquigglySettings settings) {
+        this.settings = checkNotNull(settings);
+        this.cache = newCache(settings);
+        CACHES.add(cache);
+    }
+
+    private static ReconfigurableCache<Class, BeanInfo> newCache(SquigglySettings settings) {
+        return new ReconfigurableCache<>(settings.getPropertyDescriptorCacheSpec(), settings.getCacheFactory(), new Weigher<Class, BeanInfo>() {
+            @Override
+            public int weigh(Class beanClass, BeanInfo beanInfo) {
+                return beanInfo.estimateSize();
+            }
+        });
+    }
+
+    /**
+     * Get the introspected information of a bean class.
+     *
+     * @param beanClass bean class
+     * @return bean info
+     */
+    public BeanInfo introspect(final Class beanClass) {
+        long start = HotPathMetrics.startTimer();
+
+        try {
+            return cache.getUnchecked(beanClass, new Callable<BeanInfo>() {
+                @Override
+                public BeanInfo call() {
+                    SquigglyEvents.Introspection event = SquigglyEvents.beginIntrospection();
+
+                    try {
+                        return introspectClass(beanClass);
+                    } finally {
+                        if (event != null) {
+                            event.setBeanClass(beanClass);
+                            event.commit();
+                        }
                     }
-                });
-        METRICS_SOURCE = new GuavaCacheSquigglyMetricsSource("squiggly.property.descriptorCache.", CACHE);
+                }
+            });
+        } finally {
+            HotPathMetrics.stopIntrospectTimer(start);
+        }
     }
 
+    /**
+     * Get the settings of this introspector.
+     *
+     * @return settings
+     */
+    public SquigglySettings getSettings() {
+        return settings;
+    }
 
-    public BeanInfo introspect(Class beanClass) {
-        return CACHE.getUnchecked(beanClass);
+    /**
+     * Get the cache of introspected classes, which can be resized while in use.
+     *
+     * @return descriptor cache
+     */
+    public ReconfigurableCache<Class, BeanInfo> getDescriptorCache() {
+        return cache;
     }
 
-    private static BeanInfo introspectClass(Class beanClass) {
+    /**
+     * Introspect a class without going through the cache.
+     *
+     * @param beanClass bean class
+     * @return bean info
+     */
+    protected BeanInfo introspectClass(Class beanClass) {
+        BeanInfoTable table = loadTable(beanClass);
+
+        if (table != null) {
+            return introspectTable(beanClass, table);
+        }
+
+        return introspectWithReflection(beanClass);
+    }
+
+    // find the table generated at compile time, if any
+    private static BeanInfoTable loadTable(Class beanClass) {
+        if (beanClass.isPrimitive() || beanClass.isArray()) {
+            return null;
+        }
+
+        try {
+            Class<?> tableClass = Class.forName(beanClass.getName() + BeanInfoTable.CLASS_SUFFIX, true, beanClass.getClassLoader());
+            return (BeanInfoTable) tableClass.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new RuntimeException("Unable to load generated bean info of " + beanClass.getName(), e);
+        }
+    }
+
+    BeanInfo introspectTable(final Class beanClass, BeanInfoTable table) {
+        final String[] propertyNames = table.getPropertyNames();
+        final String[] readMethodNames = table.getReadMethodNames();
+        String[][] propertyViews = table.getPropertyViews();
+        Map<String, Set<String>> viewToPropertyNames = Maps.newHashMap();
+
+        for (int i = 0; i < propertyNames.length; i++) {
+            addPropertyToViews(viewToPropertyNames, propertyNames[i], Sets.newHashSet(propertyViews[i]));
+        }
+
+        // only projections need the property types, so the getters are looked up on first use
+        Supplier<Map<String, Type>> propertyTypes = Suppliers.memoize(new Supplier<Map<String, Type>>() {
+            @Override
+            public Map<String, Type> get() {
+                Map<String, Type> types = Maps.newLinkedHashMap();
+
+                for (int i = 0; i < propertyNames.length; i++) {
+                    if (readMethodNames[i] != null) {
+                        types.put(propertyNames[i], getReadMethod(beanClass, readMethodNames[i]).getGenericReturnType());
+                    }
+                }
+
+                return Collections.unmodifiableMap(types);
+            }
+        });
+
+        return new BeanInfo(expand(viewToPropertyNames), Sets.newHashSet(table.getUnwrappedPropertyNames()), Arrays.asList(propertyNames), propertyTypes);
+    }
+
+    private static Method getReadMethod(Class<?> beanClass, String name) {
+        try {
+            return beanClass.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException("Generated bean info of " + beanClass.getName() + " is out of date, " + name + "() is missing", e);
+        }
+    }
+
+    BeanInfo introspectWithReflection(Class beanClass) {
 
         Map<String, Set<String>> viewToPropertyNames = Maps.newHashMap();
         Set<String> resolved = Sets.newHashSet();
         Set<String> unwrapped = Sets.newHashSet();
+        Map<String, Type> propertyTypes = Maps.newLinkedHashMap();
 
         for (PropertyDescriptor propertyDescriptor : getPropertyDescriptors(beanClass)) {
 
@@ -69,30 +224,42 @@ public class BeanInfoIntrospector {
             Field field = FieldUtils.getField(propertyDescriptor.getReadMethod().getDeclaringClass(), propertyDescriptor.getName(), true);
             String propertyName = getPropertyName(propertyDescriptor, field);
 
+            // getClass() isn't a bean property as far as jackson is concerned
+            if (propertyDescriptor.getReadMethod().getDeclaringClass() != Object.class) {
+                propertyTypes.put(propertyName, propertyDescriptor.getReadMethod().getGenericReturnType());
+            }
+
 
             if (isUnwrapped(propertyDescriptor, field)) {
                 unwrapped.add(propertyName);
             }
 
-            Set<String> views = introspectPropertyViews(propertyDescriptor, field);
-
-            for (String view : views) {
-                Set<String> fieldNames = viewToPropertyNames.get(view);
+            addPropertyToViews(viewToPropertyNames, propertyName, introspectPropertyViews(propertyDescriptor, field));
+        }
 
-                if (fieldNames == null) {
-                    fieldNames = Sets.newHashSet();
-                    viewToPropertyNames.put(view, fieldNames);
-                }
+        return newBeanInfo(viewToPropertyNames, unwrapped, propertyTypes);
+    }
 
-                fieldNames.add(propertyName);
-            }
+    void addPropertyToViews(Map<String, Set<String>> viewToPropertyNames, String propertyName, Set<String> views) {
+        if (views.isEmpty() && settings.isPropertyAddNonAnnotatedFieldsToBaseView()) {
+            views = Collections.singleton(PropertyView.BASE_VIEW);
         }
 
+        for (String view : views) {
+            Set<String> fieldNames = viewToPropertyNames.get(view);
 
-        viewToPropertyNames = makeUnmodifiable(expand(viewToPropertyNames));
-        unwrapped = Collections.unmodifiableSet(unwrapped);
+            if (fieldNames == null) {
+                fieldNames = Sets.newHashSet();
+                viewToPropertyNames.put(view, fieldNames);
+            }
 
-        return new BeanInfo(viewToPropertyNames, unwrapped);
+            fieldNames.add(propertyName);
+        }
+    }
+
+    BeanInfo newBeanInfo(Map<String, Set<String>> viewToPropertyNames, Set<String> unwrapped, Map<String, Type> propertyTypes) {
+        // the views and unwrapped properties are indexed by the bean info, so the sets aren't retained
+        return new BeanInfo(expand(viewToPropertyNames), unwrapped, Collections.unmodifiableMap(propertyTypes));
     }
 
     private static String getPropertyName(PropertyDescriptor propertyDescriptor, Field field) {
@@ -171,14 +338,6 @@ public class BeanInfoIntrospector {
         return false;
     }
 
-    private static Map<String, Set<String>> makeUnmodifiable(Map<String, Set<String>> map) {
-        for (String key : map.keySet()) {
-            map.put(key, Collections.unmodifiableSet(map.get(key)));
-        }
-
-        return Collections.unmodifiableMap(map);
-    }
-
     private static PropertyDescriptor[] getPropertyDescriptors(Class beanClass) {
         try {
             return Introspector.getBeanInfo(beanClass).getPropertyDescriptors();
@@ -188,7 +347,7 @@ public class BeanInfoIntrospector {
     }
 
     // apply the base fields to other views if configured to do so.
-    private static Map<String, Set<String>> expand(Map<String, Set<String>> viewToPropNames) {
+    private Map<String, Set<String>> expand(Map<String, Set<String>> viewToPropNames) {
 
         Set<String> baseProps = viewToPropNames.get(PropertyView.BASE_VIEW);
 
@@ -196,7 +355,7 @@ public class BeanInfoIntrospector {
             baseProps = ImmutableSet.of();
         }
 
-        if (!SquigglyConfig.isFilterImplicitlyIncludeBaseFieldsInView()) {
+        if (!settings.isFilterImplicitlyIncludeBaseFieldsInView()) {
 
             // make an exception for full view
             Set<String> fullView = viewToPropNames.get(PropertyView.FULL_VIEW);
@@ -237,14 +396,14 @@ public class BeanInfoIntrospector {
             applyPropertyViews(views, field.getAnnotations());
         }
 
-        if (views.isEmpty() && SquigglyConfig.isPropertyAddNonAnnotatedFieldsToBaseView()) {
-            return Collections.singleton(PropertyView.BASE_VIEW);
-        }
-
         return views;
     }
 
     private static void applyPropertyViews(Set<String> views, Annotation[] annotations) {
+        applyPropertyViews(views, Arrays.asList(annotations));
+    }
+
+    static void applyPropertyViews(Set<String> views, Iterable<Annotation> annotations) {
         for (Annotation ann : annotations) {
             if (ann instanceof PropertyView) {
                 views.addAll(Lists.newArrayList(((PropertyView) ann).value()));
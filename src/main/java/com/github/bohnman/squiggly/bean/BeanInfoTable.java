@@ -0,0 +1,48 @@
+package com.github.bohnman.squiggly.bean;
+
+/**
+ * Introspection results for a bean class that were generated at compile time, so the class doesn't have to be
+ * reflected on at runtime.
+ * <p>
+ * Tables are generated by {@link com.github.bohnman.squiggly.processor.SquigglyBeanInfoProcessor} into a class named
+ * after the bean's binary name plus {@link #CLASS_SUFFIX}, which {@link BeanInfoIntrospector} loads when present.
+ * That's the introspector {@link com.github.bohnman.squiggly.Squiggly#init} uses, unless property.introspector is set
+ * to jackson.  {@link JacksonBeanInfoIntrospector} doesn't read tables, since Jackson introspects the class anyway.
+ * The arrays are indexed by property and hold what runtime introspection would find, before the base view is
+ * applied to unannotated properties.
+ */
+public interface BeanInfoTable {
+
+    /**
+     * Suffix of the generated class name.
+     */
+    String CLASS_SUFFIX = "$SquigglyBeanInfo";
+
+    /**
+     * Get the property names, after any @JsonProperty rename.
+     *
+     * @return property names
+     */
+    String[] getPropertyNames();
+
+    /**
+     * Get the name of each property's read method, which is null for getClass().
+     *
+     * @return read method names
+     */
+    String[] getReadMethodNames();
+
+    /**
+     * Get the views each property is annotated with, which is empty for unannotated properties.
+     *
+     * @return views
+     */
+    String[][] getPropertyViews();
+
+    /**
+     * Get the names of the @JsonUnwrapped properties.
+     *
+     * @return unwrapped property names
+     */
+    String[] getUnwrappedPropertyNames();
+}
@@ -0,0 +1,112 @@
+package com.github.bohnman.squiggly.bean;
+
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotationMap;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.github.bohnman.squiggly.config.SquigglySettings;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import net.jcip.annotations.ThreadSafe;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Introspects bean classes the way an object mapper sees them, using Jackson's own bean descriptions.
+ * <p>
+ * Property names therefore match what the serializer writes, including renames by a naming strategy or mix-ins,
+ * and {@link com.github.bohnman.squiggly.view.PropertyView} annotations added through mix-ins are picked up.  Each
+ * introspector caches the classes it has seen, so use one per mapper.
+ * <p>
+ * Generated {@link BeanInfoTable}s aren't read, since they can't see mix-ins or naming strategies and Jackson
+ * reflects on the class regardless.
+ */
+@ThreadSafe
+public class JacksonBeanInfoIntrospector extends BeanInfoIntrospector {
+
+    private final ObjectMapper mapper;
+
+    /**
+     * Constructor.
+     *
+     * @param mapper the mapper whose view of classes is introspected
+     */
+    public JacksonBeanInfoIntrospector(ObjectMapper mapper) {
+        this(mapper, SquigglySettings.defaults());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param mapper   the mapper whose view of classes is introspected
+     * @param settings settings
+     */
+    public JacksonBeanInfoIntrospector(ObjectMapper mapper, SquigglySettings settings) {
+        super(settings);
+        this.mapper = checkNotNull(mapper);
+    }
+
+    @Override
+    protected BeanInfo introspectClass(Class beanClass) {
+        // the config is looked up each time, so mix-ins registered after construction are seen
+        SerializationConfig config = mapper.getSerializationConfig();
+        AnnotationIntrospector annotationIntrospector = config.getAnnotationIntrospector();
+        BeanDescription description = config.introspect(config.constructType(beanClass));
+
+        Map<String, Set<String>> viewToPropertyNames = Maps.newHashMap();
+        Set<String> unwrapped = Sets.newHashSet();
+        Map<String, Type> propertyTypes = Maps.newLinkedHashMap();
+
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            AnnotatedMember accessor = property.getAccessor();
+
+            if (accessor == null) {
+                continue;
+            }
+
+            String propertyName = property.getName();
+            propertyTypes.put(propertyName, getGenericType(accessor));
+
+            if (annotationIntrospector != null && annotationIntrospector.findUnwrappingNameTransformer(accessor) != null) {
+                unwrapped.add(propertyName);
+            }
+
+            Set<String> views = Sets.newHashSet();
+            applyPropertyViews(views, property.getGetter());
+            applyPropertyViews(views, property.getSetter());
+            applyPropertyViews(views, property.getField());
+            addPropertyToViews(viewToPropertyNames, propertyName, views);
+        }
+
+        return newBeanInfo(viewToPropertyNames, unwrapped, propertyTypes);
+    }
+
+    private static void applyPropertyViews(Set<String> views, AnnotatedMember member) {
+        AnnotationMap annotations = (member == null) ? null : member.getAllAnnotations();
+
+        if (annotations != null) {
+            applyPropertyViews(views, annotations.annotations());
+        }
+    }
+
+    private static Type getGenericType(AnnotatedMember accessor) {
+        if (accessor.getMember() instanceof Method) {
+            return ((Method) accessor.getMember()).getGenericReturnType();
+        }
+
+        if (accessor.getMember() instanceof Field) {
+            return ((Field) accessor.getMember()).getGenericType();
+        }
+
+        return accessor.getRawType();
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.bohnman.squiggly.cache;
+
+import com.google.common.base.Splitter;
+import com.google.common.cache.CacheBuilderSpec;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the options of a {@link CacheBuilderSpec}, which doesn't expose them.
+ */
+class CacheSpecs {
+
+    static final String MAXIMUM_SIZE = "maximumSize";
+    static final String MAXIMUM_WEIGHT = "maximumWeight";
+
+    private static final Splitter OPTION_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+    private static final Splitter KEY_VALUE_SPLITTER = Splitter.on('=').trimResults().limit(2);
+
+    private CacheSpecs() {
+    }
+
+    /**
+     * Get the options of a spec, where options without a value, like weakKeys, map to an empty string.
+     *
+     * @param spec spec
+     * @return options by name
+     */
+    static Map<String, String> parse(CacheBuilderSpec spec) {
+        Map<String, String> options = new LinkedHashMap<>();
+
+        for (String option : OPTION_SPLITTER.split(spec.toParsableString())) {
+            String[] keyValue = KEY_VALUE_SPLITTER.splitToList(option).toArray(new String[0]);
+            options.put(keyValue[0], keyValue.length > 1 ? keyValue[1] : "");
+        }
+
+        return options;
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.bohnman.squiggly.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheBuilderSpec;
+import com.google.common.cache.Weigher;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Builds plain Guava caches, which evict by LRU.
+ */
+@ThreadSafe
+public class GuavaCacheFactory implements SquigglyCacheFactory {
+
+    @Override
+    public <K, V> Cache<K, V> build(CacheBuilderSpec spec, Weigher<? super K, ? super V> weigher) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.from(spec);
+
+        if (CacheSpecs.parse(spec).containsKey(CacheSpecs.MAXIMUM_WEIGHT)) {
+            return builder.weigher(weigher).build();
+        }
+
+        return builder.build();
+    }
+}
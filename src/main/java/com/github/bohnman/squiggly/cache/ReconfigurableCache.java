@@ -0,0 +1,118 @@
+package com.github.bohnman.squiggly.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilderSpec;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.ForwardingCache;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A cache whose underlying Guava cache can be replaced while it's in use, eg. to resize it under load.
+ * <p>
+ * Entries of the old cache are carried over to the new one, which evicts whatever no longer fits.  Reads and writes
+ * that race with a swap may land in the old cache and be lost, which only costs a recomputation.  Statistics of
+ * retired caches are kept, so metrics don't reset on a swap.
+ */
+@ThreadSafe
+public class ReconfigurableCache<K, V> extends ForwardingCache<K, V> {
+
+    private final SquigglyCacheFactory factory;
+    private final Weigher<? super K, ? super V> weigher;
+    private volatile Cache<K, V> delegate;
+    private volatile CacheBuilderSpec spec;
+    private CacheStats retiredStats = new CacheStats(0, 0, 0, 0, 0, 0);
+
+    /**
+     * Constructor.
+     *
+     * @param spec    spec of the initial cache
+     * @param factory builds the cache from a spec
+     * @param weigher estimates the retained size of an entry in bytes, used by specs with a maximumWeight
+     */
+    public ReconfigurableCache(CacheBuilderSpec spec, SquigglyCacheFactory factory, Weigher<? super K, ? super V> weigher) {
+        this.factory = checkNotNull(factory);
+        this.weigher = checkNotNull(weigher);
+        this.spec = checkNotNull(spec);
+        this.delegate = factory.build(spec, weigher);
+    }
+
+    @Override
+    protected Cache<K, V> delegate() {
+        return delegate;
+    }
+
+    /**
+     * Get a value, loading it on a miss.  Concurrent misses on the same key load it once.  Like
+     * {@link com.google.common.cache.LoadingCache#getUnchecked(Object)}, checked exceptions of the loader are wrapped
+     * in an {@link UncheckedExecutionException}.
+     *
+     * @param key    key
+     * @param loader computes the value on a miss
+     * @return value
+     */
+    public V getUnchecked(K key, Callable<? extends V> loader) {
+        try {
+            return delegate.get(key, loader);
+        } catch (ExecutionException e) {
+            throw new UncheckedExecutionException(e.getCause());
+        }
+    }
+
+    /**
+     * Get the spec of the current cache, or null if it was swapped for a cache built elsewhere.
+     *
+     * @return spec
+     */
+    public CacheBuilderSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * Replace the cache with one built from a spec.
+     *
+     * @param spec spec, eg. maximumSize=100
+     */
+    public void reconfigure(String spec) {
+        reconfigure(CacheBuilderSpec.parse(spec));
+    }
+
+    /**
+     * Replace the cache with one built from a spec.
+     *
+     * @param spec spec
+     */
+    public void reconfigure(CacheBuilderSpec spec) {
+        Cache<K, V> cache = factory.build(spec, weigher);
+        swap(cache, spec);
+    }
+
+    /**
+     * Replace the cache with the given one.
+     *
+     * @param cache new cache
+     */
+    public void swap(Cache<K, V> cache) {
+        swap(checkNotNull(cache), null);
+    }
+
+    private synchronized void swap(Cache<K, V> cache, CacheBuilderSpec spec) {
+        Cache<K, V> old = delegate;
+        cache.putAll(old.asMap());
+        retiredStats = retiredStats.plus(old.stats());
+        this.spec = spec;
+        this.delegate = cache;
+        old.invalidateAll();
+    }
+
+    @Override
+    public synchronized CacheStats stats() {
+        return retiredStats.plus(delegate.stats());
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.bohnman.squiggly.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilderSpec;
+import com.google.common.cache.Weigher;
+
+/**
+ * Builds the caches used by the parser, filter and introspector, so that their eviction policy can be swapped out.
+ * <p>
+ * Implementations need a public no-arg constructor to be named by the cache.implementation setting.
+ *
+ * @see com.github.bohnman.squiggly.config.SquigglyConfig#getCacheImplementation()
+ */
+public interface SquigglyCacheFactory {
+
+    /**
+     * Build a cache.
+     *
+     * @param spec    spec of the cache, eg. maximumSize=1000
+     * @param weigher estimates the retained size of an entry in bytes, used when the spec has a maximumWeight
+     * @param <K>     key type
+     * @param <V>     value type
+     * @return cache
+     */
+    <K, V> Cache<K, V> build(CacheBuilderSpec spec, Weigher<? super K, ? super V> weigher);
+}
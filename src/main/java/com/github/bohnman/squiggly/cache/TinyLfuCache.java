@@ -0,0 +1,678 @@
+package com.github.bohnman.squiggly.cache;
+
+import com.google.common.base.Function;
+import com.google.common.cache.AbstractCache;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.util.concurrent.Uninterruptibles;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A bounded cache with the W-TinyLFU eviction policy.
+ * <p>
+ * New entries go into a small LRU window, which takes 1% of the capacity.  Entries pushed out of the window have to
+ * win admission into the main space, where they replace the least recently used entry only if a
+ * {@link FrequencySketch} says they have been seen more often.  A burst of one-off keys, like a crawler sending random
+ * filters, therefore churns through the window without evicting the hot entries.  The main space is a segmented LRU
+ * whose protected segment holds entries that were used again after admission.
+ * <p>
+ * Reads go to a concurrent map and are recorded in a lossy ring buffer, which is replayed against the policy under
+ * a lock when it fills up or when the cache is written to.  Writes take the lock.  Concurrent loads of the same key
+ * through {@link #get(Object, Callable)} are computed once.
+ */
+@ThreadSafe
+class TinyLfuCache<K, V> extends AbstractCache<K, V> {
+
+    private static final int READ_BUFFER_SIZE = 64;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    private static final int READ_BUFFER_DRAIN_THRESHOLD = READ_BUFFER_SIZE / 2;
+
+    private final ConcurrentMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ConcurrentMap<K, FutureTask<V>> loading = new ConcurrentHashMap<>();
+    private final Weigher<? super K, ? super V> weigher;
+    private final boolean weighted;
+    private final long maximum;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final StatsCounter statsCounter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicReferenceArray<Node<K, V>> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong readBufferWrites = new AtomicLong();
+    private volatile long readBufferReads;
+
+    @GuardedBy("lock")
+    private final FrequencySketch sketch;
+    @GuardedBy("lock")
+    private final AccessQueue<K, V> window = new AccessQueue<>();
+    @GuardedBy("lock")
+    private final AccessQueue<K, V> probation = new AccessQueue<>();
+    @GuardedBy("lock")
+    private final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+    @GuardedBy("lock")
+    private long windowWeight;
+    @GuardedBy("lock")
+    private long mainWeight;
+    @GuardedBy("lock")
+    private long protectedWeight;
+
+    /**
+     * Constructor.
+     *
+     * @param maximum     maximum total weight
+     * @param weigher     weigher of entries, or null to bound the number of entries
+     * @param recordStats whether hits, misses, loads and evictions are counted, like a spec's recordStats
+     */
+    TinyLfuCache(long maximum, Weigher<? super K, ? super V> weigher, boolean recordStats) {
+        checkArgument(maximum >= 0, "maximum must not be negative");
+        this.maximum = maximum;
+        this.weigher = weigher;
+        this.weighted = weigher != null;
+        this.statsCounter = recordStats ? new SimpleStatsCounter() : NoStatsCounter.INSTANCE;
+
+        long mainMaximum = (long) (maximum * 0.99);
+        this.windowMaximum = maximum - mainMaximum;
+        this.protectedMaximum = (long) (mainMaximum * 0.8);
+
+        // the number of entries of a weighted cache isn't known up front, so its sketch grows along with it
+        this.sketch = new FrequencySketch(weighted ? 0 : maximum);
+    }
+
+    @Override
+    public V getIfPresent(Object key) {
+        Node<K, V> node = data.get(key);
+
+        if (node == null) {
+            statsCounter.recordMisses(1);
+            return null;
+        }
+
+        statsCounter.recordHits(1);
+        afterRead(node);
+        return node.value;
+    }
+
+    @Override
+    public V get(K key, Callable<? extends V> loader) throws ExecutionException {
+        checkNotNull(key);
+        checkNotNull(loader);
+        Node<K, V> node = data.get(key);
+
+        if (node != null) {
+            statsCounter.recordHits(1);
+            afterRead(node);
+            return node.value;
+        }
+
+        FutureTask<V> task = new FutureTask<>(new LoadTask<>(key, loader));
+        FutureTask<V> existing = loading.putIfAbsent(key, task);
+
+        if (existing != null) {
+            // someone else is loading it, so this counts as a hit like it does in guava
+            statsCounter.recordHits(1);
+            return getLoaded(existing);
+        }
+
+        try {
+            node = data.get(key);
+
+            // loaded and put between the miss and claiming the load
+            if (node != null) {
+                statsCounter.recordHits(1);
+                return node.value;
+            }
+
+            statsCounter.recordMisses(1);
+            long start = System.nanoTime();
+            task.run();
+
+            try {
+                V value = getLoaded(task);
+                statsCounter.recordLoadSuccess(System.nanoTime() - start);
+                put(key, value);
+                return value;
+            } catch (ExecutionException | RuntimeException | Error e) {
+                statsCounter.recordLoadException(System.nanoTime() - start);
+                throw e;
+            }
+        } finally {
+            loading.remove(key, task);
+        }
+    }
+
+    private static <V> V getLoaded(FutureTask<V> task) throws ExecutionException {
+        try {
+            return Uninterruptibles.getUninterruptibly(task);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof CacheLoader.InvalidCacheLoadException) {
+                throw (CacheLoader.InvalidCacheLoadException) cause;
+            }
+
+            if (cause instanceof Error) {
+                throw new ExecutionError((Error) cause);
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw new UncheckedExecutionException(cause);
+            }
+
+            throw e;
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        putInternal(checkNotNull(key), checkNotNull(value), false);
+    }
+
+    private V putInternal(K key, V value, boolean onlyIfAbsent) {
+        int weight = weighted ? weigher.weigh(key, value) : 1;
+        checkArgument(weight >= 0, "weight must not be negative");
+        Node<K, V> node = new Node<>(key, value, weight);
+
+        lock.lock();
+
+        try {
+            drainReadBuffer();
+            Node<K, V> old = onlyIfAbsent ? data.putIfAbsent(key, node) : data.put(key, node);
+
+            if (onlyIfAbsent && old != null) {
+                return old.value;
+            }
+
+            if (old != null) {
+                unlink(old);
+            }
+
+            sketch.increment(key);
+
+            if (weighted && data.size() > sketch.getCapacity()) {
+                sketch.ensureCapacity(2L * data.size());
+            }
+
+            node.queue = Node.WINDOW;
+            window.add(node);
+            windowWeight += weight;
+            evict();
+
+            return old == null ? null : old.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(Object key) {
+        remove(key);
+    }
+
+    private V remove(Object key) {
+        lock.lock();
+
+        try {
+            Node<K, V> node = data.remove(key);
+
+            if (node == null) {
+                return null;
+            }
+
+            unlink(node);
+            return node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        lock.lock();
+
+        try {
+            for (Node<K, V> node : data.values()) {
+                node.queue = Node.DEAD;
+            }
+
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedQueue.clear();
+            windowWeight = 0;
+            mainWeight = 0;
+            protectedWeight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long size() {
+        return data.size();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    @Override
+    public void cleanUp() {
+        lock.lock();
+
+        try {
+            drainReadBuffer();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ConcurrentMap<K, V> asMap() {
+        return new MapView();
+    }
+
+    // record a read, dropping it if the buffer is full, and replay the buffer if nobody else is
+    private void afterRead(Node<K, V> node) {
+        long writes = readBufferWrites.get();
+        long pending = writes - readBufferReads;
+
+        if (pending < READ_BUFFER_SIZE && readBufferWrites.compareAndSet(writes, writes + 1)) {
+            readBuffer.lazySet((int) (writes & READ_BUFFER_MASK), node);
+            pending++;
+        }
+
+        if (pending >= READ_BUFFER_DRAIN_THRESHOLD && lock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @GuardedBy("lock")
+    private void drainReadBuffer() {
+        long reads = readBufferReads;
+        long writes = readBufferWrites.get();
+
+        while (reads < writes) {
+            int index = (int) (reads & READ_BUFFER_MASK);
+            Node<K, V> node = readBuffer.get(index);
+
+            // the slot was claimed but not written yet
+            if (node == null) {
+                break;
+            }
+
+            readBuffer.lazySet(index, null);
+            onAccess(node);
+            reads++;
+        }
+
+        readBufferReads = reads;
+    }
+
+    @GuardedBy("lock")
+    private void onAccess(Node<K, V> node) {
+        if (node.queue == Node.DEAD) {
+            return;
+        }
+
+        sketch.increment(node.key);
+
+        switch (node.queue) {
+            case Node.WINDOW:
+                window.moveToBack(node);
+                break;
+            case Node.PROBATION:
+                probation.remove(node);
+                node.queue = Node.PROTECTED;
+                protectedQueue.add(node);
+                protectedWeight += node.weight;
+                demoteProtected();
+                break;
+            case Node.PROTECTED:
+                protectedQueue.moveToBack(node);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @GuardedBy("lock")
+    private void demoteProtected() {
+        while (protectedWeight > protectedMaximum) {
+            Node<K, V> node = protectedQueue.peekFirst();
+            protectedQueue.remove(node);
+            protectedWeight -= node.weight;
+            node.queue = Node.PROBATION;
+            probation.add(node);
+        }
+    }
+
+    /*
+        Move the overflow of the window into probation, where each entry competes with the least recently used entry
+        of the main space.  The one that the sketch has seen less often is evicted.
+     */
+    @GuardedBy("lock")
+    private void evict() {
+        while (windowWeight > windowMaximum) {
+            Node<K, V> candidate = window.peekFirst();
+            window.remove(candidate);
+            windowWeight -= candidate.weight;
+            candidate.queue = Node.PROBATION;
+            probation.add(candidate);
+            mainWeight += candidate.weight;
+            admit(candidate);
+        }
+
+        while (windowWeight + mainWeight > maximum) {
+            Node<K, V> victim = probation.peekFirst();
+
+            if (victim == null) {
+                victim = protectedQueue.peekFirst();
+            }
+
+            if (victim == null) {
+                victim = window.peekFirst();
+            }
+
+            evictNode(victim);
+        }
+    }
+
+    @GuardedBy("lock")
+    private void admit(Node<K, V> candidate) {
+        while (candidate.queue != Node.DEAD && windowWeight + mainWeight > maximum) {
+            Node<K, V> victim = probation.peekFirst();
+
+            if (victim == candidate) {
+                victim = protectedQueue.peekFirst();
+            }
+
+            if (victim == null || candidate.weight > maximum) {
+                evictNode(candidate);
+            } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evictNode(victim);
+            } else {
+                evictNode(candidate);
+            }
+        }
+    }
+
+    @GuardedBy("lock")
+    private void evictNode(Node<K, V> node) {
+        data.remove(node.key, node);
+        unlink(node);
+        statsCounter.recordEviction();
+    }
+
+    @GuardedBy("lock")
+    private void unlink(Node<K, V> node) {
+        switch (node.queue) {
+            case Node.WINDOW:
+                window.remove(node);
+                windowWeight -= node.weight;
+                break;
+            case Node.PROBATION:
+                probation.remove(node);
+                mainWeight -= node.weight;
+                break;
+            case Node.PROTECTED:
+                protectedQueue.remove(node);
+                mainWeight -= node.weight;
+                protectedWeight -= node.weight;
+                break;
+            default:
+                break;
+        }
+
+        node.queue = Node.DEAD;
+    }
+
+    // counts nothing, the way guava caches built without recordStats report empty stats
+    private static class NoStatsCounter implements StatsCounter {
+        static final NoStatsCounter INSTANCE = new NoStatsCounter();
+        private static final CacheStats EMPTY_STATS = new CacheStats(0, 0, 0, 0, 0, 0);
+
+        @Override
+        public void recordHits(int count) {
+        }
+
+        @Override
+        public void recordMisses(int count) {
+        }
+
+        @Override
+        public void recordLoadSuccess(long loadTime) {
+        }
+
+        @Override
+        public void recordLoadException(long loadTime) {
+        }
+
+        @Override
+        public void recordEviction() {
+        }
+
+        @Override
+        public CacheStats snapshot() {
+            return EMPTY_STATS;
+        }
+    }
+
+    private static class Node<K, V> {
+        static final int WINDOW = 0;
+        static final int PROBATION = 1;
+        static final int PROTECTED = 2;
+        static final int DEAD = 3;
+
+        final K key;
+        final V value;
+        final int weight;
+
+        // guarded by the cache's lock
+        int queue = DEAD;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    // an intrusive doubly linked list from least to most recently used
+    private static class AccessQueue<K, V> {
+        private Node<K, V> first;
+        private Node<K, V> last;
+
+        Node<K, V> peekFirst() {
+            return first;
+        }
+
+        void add(Node<K, V> node) {
+            node.prev = last;
+            node.next = null;
+
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+
+            last = node;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+
+            node.prev = null;
+            node.next = null;
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (node != last) {
+                remove(node);
+                add(node);
+            }
+        }
+
+        void clear() {
+            first = null;
+            last = null;
+        }
+    }
+
+    private static class LoadTask<K, V> implements Callable<V> {
+        private final K key;
+        private final Callable<? extends V> loader;
+
+        LoadTask(K key, Callable<? extends V> loader) {
+            this.key = key;
+            this.loader = loader;
+        }
+
+        @Override
+        public V call() throws Exception {
+            V value = loader.call();
+
+            if (value == null) {
+                throw new CacheLoader.InvalidCacheLoadException("CacheLoader returned null for key " + key + ".");
+            }
+
+            return value;
+        }
+    }
+
+    // entries can be read and written through the map, but not removed while iterating
+    private class MapView extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return Collections.unmodifiableMap(Maps.transformValues(data, new Function<Node<K, V>, V>() {
+                @Override
+                public V apply(Node<K, V> node) {
+                    return node.value;
+                }
+            })).entrySet();
+        }
+
+        @Override
+        public int size() {
+            return data.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return data.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            Node<K, V> node = data.get(key);
+            return node == null ? null : node.value;
+        }
+
+        @Override
+        public V put(K key, V value) {
+            return putInternal(checkNotNull(key), checkNotNull(value), false);
+        }
+
+        @Override
+        public V putIfAbsent(K key, V value) {
+            return putInternal(checkNotNull(key), checkNotNull(value), true);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return TinyLfuCache.this.remove(key);
+        }
+
+        @Override
+        public boolean remove(Object key, Object value) {
+            lock.lock();
+
+            try {
+                Node<K, V> node = data.get(key);
+
+                if (node == null || !node.value.equals(value)) {
+                    return false;
+                }
+
+                data.remove(key);
+                unlink(node);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean replace(K key, V oldValue, V newValue) {
+            lock.lock();
+
+            try {
+                Node<K, V> node = data.get(key);
+
+                if (node == null || !node.value.equals(oldValue)) {
+                    return false;
+                }
+
+                putInternal(key, checkNotNull(newValue), false);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public V replace(K key, V value) {
+            lock.lock();
+
+            try {
+                return data.containsKey(key) ? putInternal(key, checkNotNull(value), false) : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void clear() {
+            invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.bohnman.squiggly.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilderSpec;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableSet;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds caches that evict by W-TinyLFU, which keeps frequently used entries when a burst of one-off keys comes in.
+ * <p>
+ * Only the size of the cache is taken from the spec.  Specs without a maximumSize or maximumWeight, or with options
+ * such as expiry or weak references, are built as plain Guava caches instead.
+ */
+@ThreadSafe
+public class TinyLfuCacheFactory implements SquigglyCacheFactory {
+
+    // options that don't change how entries are evicted
+    private static final Set<String> SUPPORTED_OPTIONS = ImmutableSet.of(CacheSpecs.MAXIMUM_SIZE, CacheSpecs.MAXIMUM_WEIGHT, "initialCapacity", "concurrencyLevel", "recordStats");
+
+    private final GuavaCacheFactory fallback = new GuavaCacheFactory();
+
+    @Override
+    public <K, V> Cache<K, V> build(CacheBuilderSpec spec, Weigher<? super K, ? super V> weigher) {
+        Map<String, String> options = CacheSpecs.parse(spec);
+
+        if (!SUPPORTED_OPTIONS.containsAll(options.keySet())) {
+            return fallback.build(spec, weigher);
+        }
+
+        boolean recordStats = options.containsKey("recordStats");
+
+        if (options.containsKey(CacheSpecs.MAXIMUM_WEIGHT)) {
+            return new TinyLfuCache<>(Long.parseLong(options.get(CacheSpecs.MAXIMUM_WEIGHT)), weigher, recordStats);
+        }
+
+        if (options.containsKey(CacheSpecs.MAXIMUM_SIZE)) {
+            return new TinyLfuCache<>(Long.parseLong(options.get(CacheSpecs.MAXIMUM_SIZE)), null, recordStats);
+        }
+
+        return fallback.build(spec, weigher);
+    }
+}
@@ -12,6 +12,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.SortedMap;
 
@@ -23,36 +24,96 @@ import java.util.SortedMap;
 @ThreadSafe
 public class SquigglyConfig {
 
+    /**
+     * Value of parser.implementation for the hand-written recursive descent parser.
+     */
+    public static final String PARSER_IMPLEMENTATION_RECURSIVE_DESCENT = "recursiveDescent";
+
+    /**
+     * Value of parser.implementation for the generated ANTLR parser.
+     */
+    public static final String PARSER_IMPLEMENTATION_ANTLR = "antlr";
+
+    /**
+     * Value of property.introspector for introspecting bean classes with java.beans and reflection.
+     */
+    public static final String PROPERTY_INTROSPECTOR_REFLECTION = "reflection";
+
+    /**
+     * Value of property.introspector for introspecting bean classes the way the object mapper sees them.
+     */
+    public static final String PROPERTY_INTROSPECTOR_JACKSON = "jackson";
+
+    /**
+     * Value of cache.implementation for caches that evict by W-TinyLFU.
+     */
+    public static final String CACHE_IMPLEMENTATION_TINY_LFU = "tinyLfu";
+
+    /**
+     * Value of cache.implementation for plain Guava caches.
+     */
+    public static final String CACHE_IMPLEMENTATION_GUAVA = "guava";
+
     private static final SortedMap<String, String> PROPS_MAP;
     private static final SortedMap<String, String> SOURCE_MAP;
 
+    private static final String cacheImplementation;
+
     private static final boolean filterImplicitlyIncludeBaseFields;
     private static final boolean filterImplicitlyIncludeBaseFieldsInView;
     private static final CacheBuilderSpec filterPathCacheSpec;
+    private static final CacheBuilderSpec filterPlanCacheSpec;
     private static final boolean filterPropagateViewToNestedFilters;
 
+    private static final int metricsHeavyHittersSize;
+    private static final int metricsHeavyHittersWindowSeconds;
+    private static final int metricsSampleInterval;
+
+    private static final String parserImplementation;
     private static final CacheBuilderSpec parserNodeCacheSpec;
+    private static final int parserRegexMatchCacheMaxSize;
 
     private static boolean propertyAddNonAnnotatedFieldsToBaseView;
     private static final CacheBuilderSpec propertyDescriptorCacheSpec;
+    private static final String propertyIntrospector;
+
+    private static final int writerChunkSize;
+    private static final int writerParallelThreshold;
 
     static {
         Map<String, String> propsMap = Maps.newHashMap();
         Map<String, String> sourceMap = Maps.newHashMap();
 
         loadProps(propsMap, sourceMap, "squiggly.default.properties");
+        String defaultPlanCacheSource = sourceMap.get("filter.planCache.spec");
         loadProps(propsMap, sourceMap, "squiggly.properties");
 
+        // the plan cache replaced the path cache, so an old override sizes the new cache unless that's set as well
+        if (propsMap.containsKey("filter.pathCache.spec") && Objects.equals(defaultPlanCacheSource, sourceMap.get("filter.planCache.spec"))) {
+            propsMap.put("filter.planCache.spec", propsMap.get("filter.pathCache.spec"));
+            sourceMap.put("filter.planCache.spec", sourceMap.get("filter.pathCache.spec"));
+        }
+
         PROPS_MAP = ImmutableSortedMap.copyOf(propsMap);
         SOURCE_MAP = ImmutableSortedMap.copyOf(sourceMap);
 
+        cacheImplementation = PROPS_MAP.get("cache.implementation");
         filterImplicitlyIncludeBaseFields = getBool(PROPS_MAP, "filter.implicitlyIncludeBaseFields");
         filterImplicitlyIncludeBaseFieldsInView = getBool(PROPS_MAP, "filter.implicitlyIncludeBaseFieldsInView");
         filterPathCacheSpec = getCacheSpec(PROPS_MAP, "filter.pathCache.spec");
+        filterPlanCacheSpec = getCacheSpec(PROPS_MAP, "filter.planCache.spec");
         filterPropagateViewToNestedFilters = getBool(PROPS_MAP, "filter.propagateViewToNestedFilters");
+        metricsHeavyHittersSize = getInt(PROPS_MAP, "metrics.heavyHitters.size");
+        metricsHeavyHittersWindowSeconds = getInt(PROPS_MAP, "metrics.heavyHitters.windowSeconds");
+        metricsSampleInterval = getInt(PROPS_MAP, "metrics.sampleInterval");
+        parserImplementation = PROPS_MAP.get("parser.implementation");
         parserNodeCacheSpec = getCacheSpec(PROPS_MAP, "parser.nodeCache.spec");
+        parserRegexMatchCacheMaxSize = getInt(PROPS_MAP, "parser.regexMatchCache.maxSize");
         propertyAddNonAnnotatedFieldsToBaseView = getBool(PROPS_MAP, "property.addNonAnnotatedFieldsToBaseView");
         propertyDescriptorCacheSpec = getCacheSpec(PROPS_MAP, "property.descriptorCache.spec");
+        propertyIntrospector = PROPS_MAP.get("property.introspector");
+        writerChunkSize = getInt(PROPS_MAP, "writer.chunkSize");
+        writerParallelThreshold = getInt(PROPS_MAP, "writer.parallelThreshold");
     }
 
     private static CacheBuilderSpec getCacheSpec(Map<String, String> props, String key) {
@@ -113,6 +174,16 @@ public class SquigglyConfig {
     private SquigglyConfig() {
     }
 
+    /**
+     * Get which caches are built, either {@link #CACHE_IMPLEMENTATION_TINY_LFU}, {@link #CACHE_IMPLEMENTATION_GUAVA}
+     * or the class name of a {@link com.github.bohnman.squiggly.cache.SquigglyCacheFactory}.
+     *
+     * @return cache implementation
+     */
+    public static String getCacheImplementation() {
+        return cacheImplementation;
+    }
+
     /**
      * Determines whether or not to include base fields for nested objects
      *
@@ -137,11 +208,24 @@ public class SquigglyConfig {
      *
      * @return spec
      * @see com.github.bohnman.squiggly.filter.SquigglyPropertyFilter
+     * @deprecated the filter no longer caches paths; decisions are memoized by the compiled plan instead, whose cache
+     * uses this spec when filter.planCache.spec isn't set
      */
+    @Deprecated
     public static CacheBuilderSpec getFilterPathCacheSpec() {
         return filterPathCacheSpec;
     }
 
+    /**
+     * Get the {@link CacheBuilderSpec} of the compiled plan cache in the squiggly filter.
+     *
+     * @return spec
+     * @see com.github.bohnman.squiggly.filter.SquigglyFilterPlan
+     */
+    public static CacheBuilderSpec getFilterPlanCacheSpec() {
+        return filterPlanCacheSpec;
+    }
+
     /**
      * Determines whether or not filters that specify a view also propagtes that view to nested filters.
      * <p>
@@ -154,6 +238,47 @@ public class SquigglyConfig {
         return filterPropagateViewToNestedFilters;
     }
 
+    /**
+     * Get how many of the most used filter expressions and root classes are tracked.  Zero turns tracking off.
+     *
+     * @return size
+     * @see com.github.bohnman.squiggly.metric.HeavyHitterTracker
+     */
+    public static int getMetricsHeavyHittersSize() {
+        return metricsHeavyHittersSize;
+    }
+
+    /**
+     * Get how many seconds the counts of the most used filter expressions last before they start over.  Zero keeps
+     * them until they are reset.
+     *
+     * @return window in seconds
+     */
+    public static int getMetricsHeavyHittersWindowSeconds() {
+        return metricsHeavyHittersWindowSeconds;
+    }
+
+    /**
+     * Get how many hot path calls there are for every call whose latency is recorded.  Zero turns timing off.
+     *
+     * @return sample interval
+     * @see com.github.bohnman.squiggly.metric.HotPathMetrics
+     */
+    public static int getMetricsSampleInterval() {
+        return metricsSampleInterval;
+    }
+
+    /**
+     * Get which parser compiles filter expressions, either {@link #PARSER_IMPLEMENTATION_RECURSIVE_DESCENT} or
+     * {@link #PARSER_IMPLEMENTATION_ANTLR}.  Both produce the same nodes.
+     *
+     * @return parser implementation
+     * @see com.github.bohnman.squiggly.parser.SquigglyParser
+     */
+    public static String getParserImplementation() {
+        return parserImplementation;
+    }
+
     /**
      * Get the {@link CacheBuilderSpec} of the node cache in the squiggly parser.
      *
@@ -164,6 +289,16 @@ public class SquigglyConfig {
         return parserNodeCacheSpec;
     }
 
+    /**
+     * Get the maximum number of property names whose match result each regex in a filter remembers.
+     *
+     * @return max size
+     * @see com.github.bohnman.squiggly.name.RegexName
+     */
+    public static int getParserRegexMatchCacheMaxSize() {
+        return parserRegexMatchCacheMaxSize;
+    }
+
     /**
      * Determines whether or not non-annotated fields are added to the "base" view.
      *
@@ -184,6 +319,38 @@ public class SquigglyConfig {
         return propertyDescriptorCacheSpec;
     }
 
+    /**
+     * Get how {@link com.github.bohnman.squiggly.Squiggly#init} introspects bean classes, either
+     * {@link #PROPERTY_INTROSPECTOR_REFLECTION} or {@link #PROPERTY_INTROSPECTOR_JACKSON}.
+     *
+     * @return property introspector
+     * @see com.github.bohnman.squiggly.bean.JacksonBeanInfoIntrospector
+     */
+    public static String getPropertyIntrospector() {
+        return propertyIntrospector;
+    }
+
+    /**
+     * Get how many elements of a large collection are serialized together in each chunk by the parallel writer.
+     *
+     * @return chunk size
+     * @see com.github.bohnman.squiggly.writer.SquigglyParallelWriter
+     */
+    public static int getWriterChunkSize() {
+        return writerChunkSize;
+    }
+
+    /**
+     * Get how many elements a collection needs before the parallel writer serializes it in chunks.  Smaller
+     * collections are serialized on the calling thread.
+     *
+     * @return threshold
+     * @see com.github.bohnman.squiggly.writer.SquigglyParallelWriter
+     */
+    public static int getWriterParallelThreshold() {
+        return writerParallelThreshold;
+    }
+
     /**
      * Gets all the config as a map.
      *
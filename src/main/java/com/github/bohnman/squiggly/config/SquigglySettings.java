@@ -0,0 +1,401 @@
+package com.github.bohnman.squiggly.config;
+
+import com.github.bohnman.squiggly.cache.GuavaCacheFactory;
+import com.github.bohnman.squiggly.cache.SquigglyCacheFactory;
+import com.github.bohnman.squiggly.cache.TinyLfuCacheFactory;
+import com.google.common.cache.CacheBuilderSpec;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Configuration of a single parser, filter or introspector, as opposed to the JVM-wide {@link SquigglyConfig}.
+ * <p>
+ * Settings are built in code and passed to the constructors of {@link com.github.bohnman.squiggly.parser.SquigglyParser},
+ * {@link com.github.bohnman.squiggly.bean.BeanInfoIntrospector} and
+ * {@link com.github.bohnman.squiggly.filter.SquigglyPropertyFilter}, so that mappers in the same JVM can be tuned
+ * separately.  Any value that isn't set falls back to {@link SquigglyConfig}, which is read from squiggly.properties.
+ * <pre>
+ *    SquigglySettings settings = SquigglySettings.builder()
+ *        .filterPlanCacheSpec("maximumSize=100")
+ *        .propertyAddNonAnnotatedFieldsToBaseView(false)
+ *        .build();
+ * </pre>
+ */
+@ThreadSafe
+public class SquigglySettings {
+
+    private static final SquigglySettings DEFAULTS = new Builder().build();
+
+    private final SquigglyCacheFactory cacheFactory;
+    private final Boolean filterImplicitlyIncludeBaseFields;
+    private final Boolean filterImplicitlyIncludeBaseFieldsInView;
+    private final CacheBuilderSpec filterPlanCacheSpec;
+    private final Boolean filterPropagateViewToNestedFilters;
+    private final String parserImplementation;
+    private final CacheBuilderSpec parserNodeCacheSpec;
+    private final Integer parserRegexMatchCacheMaxSize;
+    private final Boolean propertyAddNonAnnotatedFieldsToBaseView;
+    private final CacheBuilderSpec propertyDescriptorCacheSpec;
+    private final String propertyIntrospector;
+    private final Integer writerChunkSize;
+    private final Integer writerParallelThreshold;
+
+    private SquigglySettings(Builder builder) {
+        this.cacheFactory = builder.cacheFactory;
+        this.filterImplicitlyIncludeBaseFields = builder.filterImplicitlyIncludeBaseFields;
+        this.filterImplicitlyIncludeBaseFieldsInView = builder.filterImplicitlyIncludeBaseFieldsInView;
+        this.filterPlanCacheSpec = builder.filterPlanCacheSpec;
+        this.filterPropagateViewToNestedFilters = builder.filterPropagateViewToNestedFilters;
+        this.parserImplementation = builder.parserImplementation;
+        this.parserNodeCacheSpec = builder.parserNodeCacheSpec;
+        this.parserRegexMatchCacheMaxSize = builder.parserRegexMatchCacheMaxSize;
+        this.propertyAddNonAnnotatedFieldsToBaseView = builder.propertyAddNonAnnotatedFieldsToBaseView;
+        this.propertyDescriptorCacheSpec = builder.propertyDescriptorCacheSpec;
+        this.propertyIntrospector = builder.propertyIntrospector;
+        this.writerChunkSize = builder.writerChunkSize;
+        this.writerParallelThreshold = builder.writerParallelThreshold;
+    }
+
+    /**
+     * Get settings that have nothing set, so every value comes from {@link SquigglyConfig}.
+     *
+     * @return default settings
+     */
+    public static SquigglySettings defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Start building settings.
+     *
+     * @return builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Start building settings from a copy of these.
+     *
+     * @return builder
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.cacheFactory = cacheFactory;
+        builder.filterImplicitlyIncludeBaseFields = filterImplicitlyIncludeBaseFields;
+        builder.filterImplicitlyIncludeBaseFieldsInView = filterImplicitlyIncludeBaseFieldsInView;
+        builder.filterPlanCacheSpec = filterPlanCacheSpec;
+        builder.filterPropagateViewToNestedFilters = filterPropagateViewToNestedFilters;
+        builder.parserImplementation = parserImplementation;
+        builder.parserNodeCacheSpec = parserNodeCacheSpec;
+        builder.parserRegexMatchCacheMaxSize = parserRegexMatchCacheMaxSize;
+        builder.propertyAddNonAnnotatedFieldsToBaseView = propertyAddNonAnnotatedFieldsToBaseView;
+        builder.propertyDescriptorCacheSpec = propertyDescriptorCacheSpec;
+        builder.propertyIntrospector = propertyIntrospector;
+        builder.writerChunkSize = writerChunkSize;
+        builder.writerParallelThreshold = writerParallelThreshold;
+        return builder;
+    }
+
+    /**
+     * @return factory of the caches
+     * @see SquigglyConfig#getCacheImplementation()
+     */
+    public SquigglyCacheFactory getCacheFactory() {
+        return cacheFactory != null ? cacheFactory : newCacheFactory(SquigglyConfig.getCacheImplementation());
+    }
+
+    private static SquigglyCacheFactory newCacheFactory(String implementation) {
+        if (implementation == null || SquigglyConfig.CACHE_IMPLEMENTATION_GUAVA.equals(implementation)) {
+            return new GuavaCacheFactory();
+        }
+
+        if (SquigglyConfig.CACHE_IMPLEMENTATION_TINY_LFU.equals(implementation)) {
+            return new TinyLfuCacheFactory();
+        }
+
+        try {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            return (SquigglyCacheFactory) Class.forName(implementation, true, classLoader).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Unable to create cache factory " + implementation, e);
+        }
+    }
+
+    /**
+     * @return true if base fields are included for nested objects
+     * @see SquigglyConfig#isFilterImplicitlyIncludeBaseFields()
+     */
+    public boolean isFilterImplicitlyIncludeBaseFields() {
+        return filterImplicitlyIncludeBaseFields != null ? filterImplicitlyIncludeBaseFields : SquigglyConfig.isFilterImplicitlyIncludeBaseFields();
+    }
+
+    /**
+     * @return true if filters that specify a view also include base fields
+     * @see SquigglyConfig#isFilterImplicitlyIncludeBaseFieldsInView()
+     */
+    public boolean isFilterImplicitlyIncludeBaseFieldsInView() {
+        return filterImplicitlyIncludeBaseFieldsInView != null ? filterImplicitlyIncludeBaseFieldsInView : SquigglyConfig.isFilterImplicitlyIncludeBaseFieldsInView();
+    }
+
+    /**
+     * @return spec of the compiled plan cache
+     * @see SquigglyConfig#getFilterPlanCacheSpec()
+     */
+    public CacheBuilderSpec getFilterPlanCacheSpec() {
+        return filterPlanCacheSpec != null ? filterPlanCacheSpec : SquigglyConfig.getFilterPlanCacheSpec();
+    }
+
+    /**
+     * @return true if views propagate to nested filters
+     * @see SquigglyConfig#isFilterPropagateViewToNestedFilters()
+     */
+    public boolean isFilterPropagateViewToNestedFilters() {
+        return filterPropagateViewToNestedFilters != null ? filterPropagateViewToNestedFilters : SquigglyConfig.isFilterPropagateViewToNestedFilters();
+    }
+
+    /**
+     * @return parser implementation
+     * @see SquigglyConfig#getParserImplementation()
+     */
+    public String getParserImplementation() {
+        return parserImplementation != null ? parserImplementation : SquigglyConfig.getParserImplementation();
+    }
+
+    /**
+     * @return spec of the parser's node cache
+     * @see SquigglyConfig#getParserNodeCacheSpec()
+     */
+    public CacheBuilderSpec getParserNodeCacheSpec() {
+        return parserNodeCacheSpec != null ? parserNodeCacheSpec : SquigglyConfig.getParserNodeCacheSpec();
+    }
+
+    /**
+     * @return maximum number of names each regex remembers the match result of
+     * @see SquigglyConfig#getParserRegexMatchCacheMaxSize()
+     */
+    public int getParserRegexMatchCacheMaxSize() {
+        return parserRegexMatchCacheMaxSize != null ? parserRegexMatchCacheMaxSize : SquigglyConfig.getParserRegexMatchCacheMaxSize();
+    }
+
+    /**
+     * @return true if non-annotated fields are added to the base view
+     * @see SquigglyConfig#isPropertyAddNonAnnotatedFieldsToBaseView()
+     */
+    public boolean isPropertyAddNonAnnotatedFieldsToBaseView() {
+        return propertyAddNonAnnotatedFieldsToBaseView != null ? propertyAddNonAnnotatedFieldsToBaseView : SquigglyConfig.isPropertyAddNonAnnotatedFieldsToBaseView();
+    }
+
+    /**
+     * @return spec of the introspector's descriptor cache
+     * @see SquigglyConfig#getPropertyDescriptorCacheSpec()
+     */
+    public CacheBuilderSpec getPropertyDescriptorCacheSpec() {
+        return propertyDescriptorCacheSpec != null ? propertyDescriptorCacheSpec : SquigglyConfig.getPropertyDescriptorCacheSpec();
+    }
+
+    /**
+     * @return property introspector
+     * @see SquigglyConfig#getPropertyIntrospector()
+     */
+    public String getPropertyIntrospector() {
+        return propertyIntrospector != null ? propertyIntrospector : SquigglyConfig.getPropertyIntrospector();
+    }
+
+    /**
+     * @return number of elements serialized together in each chunk by the parallel writer
+     * @see SquigglyConfig#getWriterChunkSize()
+     */
+    public int getWriterChunkSize() {
+        return writerChunkSize != null ? writerChunkSize : SquigglyConfig.getWriterChunkSize();
+    }
+
+    /**
+     * @return number of elements a collection needs before the parallel writer splits it into chunks
+     * @see SquigglyConfig#getWriterParallelThreshold()
+     */
+    public int getWriterParallelThreshold() {
+        return writerParallelThreshold != null ? writerParallelThreshold : SquigglyConfig.getWriterParallelThreshold();
+    }
+
+    /**
+     * Builds {@link SquigglySettings}.  Values that aren't set fall back to {@link SquigglyConfig}.
+     */
+    public static class Builder {
+        private SquigglyCacheFactory cacheFactory;
+        private Boolean filterImplicitlyIncludeBaseFields;
+        private Boolean filterImplicitlyIncludeBaseFieldsInView;
+        private CacheBuilderSpec filterPlanCacheSpec;
+        private Boolean filterPropagateViewToNestedFilters;
+        private String parserImplementation;
+        private CacheBuilderSpec parserNodeCacheSpec;
+        private Integer parserRegexMatchCacheMaxSize;
+        private Boolean propertyAddNonAnnotatedFieldsToBaseView;
+        private CacheBuilderSpec propertyDescriptorCacheSpec;
+        private String propertyIntrospector;
+        private Integer writerChunkSize;
+        private Integer writerParallelThreshold;
+
+        private Builder() {
+        }
+
+        public Builder cacheFactory(SquigglyCacheFactory factory) {
+            this.cacheFactory = checkNotNull(factory);
+            return this;
+        }
+
+        public Builder filterImplicitlyIncludeBaseFields(boolean value) {
+            this.filterImplicitlyIncludeBaseFields = value;
+            return this;
+        }
+
+        public Builder filterImplicitlyIncludeBaseFieldsInView(boolean value) {
+            this.filterImplicitlyIncludeBaseFieldsInView = value;
+            return this;
+        }
+
+        public Builder filterPlanCacheSpec(String spec) {
+            this.filterPlanCacheSpec = CacheBuilderSpec.parse(spec);
+            return this;
+        }
+
+        public Builder filterPropagateViewToNestedFilters(boolean value) {
+            this.filterPropagateViewToNestedFilters = value;
+            return this;
+        }
+
+        public Builder parserImplementation(String implementation) {
+            checkArgument(SquigglyConfig.PARSER_IMPLEMENTATION_RECURSIVE_DESCENT.equals(implementation)
+                    || SquigglyConfig.PARSER_IMPLEMENTATION_ANTLR.equals(implementation), "Unknown parser implementation %s", implementation);
+            this.parserImplementation = implementation;
+            return this;
+        }
+
+        public Builder parserNodeCacheSpec(String spec) {
+            this.parserNodeCacheSpec = CacheBuilderSpec.parse(spec);
+            return this;
+        }
+
+        public Builder parserRegexMatchCacheMaxSize(int maxSize) {
+            checkArgument(maxSize >= 0, "maxSize must not be negative");
+            this.parserRegexMatchCacheMaxSize = maxSize;
+            return this;
+        }
+
+        public Builder propertyAddNonAnnotatedFieldsToBaseView(boolean value) {
+            this.propertyAddNonAnnotatedFieldsToBaseView = value;
+            return this;
+        }
+
+        public Builder propertyDescriptorCacheSpec(String spec) {
+            this.propertyDescriptorCacheSpec = CacheBuilderSpec.parse(spec);
+            return this;
+        }
+
+        public Builder propertyIntrospector(String introspector) {
+            checkArgument(SquigglyConfig.PROPERTY_INTROSPECTOR_REFLECTION.equals(introspector)
+                    || SquigglyConfig.PROPERTY_INTROSPECTOR_JACKSON.equals(introspector), "Unknown property introspector %s", introspector);
+            this.propertyIntrospector = introspector;
+            return this;
+        }
+
+        public Builder writerChunkSize(int chunkSize) {
+            checkArgument(chunkSize > 0, "chunkSize must be positive");
+            this.writerChunkSize = chunkSize;
+            return this;
+        }
+
+        public Builder writerParallelThreshold(int threshold) {
+            checkArgument(threshold >= 0, "threshold must not be negative");
+            this.writerParallelThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * Set values by their squiggly.properties keys, eg. filter.planCache.spec.  Unknown keys are rejected.
+         * Metrics keys are accepted but ignored, since metrics are shared by all instances.
+         *
+         * @param properties properties
+         * @return this
+         */
+        public Builder properties(Map<String, String> properties) {
+            for (Map.Entry<String, String> entry : properties.entrySet()) {
+                property(entry.getKey(), checkNotNull(entry.getValue()));
+            }
+
+            return this;
+        }
+
+        private void property(String key, String value) {
+            if (key.startsWith("metrics.")) {
+                return;
+            }
+
+            switch (key) {
+                case "cache.implementation":
+                    cacheFactory(newCacheFactory(value));
+                    break;
+                case "filter.implicitlyIncludeBaseFields":
+                    filterImplicitlyIncludeBaseFields("true".equals(value));
+                    break;
+                case "filter.implicitlyIncludeBaseFieldsInView":
+                    filterImplicitlyIncludeBaseFieldsInView("true".equals(value));
+                    break;
+                case "filter.pathCache.spec":
+                    // replaced by the plan cache, which it still sizes unless that's set as well
+                    if (filterPlanCacheSpec == null) {
+                        filterPlanCacheSpec(value);
+                    }
+                    break;
+                case "filter.planCache.spec":
+                    filterPlanCacheSpec(value);
+                    break;
+                case "filter.propagateViewToNestedFilters":
+                    filterPropagateViewToNestedFilters("true".equals(value));
+                    break;
+                case "parser.implementation":
+                    parserImplementation(value);
+                    break;
+                case "parser.nodeCache.spec":
+                    parserNodeCacheSpec(value);
+                    break;
+                case "parser.regexMatchCache.maxSize":
+                    parserRegexMatchCacheMaxSize(toInt(key, value));
+                    break;
+                case "property.addNonAnnotatedFieldsToBaseView":
+                    propertyAddNonAnnotatedFieldsToBaseView("true".equals(value));
+                    break;
+                case "property.descriptorCache.spec":
+                    propertyDescriptorCacheSpec(value);
+                    break;
+                case "property.introspector":
+                    propertyIntrospector(value);
+                    break;
+                case "writer.chunkSize":
+                    writerChunkSize(toInt(key, value));
+                    break;
+                case "writer.parallelThreshold":
+                    writerParallelThreshold(toInt(key, value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown squiggly setting " + key);
+            }
+        }
+
+        private static int toInt(String key, String value) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Unable to convert " + value + " to int for key " + key);
+            }
+        }
+
+        public SquigglySettings build() {
+            return new SquigglySettings(this);
+        }
+    }
+}
@@ -12,7 +12,7 @@ import com.github.bohnman.squiggly.context.SquigglyContext;
 public interface SquigglyContextProvider {
 
     /**
-     * Get the context.
+     * Get the context.  The filter calls this once per top-level bean class for each serialization.
      *
      * @param beanClass the class of the top-level bean being filtered
      * @return context
@@ -20,7 +20,7 @@ public interface SquigglyContextProvider {
     SquigglyContext getContext(Class beanClass);
 
     /**
-     * Hook method to enable/disable filtering.
+     * Hook method to enable/disable filtering.  The filter calls this once at the start of each serialization.
      *
      * @return ture if enabled, false if not
      */
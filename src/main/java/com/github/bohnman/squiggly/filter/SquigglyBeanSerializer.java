@@ -0,0 +1,165 @@
+package com.github.bohnman.squiggly.filter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.ObjectIdWriter;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.google.common.collect.MapMaker;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A bean serializer that, when filtered by a {@link SquigglyPropertyFilter}, only visits the properties that the
+ * filter includes.
+ * <p>
+ * The included properties for a given filter state are computed the first time a bean of that class is written in
+ * that state, and then reused.  This means serializing a list of similar beans only pays for the filter decisions
+ * once.
+ */
+public class SquigglyBeanSerializer extends BeanSerializer {
+
+    private static final long serialVersionUID = 1L;
+
+    // keys are compared by identity and weakly held, so evicted plans don't pin their states here
+    private final ConcurrentMap<SquigglyFilterPlan.State, PrunedProperties> prunedProperties = new MapMaker().weakKeys().makeMap();
+
+    public SquigglyBeanSerializer(BeanSerializerBase src) {
+        super(src);
+    }
+
+    protected SquigglyBeanSerializer(BeanSerializerBase src, ObjectIdWriter objectIdWriter, Object filterId) {
+        super(src, objectIdWriter, filterId);
+    }
+
+    protected SquigglyBeanSerializer(BeanSerializerBase src, Set<String> toIgnore) {
+        super(src, toIgnore);
+    }
+
+    @Override
+    public BeanSerializerBase withObjectIdWriter(ObjectIdWriter objectIdWriter) {
+        return new SquigglyBeanSerializer(this, objectIdWriter, _propertyFilterId);
+    }
+
+    @Override
+    public BeanSerializerBase withFilterId(Object filterId) {
+        return new SquigglyBeanSerializer(this, _objectIdWriter, filterId);
+    }
+
+    @Override
+    protected BeanSerializerBase withIgnorals(Set<String> toIgnore) {
+        return new SquigglyBeanSerializer(this, toIgnore);
+    }
+
+    @Override
+    protected void serializeFieldsFiltered(Object bean, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (_filteredProps != null && provider.getActiveView() != null) {
+            super.serializeFieldsFiltered(bean, gen, provider);
+            return;
+        }
+
+        PropertyFilter filter = findPropertyFilter(provider, _propertyFilterId, bean);
+
+        if (!(filter instanceof SquigglyPropertyFilter)) {
+            super.serializeFieldsFiltered(bean, gen, provider);
+            return;
+        }
+
+        SquigglyPropertyFilter squigglyFilter = (SquigglyPropertyFilter) filter;
+        SquigglyFilterSession session = squigglyFilter.getSession(provider);
+        SquigglyFilterPlan.State state = squigglyFilter.getBeanState(gen, session);
+
+        if (state == null) {
+            super.serializeFieldsFiltered(bean, gen, provider);
+            return;
+        }
+
+        long start = session.startDecisions();
+        PrunedProperties pruned = getPrunedProperties(state, bean.getClass());
+        BeanPropertyWriter[] writers = pruned.writers;
+        SquigglyFilterPlan.State[] states = pruned.states;
+        int i = 0;
+
+        session.endDecisions(writers.length, pruned.excludedCount, start);
+
+        try {
+            for (final int len = writers.length; i < len; ++i) {
+                squigglyFilter.serializeIncludedField(bean, gen, provider, writers[i], states[i], session);
+            }
+
+            if (_anyGetterWriter != null) {
+                _anyGetterWriter.getAndFilter(bean, gen, provider, filter);
+            }
+        } catch (Exception e) {
+            String name = (i == writers.length) ? "[anySetter]" : writers[i].getName();
+            wrapAndThrow(provider, e, bean, name);
+        } catch (StackOverflowError e) {
+            JsonMappingException mapE = new JsonMappingException(gen, "Infinite recursion (StackOverflowError)", e);
+            String name = (i == writers.length) ? "[anySetter]" : writers[i].getName();
+            mapE.prependPath(new JsonMappingException.Reference(bean, name));
+            throw mapE;
+        }
+    }
+
+    private PrunedProperties getPrunedProperties(SquigglyFilterPlan.State state, Class beanClass) {
+        PrunedProperties pruned = prunedProperties.get(state);
+
+        if (pruned != null && pruned.beanClass == beanClass) {
+            return pruned;
+        }
+
+        List<BeanPropertyWriter> writers = new ArrayList<>(_props.length);
+        List<SquigglyFilterPlan.State> states = new ArrayList<>(_props.length);
+        int excludedCount = 0;
+
+        for (BeanPropertyWriter writer : _props) {
+            if (writer == null) {
+                continue;
+            }
+
+            SquigglyFilterPlan.State nextState = state.transition(beanClass, writer.getName());
+
+            if (nextState.isExcluded()) {
+                excludedCount++;
+            } else {
+                writers.add(writer);
+                states.add(nextState);
+            }
+        }
+
+        pruned = new PrunedProperties(beanClass,
+                writers.toArray(new BeanPropertyWriter[writers.size()]),
+                states.toArray(new SquigglyFilterPlan.State[states.size()]),
+                excludedCount);
+        prunedProperties.put(state, pruned);
+
+        return pruned;
+    }
+
+    @Override
+    public String toString() {
+        return "SquigglyBeanSerializer for " + handledType().getName();
+    }
+
+    // the properties that survive the filter for a bean class, along with the state their values are written in
+    private static class PrunedProperties {
+        private final Class beanClass;
+        private final BeanPropertyWriter[] writers;
+        private final SquigglyFilterPlan.State[] states;
+        private final int excludedCount;
+
+        PrunedProperties(Class beanClass, BeanPropertyWriter[] writers, SquigglyFilterPlan.State[] states, int excludedCount) {
+            this.beanClass = beanClass;
+            this.writers = writers;
+            this.states = states;
+            this.excludedCount = excludedCount;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.bohnman.squiggly.filter;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.node.ContainerNode;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Serializer modifier that replaces Jackson's standard bean serializers with {@link SquigglyBeanSerializer}s, and
+ * wraps the serializers of object and array nodes with {@link SquigglyJsonNodeSerializer}s.
+ */
+@ThreadSafe
+public class SquigglyBeanSerializerModifier extends BeanSerializerModifier {
+
+    @Override
+    public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+        // only replace the stock serializer, subclasses may rely on their own behavior
+        if (serializer.getClass() == BeanSerializer.class) {
+            return new SquigglyBeanSerializer((BeanSerializerBase) serializer);
+        }
+
+        // object and array nodes don't go through the property filter, so they are filtered as they're written
+        if (ContainerNode.class.isAssignableFrom(beanDesc.getBeanClass())) {
+            return new SquigglyJsonNodeSerializer(serializer);
+        }
+
+        return serializer;
+    }
+}
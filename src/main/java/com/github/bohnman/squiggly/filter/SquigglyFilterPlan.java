@@ -0,0 +1,498 @@
+package com.github.bohnman.squiggly.filter;
+
+import com.github.bohnman.squiggly.bean.BeanInfo;
+import com.github.bohnman.squiggly.bean.BeanInfoIntrospector;
+import com.github.bohnman.squiggly.config.SquigglySettings;
+import com.github.bohnman.squiggly.metric.HotPathMetrics;
+import com.github.bohnman.squiggly.name.ExactName;
+import com.github.bohnman.squiggly.parser.SquigglyNode;
+import com.github.bohnman.squiggly.parser.SquigglyNodeIndex;
+import com.github.bohnman.squiggly.view.PropertyView;
+import com.google.common.collect.ImmutableSet;
+import net.jcip.annotations.ThreadSafe;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A compiled form of a filter expression.
+ * <p>
+ * The plan is a state machine whose states represent the set of nodes that apply at a point in the object graph,
+ * along with any view that is in effect.  Moving from a bean to one of its properties is a transition, which is
+ * computed the first time it is seen and then looked up on subsequent calls.  A transition either leads to
+ * {@link State#EXCLUDE}, {@link State#INCLUDE_ALL} or to another state whose properties are filtered further.
+ */
+@ThreadSafe
+public class SquigglyFilterPlan {
+
+    static final SquigglyNodeIndex BASE_VIEW_NODES = new SquigglyNodeIndex(Collections.singletonList(new SquigglyNode(new ExactName(PropertyView.BASE_VIEW), Collections.<SquigglyNode>emptyList(), false, true, false)));
+
+    private final BeanInfoIntrospector beanInfoIntrospector;
+    private final SquigglySettings settings;
+    private final ConcurrentMap<StateKey, State> states = new ConcurrentHashMap<>();
+    private final State rootState;
+
+    /**
+     * Constructor.
+     *
+     * @param nodes                the parsed nodes of the filter expression
+     * @param beanInfoIntrospector introspector used for view and unwrapped lookups
+     */
+    public SquigglyFilterPlan(List<SquigglyNode> nodes, BeanInfoIntrospector beanInfoIntrospector) {
+        this(nodes, beanInfoIntrospector, beanInfoIntrospector.getSettings());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param nodes                the parsed nodes of the filter expression
+     * @param beanInfoIntrospector introspector used for view and unwrapped lookups
+     * @param settings             settings
+     */
+    public SquigglyFilterPlan(List<SquigglyNode> nodes, BeanInfoIntrospector beanInfoIntrospector, SquigglySettings settings) {
+        this.beanInfoIntrospector = beanInfoIntrospector;
+        this.settings = settings;
+        this.rootState = getState(new SquigglyNodeIndex(nodes), false, null);
+    }
+
+    /**
+     * Get the state that applies to the properties of the top-level bean.
+     *
+     * @return root state
+     */
+    public State getRootState() {
+        return rootState;
+    }
+
+    /**
+     * Get the number of distinct states that have been materialized so far.
+     *
+     * @return state count
+     */
+    public int getStateCount() {
+        return states.size();
+    }
+
+    private State getState(SquigglyNodeIndex nodes, boolean viewMode, Set<String> viewStack) {
+        StateKey key = new StateKey(nodes, viewMode, viewStack);
+        State state = states.get(key);
+
+        if (state == null) {
+            state = new State(this, nodes, viewMode, viewStack);
+            State existing = states.putIfAbsent(key, state);
+
+            if (existing != null) {
+                state = existing;
+            }
+        }
+
+        return state;
+    }
+
+    // evaluate a single step of the filter for a property of the given bean class
+    private State computeTransition(State state, Class beanClass, String name, boolean[] classDependent) {
+        if (state.viewMode) {
+            classDependent[0] = true;
+
+            if (beanClass != null && !Map.class.isAssignableFrom(beanClass)) {
+                if (!isInViewStack(beanInfoIntrospector.introspect(beanClass), name, state.viewStack)) {
+                    return State.EXCLUDE;
+                }
+            }
+
+            return state;
+        }
+
+        SquigglyNodeIndex nodes = state.nodes;
+
+        if (nodes.isEmpty()) {
+            return State.EXCLUDE;
+        }
+
+        SquigglyNode match = nodes.findBestMatch(name);
+
+        if (match != null) {
+            return resolveSimpleMatch(state, match);
+        }
+
+        classDependent[0] = true;
+        match = findBestViewNode(beanClass, name, nodes);
+
+        if (match != null) {
+            return resolveViewMatch(state, match);
+        }
+
+        if (isJsonUnwrapped(beanClass, name)) {
+            return state;
+        }
+
+        return State.EXCLUDE;
+    }
+
+    /*
+        Map keys are not bean properties, so the only class dependent lookup (views) always resolves to the base view.
+        That makes every key decision a function of the state alone, which is precomputed here: exact names are
+        looked up in a hash map, and only the remaining wildcard/regex names are matched against the key.
+     */
+    private MapKeys computeMapKeys(State state) {
+        if (state.viewMode) {
+            return new MapKeys(Collections.<String, State>emptyMap(), SquigglyNodeIndex.empty(), Collections.<SquigglyNode, State>emptyMap(), state);
+        }
+
+        Map<String, State> exact = new HashMap<>();
+        Map<SquigglyNode, State> nodeStates = new IdentityHashMap<>();
+        State fallback = State.EXCLUDE;
+
+        for (SquigglyNode node : state.nodes.getNodes()) {
+            State nodeState = resolveSimpleMatch(state, node);
+            nodeStates.put(node, nodeState);
+
+            if (node.isExact()) {
+                // later nodes win ties, same as the node index
+                exact.put(node.getName(), nodeState);
+            }
+        }
+
+        SquigglyNode viewNode = state.nodes.getBaseNode();
+
+        if (viewNode != null) {
+            fallback = resolveViewMatch(state, viewNode);
+        }
+
+        return new MapKeys(exact, state.nodes, nodeStates, fallback);
+    }
+
+    private State resolveSimpleMatch(State state, SquigglyNode match) {
+        if (match.isAnyDeep()) {
+            return State.INCLUDE_ALL;
+        }
+
+        return resolveMatch(match, match.isAnyShallow() && !match.isSquiggly(), state.viewStack);
+    }
+
+    private State resolveViewMatch(State state, SquigglyNode viewNode) {
+        return resolveMatch(viewNode, !viewNode.isSquiggly(), addToViewStack(state.viewStack, viewNode));
+    }
+
+    private State resolveMatch(SquigglyNode match, boolean viewMode, Set<String> viewStack) {
+        if (match.isNegated()) {
+            return State.EXCLUDE;
+        }
+
+        SquigglyNodeIndex childNodes = match.getChildIndex();
+
+        if (childNodes.isEmpty() && !match.isEmptyNested() && settings.isFilterImplicitlyIncludeBaseFields()) {
+            childNodes = BASE_VIEW_NODES;
+        }
+
+        return getState(childNodes, viewMode, viewStack);
+    }
+
+    private boolean isJsonUnwrapped(Class beanClass, String name) {
+        return beanClass != null && beanInfoIntrospector.introspect(beanClass).isUnwrapped(name);
+    }
+
+    // same as taking the union of the views in the stack and checking the name, without building the union
+    private boolean isInViewStack(BeanInfo beanInfo, String name, Set<String> viewStack) {
+        int propertyOrdinal = beanInfo.getPropertyOrdinal(name);
+
+        if (propertyOrdinal < 0) {
+            return false;
+        }
+
+        int baseViewOrdinal = beanInfo.getViewOrdinal(PropertyView.BASE_VIEW);
+
+        if (viewStack == null) {
+            return beanInfo.isPropertyInView(propertyOrdinal, baseViewOrdinal);
+        }
+
+        for (String viewName : viewStack) {
+            int viewOrdinal = (!beanInfo.hasView(viewName) && settings.isFilterImplicitlyIncludeBaseFields())
+                    ? baseViewOrdinal
+                    : beanInfo.getViewOrdinal(viewName);
+
+            if (beanInfo.isPropertyInView(propertyOrdinal, viewOrdinal)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private SquigglyNode findBestViewNode(Class beanClass, String name, SquigglyNodeIndex nodes) {
+        if (beanClass != null && Map.class.isAssignableFrom(beanClass)) {
+            return nodes.getBaseNode();
+        }
+
+        if (beanClass != null) {
+            BeanInfo beanInfo = beanInfoIntrospector.introspect(beanClass);
+            int propertyOrdinal = beanInfo.getPropertyOrdinal(name);
+
+            if (propertyOrdinal < 0) {
+                return null;
+            }
+
+            for (SquigglyNode node : nodes.getNodes()) {
+                // handle view
+                if (beanInfo.isPropertyInView(propertyOrdinal, beanInfo.getViewOrdinal(node.getName()))) {
+                    return node;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private Set<String> addToViewStack(Set<String> viewStack, SquigglyNode viewNode) {
+        if (!settings.isFilterPropagateViewToNestedFilters()) {
+            return null;
+        }
+
+        if (viewStack == null) {
+            return ImmutableSet.of(viewNode.getName());
+        }
+
+        return ImmutableSet.<String>builder().addAll(viewStack).add(viewNode.getName()).build();
+    }
+
+    /**
+     * A point in the filter's state machine.  States are immutable apart from their memoized transitions.
+     */
+    @ThreadSafe
+    public static class State {
+
+        /**
+         * Terminal state for a property (and everything beneath it) that is filtered out.
+         */
+        public static final State EXCLUDE = new State(null, SquigglyNodeIndex.empty(), false, null);
+
+        /**
+         * Terminal state for a property whose entire subtree is included (eg. **).
+         */
+        public static final State INCLUDE_ALL = new State(null, SquigglyNodeIndex.empty(), false, null);
+
+        private final SquigglyFilterPlan plan;
+        private final SquigglyNodeIndex nodes;
+        private final boolean viewMode;
+        private final Set<String> viewStack;
+        private final ConcurrentMap<String, State> nameTransitions = new ConcurrentHashMap<>();
+        private volatile ClassTransitions[] classTransitions = new ClassTransitions[0];
+        private volatile MapKeys mapKeys;
+
+        private State(SquigglyFilterPlan plan, SquigglyNodeIndex nodes, boolean viewMode, Set<String> viewStack) {
+            this.plan = plan;
+            this.nodes = nodes;
+            this.viewMode = viewMode;
+            this.viewStack = viewStack;
+        }
+
+        /**
+         * Get the state for a property of a bean in this state.
+         *
+         * @param beanClass the class of the bean that owns the property
+         * @param name      the property name
+         * @return next state
+         */
+        public State transition(Class beanClass, String name) {
+            if (plan == null) {
+                return this;
+            }
+
+            State next = nameTransitions.get(name);
+
+            if (next != null) {
+                return next;
+            }
+
+            // map keys are unbounded, so they are never memoized here
+            if (beanClass != null && Map.class.isAssignableFrom(beanClass)) {
+                return transitionKey(name);
+            }
+
+            ClassTransitions transitions = findClassTransitions(beanClass);
+
+            if (transitions != null) {
+                next = transitions.get(name);
+
+                if (next != null) {
+                    return next;
+                }
+            }
+
+            boolean[] classDependent = new boolean[1];
+            long start = HotPathMetrics.startTimer();
+            next = plan.computeTransition(this, beanClass, name, classDependent);
+            HotPathMetrics.stopMatchTimer(start);
+
+            if (!classDependent[0]) {
+                nameTransitions.putIfAbsent(name, next);
+            } else if (transitions != null) {
+                transitions.putIfAbsent(name, next);
+            } else {
+                addClassTransitions(beanClass).putIfAbsent(name, next);
+            }
+
+            return next;
+        }
+
+        /**
+         * Get the state for an entry of a map in this state.  This never allocates, so it is safe to call for maps
+         * with a large or unbounded set of keys.
+         *
+         * @param key the map key
+         * @return next state
+         */
+        public State transitionKey(String key) {
+            if (plan == null) {
+                return this;
+            }
+
+            MapKeys keys = mapKeys;
+
+            if (keys == null) {
+                keys = plan.computeMapKeys(this);
+                mapKeys = keys;
+            }
+
+            return keys.get(key);
+        }
+
+        // a state only sees a handful of bean classes, so a linear scan beats hashing a composite key
+        private ClassTransitions findClassTransitions(Class beanClass) {
+            if (beanClass == null) {
+                beanClass = NoBean.class;
+            }
+
+            ClassTransitions[] transitions = classTransitions;
+
+            for (ClassTransitions candidate : transitions) {
+                if (candidate.beanClass.get() == beanClass) {
+                    return candidate;
+                }
+            }
+
+            return null;
+        }
+
+        private synchronized ClassTransitions addClassTransitions(Class beanClass) {
+            ClassTransitions existing = findClassTransitions(beanClass);
+
+            if (existing != null) {
+                return existing;
+            }
+
+            List<ClassTransitions> transitions = new ArrayList<>(classTransitions.length + 1);
+
+            for (ClassTransitions candidate : classTransitions) {
+                // drop the entries of classes that have been unloaded
+                if (candidate.beanClass.get() != null) {
+                    transitions.add(candidate);
+                }
+            }
+
+            ClassTransitions added = new ClassTransitions(beanClass == null ? NoBean.class : beanClass);
+            transitions.add(added);
+            classTransitions = transitions.toArray(new ClassTransitions[transitions.size()]);
+
+            return added;
+        }
+
+        /**
+         * Says whether properties reaching this state are filtered out.
+         *
+         * @return true if excluded
+         */
+        public boolean isExcluded() {
+            return this == EXCLUDE;
+        }
+
+        /**
+         * Says whether properties reaching this state are included along with everything beneath them.
+         *
+         * @return true if everything is included
+         */
+        public boolean isIncludeAll() {
+            return this == INCLUDE_ALL;
+        }
+    }
+
+    private static class StateKey {
+        private final SquigglyNodeIndex nodes;
+        private final boolean viewMode;
+        private final Set<String> viewStack;
+
+        StateKey(SquigglyNodeIndex nodes, boolean viewMode, Set<String> viewStack) {
+            this.nodes = nodes;
+            this.viewMode = viewMode;
+            this.viewStack = viewStack;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            StateKey that = (StateKey) o;
+
+            if (nodes != that.nodes) return false;
+            if (viewMode != that.viewMode) return false;
+            return viewStack != null ? viewStack.equals(that.viewStack) : that.viewStack == null;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(nodes);
+            result = 31 * result + (viewMode ? 1 : 0);
+            result = 31 * result + (viewStack != null ? viewStack.hashCode() : 0);
+            return result;
+        }
+    }
+
+    // the precomputed decisions for the keys of a map in a given state
+    private static class MapKeys {
+        private final Map<String, State> exact;
+        private final SquigglyNodeIndex nodes;
+        private final Map<SquigglyNode, State> nodeStates;
+        private final State fallback;
+
+        MapKeys(Map<String, State> exact, SquigglyNodeIndex nodes, Map<SquigglyNode, State> nodeStates, State fallback) {
+            this.exact = exact;
+            this.nodes = nodes;
+            this.nodeStates = nodeStates;
+            this.fallback = fallback;
+        }
+
+        State get(String key) {
+            State state = exact.get(key);
+
+            // an exact match always beats a pattern
+            if (state != null) {
+                return state;
+            }
+
+            SquigglyNode match = nodes.findBestPatternMatch(key);
+            return match == null ? fallback : nodeStates.get(match);
+        }
+    }
+
+    // stands in for a missing bean when looking up class transitions
+    private static final class NoBean {
+    }
+
+    // transitions that depend on the bean class.  The class is weakly held so that plans don't pin class loaders.
+    private static class ClassTransitions extends ConcurrentHashMap<String, State> {
+        private final WeakReference<Class> beanClass;
+
+        ClassTransitions(Class beanClass) {
+            this.beanClass = new WeakReference<>(beanClass);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.github.bohnman.squiggly.filter;
+
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.github.bohnman.squiggly.context.SquigglyContext;
+import com.github.bohnman.squiggly.context.provider.SquigglyContextProvider;
+import com.github.bohnman.squiggly.jfr.SquigglyEvents;
+import com.github.bohnman.squiggly.metric.HeavyHitterTracker;
+import com.github.bohnman.squiggly.metric.HotPathMetrics;
+import com.github.bohnman.squiggly.parser.SquigglyNode;
+import net.jcip.annotations.NotThreadSafe;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds everything the {@link SquigglyPropertyFilter} resolves for a single serialization (eg. one
+ * {@link com.fasterxml.jackson.databind.ObjectMapper#writeValueAsString(Object)} call), so that it is only resolved
+ * once rather than for every field.
+ * <p>
+ * This includes whether filtering is enabled, the context (filter expression and parsed nodes) and compiled plan of
+ * each top-level bean class, and the state of each property that is currently being written.
+ */
+@NotThreadSafe
+public class SquigglyFilterSession {
+
+    private final SquigglyPropertyFilter filter;
+    private final SquigglyContextProvider contextProvider;
+    private final boolean filteringEnabled;
+    private final SquigglyEvents.Serialization event;
+
+    // decision time of sampled sessions counts for all the unsampled ones, and is 0 for those
+    private final int decisionTimeWeight;
+    private final Map<Class, SquigglyContext> contexts = new HashMap<>();
+    private final Map<Class, SquigglyFilterPlan> plans = new HashMap<>();
+    private final Map<Class, HeavyHitterTracker.Entry> heavyHitters = new HashMap<>();
+
+    // the most recently used top-level class, which is almost always the only one
+    private Class lastBeanClass;
+    private SquigglyFilterPlan lastPlan;
+    private HeavyHitterTracker.Entry lastHeavyHitter;
+
+    private JsonStreamContext[] streamContexts = new JsonStreamContext[16];
+    private String[] names = new String[16];
+    private Object[] beans = new Object[16];
+    private SquigglyFilterPlan.State[] states = new SquigglyFilterPlan.State[16];
+    private int depth;
+
+    SquigglyFilterSession(SquigglyPropertyFilter filter, SquigglyContextProvider contextProvider, boolean filteringEnabled, SquigglyEvents.Serialization event) {
+        this.filter = filter;
+        this.contextProvider = contextProvider;
+        this.filteringEnabled = filteringEnabled;
+        this.event = event;
+        this.decisionTimeWeight = HotPathMetrics.isSampled() ? HotPathMetrics.getSampleInterval() : 0;
+    }
+
+    /**
+     * Says whether filtering was enabled when the serialization started.
+     *
+     * @return true if enabled
+     */
+    public boolean isFilteringEnabled() {
+        return filteringEnabled;
+    }
+
+    /**
+     * Get the context for a top-level bean class.
+     *
+     * @param beanClass top-level bean class
+     * @return context
+     */
+    public SquigglyContext getContext(Class beanClass) {
+        SquigglyContext context = contexts.get(beanClass);
+
+        if (context == null) {
+            context = contextProvider.getContext(beanClass);
+            contexts.put(beanClass, context);
+        }
+
+        return context;
+    }
+
+    /**
+     * Get the filter expression for a top-level bean class.
+     *
+     * @param beanClass top-level bean class
+     * @return filter expression
+     */
+    public String getFilter(Class beanClass) {
+        return getContext(beanClass).getFilter();
+    }
+
+    /**
+     * Get the parsed nodes for a top-level bean class.
+     *
+     * @param beanClass top-level bean class
+     * @return nodes
+     */
+    public List<SquigglyNode> getNodes(Class beanClass) {
+        return getContext(beanClass).getNodes();
+    }
+
+    /**
+     * Get the compiled plan for a top-level bean class.
+     *
+     * @param beanClass top-level bean class
+     * @return plan
+     */
+    public SquigglyFilterPlan getPlan(Class beanClass) {
+        if (lastPlan != null && lastBeanClass == beanClass) {
+            return lastPlan;
+        }
+
+        SquigglyFilterPlan plan = plans.get(beanClass);
+
+        if (plan == null) {
+            SquigglyContext context = getContext(beanClass);
+            plan = filter.getPlan(context);
+            plans.put(beanClass, plan);
+
+            // each serialization counts once for each of its root classes
+            if (beanClass != null && context.getFilter() != null) {
+                heavyHitters.put(beanClass, SquigglyPropertyFilter.getHeavyHitterTracker().record(context.getFilter(), beanClass));
+            }
+        }
+
+        lastBeanClass = beanClass;
+        lastPlan = plan;
+        lastHeavyHitter = heavyHitters.get(beanClass);
+
+        return plan;
+    }
+
+    /*
+        Decisions are counted in the hot path metrics.  They are timed only when a flight recorder event is being
+        recorded, or when the session is sampled, in which case the time is added to the heavy hitter of the current
+        root class.
+     */
+
+    long startDecisions() {
+        return (event == null && decisionTimeWeight == 0) ? 0 : System.nanoTime();
+    }
+
+    void endDecisions(int included, int excluded, long start) {
+        HotPathMetrics.recordDecisions(included, excluded);
+
+        if (event == null && decisionTimeWeight == 0) {
+            return;
+        }
+
+        long time = System.nanoTime() - start;
+
+        if (event != null) {
+            event.addDecisions(included, excluded, time);
+        }
+
+        if (decisionTimeWeight > 0 && lastHeavyHitter != null) {
+            lastHeavyHitter.addDecisionTime(time * decisionTimeWeight);
+        }
+    }
+
+    /*
+        Property state tracking.  The arrays are reused, so once they have grown to the depth of the object graph no
+        more allocation happens.
+     */
+
+    void push(JsonStreamContext streamContext, String name, Object bean, SquigglyFilterPlan.State state) {
+        if (depth == streamContexts.length) {
+            int newLength = depth * 2;
+            streamContexts = Arrays.copyOf(streamContexts, newLength);
+            names = Arrays.copyOf(names, newLength);
+            beans = Arrays.copyOf(beans, newLength);
+            states = Arrays.copyOf(states, newLength);
+        }
+
+        streamContexts[depth] = streamContext;
+        names[depth] = name;
+        beans[depth] = bean;
+        states[depth] = state;
+        depth++;
+    }
+
+    void pop() {
+        depth--;
+        streamContexts[depth] = null;
+        names[depth] = null;
+        beans[depth] = null;
+        states[depth] = null;
+    }
+
+    // contexts are recycled by the generator, so also verify that it's still writing the same property of the same bean
+    SquigglyFilterPlan.State find(JsonStreamContext streamContext) {
+        for (int i = depth - 1; i >= 0; i--) {
+            if (streamContexts[i] == streamContext) {
+                if (beans[i] == streamContext.getCurrentValue() && names[i].equals(streamContext.getCurrentName())) {
+                    return states[i];
+                }
+
+                return null;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.bohnman.squiggly.filter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.github.bohnman.squiggly.tree.SquigglyTreeFilter;
+
+import java.io.IOException;
+
+/**
+ * Serializer for object and array nodes that filters them by the part of the filter that applies where they're
+ * written, eg. a {@link JsonNode} property of a bean.  Nodes are written as they're filtered, so nothing is copied.
+ */
+public class SquigglyJsonNodeSerializer extends StdSerializer<JsonNode> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final JsonSerializer<Object> delegate;
+
+    @SuppressWarnings("unchecked")
+    public SquigglyJsonNodeSerializer(JsonSerializer<?> delegate) {
+        super(JsonNode.class);
+        this.delegate = (JsonSerializer<Object>) delegate;
+    }
+
+    @Override
+    public void serialize(JsonNode value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        FilterProvider filterProvider = provider.getFilterProvider();
+        PropertyFilter filter = (filterProvider == null) ? null : filterProvider.findPropertyFilter(SquigglyPropertyFilter.FILTER_ID, value);
+
+        if (!(filter instanceof SquigglyPropertyFilter)) {
+            delegate.serialize(value, gen, provider);
+            return;
+        }
+
+        SquigglyPropertyFilter squigglyFilter = (SquigglyPropertyFilter) filter;
+        SquigglyFilterPlan.State state = squigglyFilter.getValueState(gen, squigglyFilter.getSession(provider), value.getClass());
+
+        if (state == null || state.isIncludeAll()) {
+            delegate.serialize(value, gen, provider);
+            return;
+        }
+
+        SquigglyTreeFilter.write(value, state, gen, provider);
+    }
+
+    @Override
+    public void serializeWithType(JsonNode value, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+        delegate.serializeWithType(value, gen, provider, typeSer);
+    }
+
+    @Override
+    public boolean isEmpty(SerializerProvider provider, JsonNode value) {
+        return delegate.isEmpty(provider, value);
+    }
+}
@@ -6,29 +6,33 @@ import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
 import com.fasterxml.jackson.databind.ser.PropertyWriter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
-import com.github.bohnman.squiggly.bean.BeanInfo;
+import com.fasterxml.jackson.databind.ser.std.MapProperty;
 import com.github.bohnman.squiggly.bean.BeanInfoIntrospector;
+import com.github.bohnman.squiggly.cache.ReconfigurableCache;
 import com.github.bohnman.squiggly.config.SquigglyConfig;
+import com.github.bohnman.squiggly.config.SquigglySettings;
 import com.github.bohnman.squiggly.context.SquigglyContext;
 import com.github.bohnman.squiggly.context.provider.SquigglyContextProvider;
+import com.github.bohnman.squiggly.jfr.SquigglyEvents;
+import com.github.bohnman.squiggly.metric.HeavyHitterTracker;
+import com.github.bohnman.squiggly.metric.HotPathMetrics;
+import com.github.bohnman.squiggly.metric.source.CompositeSquigglyMetricsSource;
 import com.github.bohnman.squiggly.metric.source.GuavaCacheSquigglyMetricsSource;
+import com.github.bohnman.squiggly.metric.source.HeavyHitterSquigglyMetricsSource;
 import com.github.bohnman.squiggly.metric.source.SquigglyMetricsSource;
-import com.github.bohnman.squiggly.name.AnyDeepName;
-import com.github.bohnman.squiggly.name.ExactName;
 import com.github.bohnman.squiggly.parser.SquigglyNode;
-import com.github.bohnman.squiggly.view.PropertyView;
 import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.collect.Sets;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.MapMaker;
 import net.jcip.annotations.ThreadSafe;
-import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * A Jackson @{@link com.fasterxml.jackson.databind.ser.PropertyFilter} that filters objects using squiggly syntax.
@@ -72,19 +76,45 @@ public class SquigglyPropertyFilter extends SimpleBeanPropertyFilter {
     public static final String FILTER_ID = "squigglyFilter";
 
     /**
-     * Cache that stores previous evalulated matches.
+     * Plan caches of all filter instances, used for reporting metrics.
      */
-    private static final Cache<Pair<Path, String>, Boolean> MATCH_CACHE;
-    private static final SquigglyMetricsSource METRICS_SOURCE;
-    private static final List<SquigglyNode> BASE_VIEW_NODES = Collections.singletonList(new SquigglyNode(new ExactName(PropertyView.BASE_VIEW), Collections.<SquigglyNode>emptyList(), false, true, false));
+    private static final Set<Cache> PLAN_CACHES = Collections.newSetFromMap(new MapMaker().weakKeys().<Cache, Boolean>makeMap());
 
-    static {
-        MATCH_CACHE = CacheBuilder.from(SquigglyConfig.getFilterPathCacheSpec()).build();
-        METRICS_SOURCE = new GuavaCacheSquigglyMetricsSource("squiggly.filter.pathCache.", MATCH_CACHE);
-    }
+    /**
+     * The most used filter expressions and root classes of all filter instances.
+     */
+    private static final HeavyHitterTracker HEAVY_HITTERS = new HeavyHitterTracker(SquigglyConfig.getMetricsHeavyHittersSize(),
+            1024, SquigglyConfig.getMetricsHeavyHittersWindowSeconds(), TimeUnit.SECONDS);
+
+    private static final SquigglyMetricsSource METRICS_SOURCE = new CompositeSquigglyMetricsSource(
+            new GuavaCacheSquigglyMetricsSource("squiggly.filter.planCache.", PLAN_CACHES),
+            new HeavyHitterSquigglyMetricsSource("squiggly.filter.heavyHitters.", HEAVY_HITTERS));
+
+    /**
+     * Plans grow as their states are materialized, so they are weighed by their nodes with room to spare.
+     */
+    private static final Weigher<List<SquigglyNode>, SquigglyFilterPlan> PLAN_WEIGHER = new Weigher<List<SquigglyNode>, SquigglyFilterPlan>() {
+        @Override
+        public int weigh(List<SquigglyNode> nodes, SquigglyFilterPlan plan) {
+            int size = 512;
+
+            for (SquigglyNode node : nodes) {
+                size += 3 * node.getEstimatedSize();
+            }
+
+            return size;
+        }
+    };
 
     private final BeanInfoIntrospector beanInfoIntrospector;
     private final SquigglyContextProvider contextProvider;
+    private final SquigglySettings settings;
+
+    /**
+     * Cache that stores compiled plans by parsed nodes, so that equivalent filter expressions share a plan.  The
+     * top-level bean class is handled by the plan's transitions, so no classes are held by the keys.
+     */
+    private final ReconfigurableCache<List<SquigglyNode>, SquigglyFilterPlan> planCache;
 
     /**
      * Construct with a specified context provider.
@@ -102,27 +132,22 @@ public class SquigglyPropertyFilter extends SimpleBeanPropertyFilter {
      * @param beanInfoIntrospector introspector
      */
     public SquigglyPropertyFilter(SquigglyContextProvider contextProvider, BeanInfoIntrospector beanInfoIntrospector) {
-        this.contextProvider = contextProvider;
-        this.beanInfoIntrospector = beanInfoIntrospector;
+        this(contextProvider, beanInfoIntrospector, beanInfoIntrospector.getSettings());
     }
 
-    // create a path structure representing the object graph
-    private Path getPath(PropertyWriter writer, JsonStreamContext sc) {
-        LinkedList<PathElement> elements = new LinkedList<>();
-
-        if (sc != null) {
-            elements.add(new PathElement(writer.getName(), sc.getCurrentValue()));
-            sc = sc.getParent();
-        }
-
-        while (sc != null) {
-            if (sc.getCurrentName() != null && sc.getCurrentValue() != null) {
-                elements.addFirst(new PathElement(sc.getCurrentName(), sc.getCurrentValue()));
-            }
-            sc = sc.getParent();
-        }
-
-        return new Path(elements);
+    /**
+     * Construct with a context provider, an introspector and settings.
+     *
+     * @param contextProvider      context provider
+     * @param beanInfoIntrospector introspector
+     * @param settings             settings
+     */
+    public SquigglyPropertyFilter(SquigglyContextProvider contextProvider, BeanInfoIntrospector beanInfoIntrospector, SquigglySettings settings) {
+        this.contextProvider = contextProvider;
+        this.beanInfoIntrospector = beanInfoIntrospector;
+        this.settings = checkNotNull(settings);
+        this.planCache = new ReconfigurableCache<>(settings.getFilterPlanCacheSpec(), settings.getCacheFactory(), PLAN_WEIGHER);
+        PLAN_CACHES.add(planCache);
     }
 
     private JsonStreamContext getStreamContext(JsonGenerator jgen) {
@@ -151,293 +176,246 @@ public class SquigglyPropertyFilter extends SimpleBeanPropertyFilter {
             return true;
         }
 
-        Path path = getPath(writer, streamContext);
-        SquigglyContext context = contextProvider.getContext(path.getFirst().getBeanClass());
-        String filter = context.getFilter();
-
-
-        if (AnyDeepName.ID.equals(filter)) {
-            return true;
-        }
-
-        if (path.isCachable()) {
-            // cache the match result using the path and filter expression
-            Pair<Path, String> pair = Pair.of(path, filter);
-            Boolean match = MATCH_CACHE.getIfPresent(pair);
-
-            if (match == null) {
-                match = pathMatches(path, context);
-            }
-
-            MATCH_CACHE.put(pair, match);
-            return match;
-        }
-
-        return pathMatches(path, context);
-    }
-
-    // perform the actual matching
-    private boolean pathMatches(Path path, SquigglyContext context) {
-        List<SquigglyNode> nodes = context.getNodes();
-        Set<String> viewStack = null;
-        SquigglyNode viewNode = null;
-
-        int pathSize = path.getElements().size();
-        int lastIdx = pathSize - 1;
-
-        for (int i = 0; i < pathSize; i++) {
-            PathElement element = path.getElements().get(i);
-
-            if (viewNode != null && !viewNode.isSquiggly()) {
-                Class beanClass = element.getBeanClass();
-
-                if (beanClass != null && !Map.class.isAssignableFrom(beanClass)) {
-                    Set<String> propertyNames = getPropertyNamesFromViewStack(element, viewStack);
-
-                    if (!propertyNames.contains(element.getName())) {
-                        return false;
-                    }
-                }
-
-            } else if (nodes.isEmpty()) {
-                return false;
-            } else {
-
-                SquigglyNode match = findBestSimpleNode(element, nodes);
-
-                if (match == null) {
-                    match = findBestViewNode(element, nodes);
-
-                    if (match != null) {
-                        viewNode = match;
-                        viewStack = addToViewStack(viewStack, viewNode);
-                    }
-                } else if (match.isAnyShallow()) {
-                    viewNode = match;
-                } else if (match.isAnyDeep()) {
-                    return true;
-                }
-
-                if (match == null) {
-                    if (isJsonUnwrapped(element)) {
-                        continue;
-                    }
-
-                    return false;
-                }
-
-                if (match.isNegated()) {
-                    return false;
-                }
-
-                nodes = match.getChildren();
-
-                if (i < lastIdx && nodes.isEmpty() && !match.isEmptyNested() && SquigglyConfig.isFilterImplicitlyIncludeBaseFields()) {
-                    nodes = BASE_VIEW_NODES;
-                }
-            }
+        if (getState(streamContext, null).transition(getBeanClass(streamContext), writer.getName()).isExcluded()) {
+            HotPathMetrics.recordExclude();
+            return false;
         }
 
+        HotPathMetrics.recordInclude();
         return true;
     }
 
-    private boolean isJsonUnwrapped(PathElement element) {
-        BeanInfo info = beanInfoIntrospector.introspect(element.getBeanClass());
-        return info.isUnwrapped(element.getName());
-    }
+    /*
+        Get the state that applies to the properties of the bean in the given stream context.  The state of the
+        parent is taken from the session when it was pushed by the enclosing property, otherwise it is computed from
+        the parent chain of the stream context.
+     */
+    private SquigglyFilterPlan.State getState(JsonStreamContext sc, SquigglyFilterSession session) {
+        JsonStreamContext parent = getNamedParent(sc);
 
-    private Set<String> getPropertyNamesFromViewStack(PathElement element, Set<String> viewStack) {
-        if (viewStack == null) {
-            return getPropertyNames(element, PropertyView.BASE_VIEW);
+        if (parent == null) {
+            Class beanClass = getBeanClass(sc);
+            SquigglyFilterPlan plan = (session == null) ? getPlan(contextProvider.getContext(beanClass)) : session.getPlan(beanClass);
+            return plan.getRootState();
         }
 
-        Set<String> propertyNames = Sets.newHashSet();
-
-        for (String viewName : viewStack) {
-            Set<String> names = getPropertyNames(element, viewName);
+        if (session != null) {
+            SquigglyFilterPlan.State state = session.find(parent);
 
-            if (names.isEmpty() && SquigglyConfig.isFilterImplicitlyIncludeBaseFields()) {
-                names = getPropertyNames(element, PropertyView.BASE_VIEW);
+            if (state != null) {
+                return state;
             }
-
-            propertyNames.addAll(names);
         }
 
-        return propertyNames;
+        return getState(parent, session).transition(getBeanClass(parent), parent.getCurrentName());
     }
 
-    private SquigglyNode findBestViewNode(PathElement element, List<SquigglyNode> nodes) {
-        if (Map.class.isAssignableFrom(element.getBeanClass())) {
-            for (SquigglyNode node : nodes) {
-                if (PropertyView.BASE_VIEW.equals(node.getName())) {
-                    return node;
-                }
-            }
-        } else {
-            for (SquigglyNode node : nodes) {
-                // handle view
-                Set<String> propertyNames = getPropertyNames(element, node.getName());
+    // find the closest ancestor that is currently writing a named property of a bean
+    private JsonStreamContext getNamedParent(JsonStreamContext sc) {
+        sc = sc.getParent();
 
-                if (propertyNames.contains(element.getName())) {
-                    return node;
-                }
+        while (sc != null) {
+            if (isNamed(sc)) {
+                return sc;
             }
+
+            sc = sc.getParent();
         }
 
         return null;
     }
 
-    private SquigglyNode findBestSimpleNode(PathElement element, List<SquigglyNode> nodes) {
-        SquigglyNode match = null;
-        int lastMatchStrength = -1;
+    private boolean isNamed(JsonStreamContext sc) {
+        return sc.getCurrentName() != null && sc.getCurrentValue() != null;
+    }
 
-        for (SquigglyNode node : nodes) {
-            int matchStrength = node.match(element.getName());
+    private Class getBeanClass(JsonStreamContext sc) {
+        Object bean = sc.getCurrentValue();
+        return bean == null ? null : bean.getClass();
+    }
 
-            if (matchStrength < 0) {
-                continue;
-            }
+    /**
+     * Get the compiled plan for the filter of a context, compiling and caching it if needed.
+     *
+     * @param context context
+     * @return plan
+     */
+    public SquigglyFilterPlan getPlan(SquigglyContext context) {
+        final List<SquigglyNode> nodes = context.getNodes();
 
-            if (lastMatchStrength < 0 || matchStrength >= lastMatchStrength) {
-                match = node;
-                lastMatchStrength = matchStrength;
+        return planCache.getUnchecked(nodes, new Callable<SquigglyFilterPlan>() {
+            @Override
+            public SquigglyFilterPlan call() {
+                return new SquigglyFilterPlan(nodes, beanInfoIntrospector, settings);
             }
+        });
+    }
 
-        }
+    /**
+     * Get the introspector used for view and unwrapped lookups.
+     *
+     * @return introspector
+     */
+    public BeanInfoIntrospector getBeanInfoIntrospector() {
+        return beanInfoIntrospector;
+    }
 
-        return match;
+    /**
+     * Get the settings of this filter.
+     *
+     * @return settings
+     */
+    public SquigglySettings getSettings() {
+        return settings;
     }
 
-    private Set<String> addToViewStack(Set<String> viewStack, SquigglyNode viewNode) {
-        if (!SquigglyConfig.isFilterPropagateViewToNestedFilters()) {
-            return null;
-        }
+    /**
+     * Get the cache of compiled plans, which can be resized while in use.
+     *
+     * @return plan cache
+     */
+    public ReconfigurableCache<List<SquigglyNode>, SquigglyFilterPlan> getPlanCache() {
+        return planCache;
+    }
 
-        if (viewStack == null) {
-            viewStack = Sets.newHashSet();
-        }
+    /**
+     * Get the provider of the contexts, which holds the filter expressions.
+     *
+     * @return context provider
+     */
+    public SquigglyContextProvider getContextProvider() {
+        return contextProvider;
+    }
 
-        viewStack.add(viewNode.getName());
+    /**
+     * Get the session of the serialization that the provider belongs to, creating it if needed.
+     * <p>
+     * A serialization can get its contexts from a provider of its own, rather than the filter's, by setting it as the
+     * {@link SquigglyContextProvider} class attribute, eg. with
+     * {@link com.fasterxml.jackson.databind.ObjectWriter#withAttribute(Object, Object)}.  This is how contexts that
+     * were resolved on one thread are used to serialize on another.
+     *
+     * @param provider the serializer provider of the current serialization
+     * @return session
+     */
+    public SquigglyFilterSession getSession(SerializerProvider provider) {
+        SquigglyFilterSession session = (SquigglyFilterSession) provider.getAttribute(this);
 
-        return viewStack;
-    }
+        if (session == null) {
+            SquigglyEvents.Serialization event = (SquigglyEvents.Serialization) provider.getAttribute(SquigglyEvents.Serialization.class);
+            SquigglyContextProvider sessionContextProvider = (SquigglyContextProvider) provider.getAttribute(SquigglyContextProvider.class);
 
-    private Set<String> getPropertyNames(PathElement element, String viewName) {
-        Class beanClass = element.getBeanClass();
+            if (sessionContextProvider == null) {
+                sessionContextProvider = contextProvider;
+            }
 
-        if (beanClass == null) {
-            return Collections.emptySet();
+            session = new SquigglyFilterSession(this, sessionContextProvider, sessionContextProvider.isFilteringEnabled(), event);
+            provider.setAttribute(this, session);
         }
 
-        return beanInfoIntrospector.introspect(beanClass).getPropertyNamesForView(viewName);
+        return session;
     }
 
     @Override
     public void serializeAsField(final Object pojo, final JsonGenerator jgen, final SerializerProvider provider,
                                  final PropertyWriter writer) throws Exception {
-        if (include(writer, jgen)) {
+        JsonStreamContext streamContext = getStreamContext(jgen);
+        SquigglyFilterSession session = getSession(provider);
+
+        if (streamContext == null || !session.isFilteringEnabled()) {
             contextProvider.serializeAsIncludedField(pojo, jgen, provider, writer);
-        } else if (!jgen.canOmitFields()) {
-            contextProvider.serializeAsExcludedField(pojo, jgen, provider, writer);
+            return;
         }
-    }
 
-    public static SquigglyMetricsSource getMetricsSource() {
-        return METRICS_SOURCE;
-    }
+        long start = session.startDecisions();
+        SquigglyFilterPlan.State state = getState(streamContext, session);
 
-    /*
-            Represents the path structuore in the object graph
-         */
-    private static class Path {
-
-        private final String id;
-        private final LinkedList<PathElement> elements;
-
-        public Path(LinkedList<PathElement> elements) {
-            StringBuilder idBuilder = new StringBuilder();
-
-            for (int i = 0; i < elements.size(); i++) {
-                PathElement element = elements.get(i);
+        if (writer instanceof MapProperty) {
+            state = state.transitionKey(writer.getName());
+        } else {
+            state = state.transition(getBeanClass(streamContext), writer.getName());
+        }
 
-                if (i > 0) {
-                    idBuilder.append('.');
-                }
+        if (state.isExcluded()) {
+            session.endDecisions(0, 1, start);
 
-                idBuilder.append(element.getName());
+            if (!jgen.canOmitFields()) {
+                contextProvider.serializeAsExcludedField(pojo, jgen, provider, writer);
             }
 
-            id = idBuilder.toString();
-            this.elements = elements;
+            return;
         }
 
-        public String getId() {
-            return id;
-        }
+        session.endDecisions(1, 0, start);
+        serializeIncludedField(pojo, jgen, provider, writer, state, session);
+    }
 
-        public List<PathElement> getElements() {
-            return elements;
-        }
+    /*
+        Get the state of the bean whose properties are about to be written, so that a serializer can decide
+        which properties to write up front.  Returns null if properties have to be passed through serializeAsField.
+     */
+    SquigglyFilterPlan.State getBeanState(JsonGenerator jgen, SquigglyFilterSession session) {
+        JsonStreamContext streamContext = getStreamContext(jgen);
 
-        public PathElement getFirst() {
-            return elements.getFirst();
+        if (streamContext == null || !jgen.canOmitFields() || !session.isFilteringEnabled()) {
+            return null;
         }
 
-        public PathElement getLast() {
-            return elements.getLast();
-        }
+        return getState(streamContext, session);
+    }
 
-        // we use the last element because that is where the json stream context started
-        public Class getBeanClass() {
-            return getLast().getBeanClass();
-        }
+    /*
+        Get the state that applies to a value that is about to be written, as opposed to the properties of the bean
+        being written, so that values which don't go through serializeAsField (eg. trees) can filter themselves.
+        Returns null if the value shouldn't be filtered.
+     */
+    SquigglyFilterPlan.State getValueState(JsonGenerator jgen, SquigglyFilterSession session, Class valueClass) {
+        JsonStreamContext streamContext = getStreamContext(jgen);
 
-        // maps aren't cachable
-        public boolean isCachable() {
-            Class beanClass = getBeanClass();
-            return beanClass != null && !Map.class.isAssignableFrom(beanClass);
+        if (streamContext == null || !session.isFilteringEnabled()) {
+            return null;
         }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
+        JsonStreamContext named = isNamed(streamContext) ? streamContext : getNamedParent(streamContext);
 
-            Path path = (Path) o;
-            Class beanClass = getBeanClass();
-            Class oBeanClass = path.getBeanClass();
+        if (named == null) {
+            return session.getPlan(valueClass).getRootState();
+        }
 
-            if (!id.equals(path.id)) return false;
-            if (beanClass != null ? !beanClass.equals(oBeanClass) : oBeanClass != null) return false;
+        SquigglyFilterPlan.State state = session.find(named);
 
-            return true;
+        if (state != null) {
+            return state;
         }
 
-        @Override
-        public int hashCode() {
-            int result = id.hashCode();
-            Class beanClass = getBeanClass();
-            result = 31 * result + (beanClass != null ? beanClass.hashCode() : 0);
-            return result;
-        }
+        return getState(named, session).transition(getBeanClass(named), named.getCurrentName());
     }
 
-    // represent a specific point in the path.
-    private static class PathElement {
-        private final String name;
-        private final Class bean;
+    // write a property that is known to be included, where state is the result of its transition
+    void serializeIncludedField(Object pojo, JsonGenerator jgen, SerializerProvider provider, PropertyWriter writer,
+                                SquigglyFilterPlan.State state, SquigglyFilterSession session) throws Exception {
+        JsonStreamContext streamContext = getStreamContext(jgen);
 
-        public PathElement(String name, Object bean) {
-            this.name = name;
-            this.bean = bean.getClass();
-        }
+        // nested beans written by this property continue from the new state
+        session.push(streamContext, writer.getName(), streamContext.getCurrentValue(), state);
 
-        public String getName() {
-            return name;
+        try {
+            contextProvider.serializeAsIncludedField(pojo, jgen, provider, writer);
+        } finally {
+            session.pop();
         }
+    }
 
-        public Class getBeanClass() {
-            return bean;
-        }
+    public static SquigglyMetricsSource getMetricsSource() {
+        return METRICS_SOURCE;
+    }
+
+    /**
+     * Get the tracker of the most used filter expressions and root classes, eg. to reset it.
+     *
+     * @return tracker
+     */
+    public static HeavyHitterTracker getHeavyHitterTracker() {
+        return HEAVY_HITTERS;
     }
 }
@@ -0,0 +1,94 @@
+package com.github.bohnman.squiggly.filter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
+import com.fasterxml.jackson.databind.ser.SerializerFactory;
+import com.github.bohnman.squiggly.jfr.SquigglyEvents;
+
+import java.io.IOException;
+
+/**
+ * A serializer provider that records a {@link SquigglyEvents.Serialization flight recorder event} for each value
+ * written, so that the filter decisions of a serialization can be tied to the request that made it.
+ * <p>
+ * When the event isn't enabled, values are serialized exactly as by Jackson's default provider.
+ */
+public class SquigglySerializerProvider extends DefaultSerializerProvider {
+
+    private static final long serialVersionUID = 1L;
+
+    public SquigglySerializerProvider() {
+    }
+
+    protected SquigglySerializerProvider(SquigglySerializerProvider src) {
+        super(src);
+    }
+
+    protected SquigglySerializerProvider(SerializerProvider src, SerializationConfig config, SerializerFactory factory) {
+        super(src, config, factory);
+    }
+
+    @Override
+    public DefaultSerializerProvider copy() {
+        return new SquigglySerializerProvider(this);
+    }
+
+    @Override
+    public SquigglySerializerProvider createInstance(SerializationConfig config, SerializerFactory factory) {
+        return new SquigglySerializerProvider(this, config, factory);
+    }
+
+    @Override
+    public void serializeValue(JsonGenerator gen, Object value) throws IOException {
+        SquigglyEvents.Serialization event = begin();
+
+        try {
+            super.serializeValue(gen, value);
+        } finally {
+            end(event);
+        }
+    }
+
+    @Override
+    public void serializeValue(JsonGenerator gen, Object value, JavaType rootType) throws IOException {
+        SquigglyEvents.Serialization event = begin();
+
+        try {
+            super.serializeValue(gen, value, rootType);
+        } finally {
+            end(event);
+        }
+    }
+
+    @Override
+    public void serializeValue(JsonGenerator gen, Object value, JavaType rootType, JsonSerializer<Object> ser) throws IOException {
+        SquigglyEvents.Serialization event = begin();
+
+        try {
+            super.serializeValue(gen, value, rootType, ser);
+        } finally {
+            end(event);
+        }
+    }
+
+    // the filter session picks the event up from the attribute when it's created
+    private SquigglyEvents.Serialization begin() {
+        SquigglyEvents.Serialization event = SquigglyEvents.beginSerialization();
+
+        if (event != null) {
+            setAttribute(SquigglyEvents.Serialization.class, event);
+        }
+
+        return event;
+    }
+
+    private void end(SquigglyEvents.Serialization event) {
+        if (event != null) {
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.bohnman.squiggly.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Creates the flight recorder events.  This is the only class that refers to {@code jdk.jfr}, and it is loaded
+ * reflectively by {@link SquigglyEvents}.
+ * <p>
+ * Whether an event type is enabled is checked on a shared instance first, so that nothing is allocated when it
+ * isn't.
+ */
+class JfrEventFactory implements SquigglyEventFactory {
+
+    private static final ParseEvent PARSE = new ParseEvent();
+    private static final IntrospectionEvent INTROSPECTION = new IntrospectionEvent();
+    private static final SerializationEvent SERIALIZATION = new SerializationEvent();
+
+    @Override
+    public SquigglyEvents.Parse beginParse() {
+        if (!PARSE.isEnabled()) {
+            return null;
+        }
+
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public SquigglyEvents.Introspection beginIntrospection() {
+        if (!INTROSPECTION.isEnabled()) {
+            return null;
+        }
+
+        IntrospectionEvent event = new IntrospectionEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public SquigglyEvents.Serialization beginSerialization() {
+        if (!SERIALIZATION.isEnabled()) {
+            return null;
+        }
+
+        SerializationEvent event = new SerializationEvent();
+        event.begin();
+        return event;
+    }
+
+    @Name("com.github.bohnman.squiggly.Parse")
+    @Label("Squiggly Parse")
+    @Category("Squiggly")
+    @Description("Parse of a filter expression that was not in the node cache")
+    static class ParseEvent extends Event implements SquigglyEvents.Parse {
+
+        @Label("Expression Length")
+        int expressionLength;
+
+        @Override
+        public void setExpressionLength(int expressionLength) {
+            this.expressionLength = expressionLength;
+        }
+    }
+
+    @Name("com.github.bohnman.squiggly.Introspection")
+    @Label("Squiggly Introspection")
+    @Category("Squiggly")
+    @Description("Introspection of the properties and views of a bean class")
+    static class IntrospectionEvent extends Event implements SquigglyEvents.Introspection {
+
+        @Label("Bean Class")
+        Class<?> beanClass;
+
+        @Override
+        public void setBeanClass(Class beanClass) {
+            this.beanClass = beanClass;
+        }
+    }
+
+    @Name("com.github.bohnman.squiggly.Serialization")
+    @Label("Squiggly Serialization")
+    @Category("Squiggly")
+    @Description("Filter decisions made while serializing a value")
+    static class SerializationEvent extends Event implements SquigglyEvents.Serialization {
+
+        @Label("Fields Included")
+        int fieldsIncluded;
+
+        @Label("Fields Excluded")
+        int fieldsExcluded;
+
+        @Label("Decision Time")
+        @Timespan
+        long decisionTime;
+
+        @Override
+        public void addDecisions(int included, int excluded, long decisionTime) {
+            this.fieldsIncluded += included;
+            this.fieldsExcluded += excluded;
+            this.decisionTime += decisionTime;
+        }
+    }
+}
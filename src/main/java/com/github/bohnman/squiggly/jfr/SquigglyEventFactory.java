@@ -0,0 +1,13 @@
+package com.github.bohnman.squiggly.jfr;
+
+/**
+ * Creates events that are enabled in the current recording.  Implementations return null for disabled events.
+ */
+interface SquigglyEventFactory {
+
+    SquigglyEvents.Parse beginParse();
+
+    SquigglyEvents.Introspection beginIntrospection();
+
+    SquigglyEvents.Serialization beginSerialization();
+}
@@ -0,0 +1,100 @@
+package com.github.bohnman.squiggly.jfr;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Java Flight Recorder events for the work Squiggly does while serving a request: parsing a filter that wasn't
+ * cached, introspecting a bean class and filtering the properties of a serialization.
+ * <p>
+ * The events themselves extend {@code jdk.jfr.Event}, so they are only loaded when the JVM has the JFR API (Java 11+
+ * and 8u262+).  On other JVMs everything here is a no-op.  The begin methods return null unless the event is enabled
+ * in a running recording, so callers only pay for a null check when nothing is being recorded.
+ */
+@ThreadSafe
+public final class SquigglyEvents {
+
+    private static final SquigglyEventFactory FACTORY = loadFactory();
+
+    private SquigglyEvents() {
+    }
+
+    /**
+     * Says whether the JVM supports flight recorder events.
+     *
+     * @return true if supported
+     */
+    public static boolean isAvailable() {
+        return FACTORY != null;
+    }
+
+    /**
+     * Start timing the parse of a filter expression.
+     *
+     * @return event, or null if disabled
+     */
+    public static Parse beginParse() {
+        return FACTORY == null ? null : FACTORY.beginParse();
+    }
+
+    /**
+     * Start timing the introspection of a bean class.
+     *
+     * @return event, or null if disabled
+     */
+    public static Introspection beginIntrospection() {
+        return FACTORY == null ? null : FACTORY.beginIntrospection();
+    }
+
+    /**
+     * Start a serialization, whose filter decisions are added to the event as they're made.
+     *
+     * @return event, or null if disabled
+     */
+    public static Serialization beginSerialization() {
+        return FACTORY == null ? null : FACTORY.beginSerialization();
+    }
+
+    private static SquigglyEventFactory loadFactory() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (SquigglyEventFactory) Class.forName("com.github.bohnman.squiggly.jfr.JfrEventFactory").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * A parse of a filter expression that missed the node cache.
+     */
+    public interface Parse {
+        void setExpressionLength(int expressionLength);
+
+        void commit();
+    }
+
+    /**
+     * An introspection of a bean class that missed the descriptor cache.
+     */
+    public interface Introspection {
+        void setBeanClass(Class beanClass);
+
+        void commit();
+    }
+
+    /**
+     * The filter decisions of a single serialization.
+     */
+    public interface Serialization {
+
+        /**
+         * Add decisions made for one or more properties.
+         *
+         * @param included     number of included properties
+         * @param excluded     number of excluded properties
+         * @param decisionTime time taken to decide, in nanoseconds
+         */
+        void addDecisions(int included, int excluded, long decisionTime);
+
+        void commit();
+    }
+}
@@ -0,0 +1,310 @@
+package com.github.bohnman.squiggly.metric;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Finds the filter expressions and root bean classes that are used the most, in constant memory no matter how many
+ * distinct filters are seen.
+ * <p>
+ * Every use is counted in a count-min sketch, which estimates how often a key has been seen (possibly too high, by
+ * a small fraction of all uses, but never too low).  Only the keys with the highest estimates are kept, along with the
+ * decision time spent on them since they were admitted.  A new key is admitted once its estimate beats the lowest
+ * kept one, which it then replaces.
+ * <p>
+ * Counts can be limited to a time window, after which they start over, or reset by hand.
+ */
+@ThreadSafe
+public class HeavyHitterTracker {
+
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final int DEPTH = SEEDS.length;
+
+    private final int capacity;
+    private final int widthMask;
+    private final AtomicLongArray counts;
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final long windowNanos;
+
+    // lowest estimate among the kept keys when there's no room left, so most keys are turned away without locking
+    private volatile long admissionThreshold;
+    private volatile long windowStart = System.nanoTime();
+
+    /**
+     * Construct a tracker.
+     *
+     * @param capacity number of keys to keep
+     * @param width    counters per row of the sketch, rounded up to a power of two
+     * @param window   how long counts last before they start over, or 0 to keep them until reset
+     * @param unit     unit of the window
+     */
+    public HeavyHitterTracker(int capacity, int width, long window, TimeUnit unit) {
+        checkArgument(capacity >= 0, "capacity must not be negative");
+        checkArgument(width > 0, "width must be positive");
+        checkArgument(window >= 0, "window must not be negative");
+        this.capacity = capacity;
+        this.widthMask = Integer.highestOneBit(Math.max(1, (width - 1) << 1)) - 1;
+        this.counts = new AtomicLongArray(DEPTH * (widthMask + 1));
+        this.windowNanos = unit.toNanos(window);
+    }
+
+    /**
+     * Count a use of a filter for a root bean class.
+     *
+     * @param filter    filter expression
+     * @param rootClass root bean class
+     * @return the kept entry, which decision time can be added to, or null if the key isn't a heavy hitter
+     */
+    public Entry record(String filter, Class rootClass) {
+        checkNotNull(filter);
+        checkNotNull(rootClass);
+
+        if (capacity == 0) {
+            return null;
+        }
+
+        rollWindow();
+
+        Key key = new Key(filter, rootClass.getName());
+        long estimate = increment(key);
+        Entry entry = entries.get(key);
+
+        if (entry != null || (entries.size() >= capacity && estimate <= admissionThreshold)) {
+            return entry;
+        }
+
+        return admit(key, estimate);
+    }
+
+    private synchronized Entry admit(Key key, long estimate) {
+        Entry entry = entries.get(key);
+
+        if (entry != null) {
+            return entry;
+        }
+
+        if (entries.size() >= capacity) {
+            Entry lowest = null;
+            long lowestEstimate = Long.MAX_VALUE;
+
+            // the kept set is small, and estimates only grow, so a scan is simpler than keeping a heap in order
+            for (Entry candidate : entries.values()) {
+                long candidateEstimate = estimate(candidate.key);
+
+                if (candidateEstimate < lowestEstimate) {
+                    lowest = candidate;
+                    lowestEstimate = candidateEstimate;
+                }
+            }
+
+            if (lowest == null || estimate <= lowestEstimate) {
+                admissionThreshold = lowestEstimate;
+                return null;
+            }
+
+            entries.remove(lowest.key);
+        }
+
+        entry = new Entry(key);
+        entries.put(key, entry);
+
+        if (entries.size() >= capacity) {
+            admissionThreshold = lowestEstimate();
+        }
+
+        return entry;
+    }
+
+    private long lowestEstimate() {
+        long lowest = Long.MAX_VALUE;
+
+        for (Entry entry : entries.values()) {
+            lowest = Math.min(lowest, estimate(entry.key));
+        }
+
+        return lowest;
+    }
+
+    private void rollWindow() {
+        if (windowNanos > 0 && System.nanoTime() - windowStart >= windowNanos) {
+            synchronized (this) {
+                if (System.nanoTime() - windowStart >= windowNanos) {
+                    reset();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the kept keys, most used first.
+     *
+     * @return heavy hitters
+     */
+    public List<HeavyHitter> getHeavyHitters() {
+        List<HeavyHitter> hitters = new ArrayList<>(entries.size());
+
+        for (Entry entry : entries.values()) {
+            hitters.add(new HeavyHitter(entry.key.filter, entry.key.rootClassName, estimate(entry.key), entry.decisionTime.get()));
+        }
+
+        Collections.sort(hitters, new Comparator<HeavyHitter>() {
+            @Override
+            public int compare(HeavyHitter o1, HeavyHitter o2) {
+                return Long.compare(o2.getCount(), o1.getCount());
+            }
+        });
+
+        return hitters;
+    }
+
+    /**
+     * Forget all counts and kept keys, starting a new window.
+     */
+    public synchronized void reset() {
+        entries.clear();
+
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+
+        admissionThreshold = 0;
+        windowStart = System.nanoTime();
+    }
+
+    private long increment(Key key) {
+        int hash = spread(key.hashCode());
+        long estimate = Long.MAX_VALUE;
+
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counts.incrementAndGet(indexOf(hash, row)));
+        }
+
+        return estimate;
+    }
+
+    private long estimate(Key key) {
+        int hash = spread(key.hashCode());
+        long estimate = Long.MAX_VALUE;
+
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counts.get(indexOf(hash, row)));
+        }
+
+        return estimate;
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return row * (widthMask + 1) + (((int) h) & widthMask);
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+
+    /**
+     * A kept key, which collects the decision time spent on it.
+     */
+    public static class Entry {
+        private final Key key;
+        private final AtomicLong decisionTime = new AtomicLong();
+
+        private Entry(Key key) {
+            this.key = key;
+        }
+
+        public void addDecisionTime(long nanos) {
+            decisionTime.addAndGet(nanos);
+        }
+    }
+
+    /**
+     * A snapshot of a heavy hitter.
+     */
+    public static class HeavyHitter {
+        private final String filter;
+        private final String rootClassName;
+        private final long count;
+        private final long decisionTime;
+
+        HeavyHitter(String filter, String rootClassName, long count, long decisionTime) {
+            this.filter = filter;
+            this.rootClassName = rootClassName;
+            this.count = count;
+            this.decisionTime = decisionTime;
+        }
+
+        public String getFilter() {
+            return filter;
+        }
+
+        public String getRootClassName() {
+            return rootClassName;
+        }
+
+        /**
+         * Get the estimated number of uses in the current window, which may be slightly too high.
+         *
+         * @return count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Get the estimated decision time in nanoseconds since the key was admitted.
+         *
+         * @return decision time
+         */
+        public long getDecisionTime() {
+            return decisionTime;
+        }
+    }
+
+    // class names rather than classes, so that kept keys don't pin class loaders
+    private static class Key {
+        private final String filter;
+        private final String rootClassName;
+        private final int hashCode;
+
+        Key(String filter, String rootClassName) {
+            this.filter = filter;
+            this.rootClassName = rootClassName;
+            this.hashCode = 31 * filter.hashCode() + rootClassName.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+            return hashCode == other.hashCode && filter.equals(other.filter) && rootClassName.equals(other.rootClassName);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.bohnman.squiggly.metric;
+
+import com.github.bohnman.squiggly.config.SquigglyConfig;
+import com.github.bohnman.squiggly.metric.source.SquigglyMetricsSource;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Counters and latency histograms for the code that runs on every serialization: filter decisions, parsing, matching
+ * property names against a filter and introspecting bean classes.
+ * <p>
+ * Decisions are always counted.  Timing a call costs two clock reads, so only one in every
+ * {@link SquigglyConfig#getMetricsSampleInterval() sample interval} calls is timed.
+ */
+@ThreadSafe
+public class HotPathMetrics {
+
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private static final StripedCounter INCLUDES = new StripedCounter();
+    private static final StripedCounter EXCLUDES = new StripedCounter();
+    private static final LatencyHistogram PARSE_TIME = new LatencyHistogram();
+    private static final LatencyHistogram MATCH_TIME = new LatencyHistogram();
+    private static final LatencyHistogram INTROSPECT_TIME = new LatencyHistogram();
+
+    private static volatile int sampleInterval = SquigglyConfig.getMetricsSampleInterval();
+
+    private static final SquigglyMetricsSource METRICS_SOURCE = new SquigglyMetricsSource() {
+        @Override
+        public void applyMetrics(Map<String, Object> map) {
+            long includes = INCLUDES.sum();
+            long excludes = EXCLUDES.sum();
+
+            map.put("squiggly.filter.decisionCount", includes + excludes);
+            map.put("squiggly.filter.includeCount", includes);
+            map.put("squiggly.filter.excludeCount", excludes);
+            MATCH_TIME.applyMetrics("squiggly.filter.matchTime.", map);
+            PARSE_TIME.applyMetrics("squiggly.parser.parseTime.", map);
+            INTROSPECT_TIME.applyMetrics("squiggly.property.introspectTime.", map);
+        }
+    };
+
+    private HotPathMetrics() {
+    }
+
+    public static void recordInclude() {
+        INCLUDES.increment();
+    }
+
+    public static void recordExclude() {
+        EXCLUDES.increment();
+    }
+
+    /**
+     * Record the decisions made for all the properties of a bean at once.
+     *
+     * @param includes number of included properties
+     * @param excludes number of excluded properties
+     */
+    public static void recordDecisions(int includes, int excludes) {
+        if (includes > 0) {
+            INCLUDES.add(includes);
+        }
+
+        if (excludes > 0) {
+            EXCLUDES.add(excludes);
+        }
+    }
+
+    /**
+     * Start timing a call if it's sampled.  The result is passed to one of the stop methods.
+     *
+     * @return start time
+     */
+    public static long startTimer() {
+        return isSampled() ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    /**
+     * Decide whether a call is one of the sampled ones, for callers that do their own timing.
+     *
+     * @return true if sampled
+     */
+    public static boolean isSampled() {
+        int interval = sampleInterval;
+        return interval > 0 && (interval == 1 || ThreadLocalRandom.current().nextInt(interval) == 0);
+    }
+
+    public static void stopParseTimer(long start) {
+        stop(PARSE_TIME, start);
+    }
+
+    public static void stopMatchTimer(long start) {
+        stop(MATCH_TIME, start);
+    }
+
+    public static void stopIntrospectTimer(long start) {
+        stop(INTROSPECT_TIME, start);
+    }
+
+    private static void stop(LatencyHistogram histogram, long start) {
+        if (start != NOT_SAMPLED) {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Get how many calls there are for every call that is timed.
+     *
+     * @return sample interval, where 0 means timing is off
+     */
+    public static int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Change how many calls there are for every call that is timed, while running.
+     *
+     * @param interval sample interval, where 1 times every call and 0 turns timing off
+     */
+    public static void setSampleInterval(int interval) {
+        checkArgument(interval >= 0, "sample interval must not be negative");
+        sampleInterval = interval;
+    }
+
+    /**
+     * Set all counters and histograms back to zero.
+     */
+    public static void reset() {
+        INCLUDES.reset();
+        EXCLUDES.reset();
+        PARSE_TIME.reset();
+        MATCH_TIME.reset();
+        INTROSPECT_TIME.reset();
+    }
+
+    public static SquigglyMetricsSource getMetricsSource() {
+        return METRICS_SOURCE;
+    }
+}
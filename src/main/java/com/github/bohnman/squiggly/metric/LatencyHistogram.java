@@ -0,0 +1,148 @@
+package com.github.bohnman.squiggly.metric;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in nanoseconds with log-linear buckets, in the style of HdrHistogram.
+ * <p>
+ * Values below 8 get a bucket each, and every power of two above that is split into 8 buckets, so any recorded value
+ * is reported within 12.5% of its actual value.  Recording is a few atomic adds and never allocates.
+ */
+@ThreadSafe
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalTime = new AtomicLong();
+    private final AtomicLong maxTime = new AtomicLong();
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        counts.incrementAndGet(indexOf(nanos));
+        totalTime.addAndGet(nanos);
+
+        long max = maxTime.get();
+
+        while (nanos > max && !maxTime.compareAndSet(max, nanos)) {
+            max = maxTime.get();
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+
+        return count;
+    }
+
+    public long getTotalTime() {
+        return totalTime.get();
+    }
+
+    public long getMaxTime() {
+        return maxTime.get();
+    }
+
+    /**
+     * Get the duration that the given fraction of recorded durations are at or below.
+     *
+     * @param quantile a fraction between 0 and 1
+     * @return duration in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getValueAtQuantile(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), getMaxTime());
+            }
+        }
+
+        return getMaxTime();
+    }
+
+    /**
+     * Add the count, total, mean, max and percentiles of this histogram to a metrics map.
+     *
+     * @param prefix metric name prefix
+     * @param map    the map to add the metrics to
+     */
+    public void applyMetrics(String prefix, Map<String, Object> map) {
+        long count = getCount();
+        long total = getTotalTime();
+
+        map.put(prefix + "count", count);
+        map.put(prefix + "totalTime", total);
+        map.put(prefix + "meanTime", count == 0 ? 0.0 : (double) total / count);
+        map.put(prefix + "maxTime", getMaxTime());
+        map.put(prefix + "p50", getValueAtQuantile(0.5));
+        map.put(prefix + "p90", getValueAtQuantile(0.9));
+        map.put(prefix + "p99", getValueAtQuantile(0.99));
+        map.put(prefix + "p999", getValueAtQuantile(0.999));
+    }
+
+    /**
+     * Forget all recorded durations.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+
+        totalTime.set(0);
+        maxTime.set(0);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -11,7 +11,8 @@ import net.jcip.annotations.ThreadSafe;
 import java.util.SortedMap;
 
 /**
- * Provides API for obtaining various metrics in the squiggly libraries, such as cache statistics.
+ * Provides API for obtaining various metrics in the squiggly libraries, such as cache statistics, filter decision
+ * counts and hot path latencies.
  */
 @ThreadSafe
 public class SquigglyMetrics {
@@ -22,7 +23,8 @@ public class SquigglyMetrics {
         METRICS_SOURCE = new CompositeSquigglyMetricsSource(
                 SquigglyParser.getMetricsSource(),
                 SquigglyPropertyFilter.getMetricsSource(),
-                BeanInfoIntrospector.getMetricsSource()
+                BeanInfoIntrospector.getMetricsSource(),
+                HotPathMetrics.getMetricsSource()
         );
     }
 
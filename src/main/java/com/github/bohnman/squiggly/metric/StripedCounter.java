@@ -0,0 +1,69 @@
+package com.github.bohnman.squiggly.metric;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that many threads can increment without contending on a single value.
+ * <p>
+ * Each thread adds to one of several cells, picked by its thread id, and the cells are summed when the count is read.
+ * The cells are spaced a cache line apart so that threads updating neighbouring cells don't slow each other down.
+ */
+@ThreadSafe
+public class StripedCounter {
+
+    // longs per cache line
+    private static final int PADDING = 8;
+    private static final int STRIPES = stripes();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        cells.getAndAdd(stripe() * PADDING, delta);
+    }
+
+    /**
+     * Get the current count.  Increments that happen while summing may or may not be included.
+     *
+     * @return count
+     */
+    public long sum() {
+        long sum = 0;
+
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Set the count back to zero.
+     */
+    public void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PADDING, 0);
+        }
+    }
+
+    private static int stripe() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9e3779b9;
+        return (hash >>> 16) & (STRIPES - 1);
+    }
+
+    private static int stripes() {
+        int stripes = 1;
+
+        while (stripes < 2 * Runtime.getRuntime().availableProcessors() && stripes < 64) {
+            stripes <<= 1;
+        }
+
+        return stripes;
+    }
+}
@@ -4,6 +4,7 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheStats;
 import net.jcip.annotations.ThreadSafe;
 
+import java.util.Collections;
 import java.util.Map;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -15,18 +16,33 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class GuavaCacheSquigglyMetricsSource implements SquigglyMetricsSource {
 
     private final String prefix;
-    private final Cache cache;
+    private final Iterable<? extends Cache> caches;
 
     public GuavaCacheSquigglyMetricsSource(String prefix, Cache cache) {
+        this(prefix, Collections.singleton(checkNotNull(cache)));
+    }
+
+    /**
+     * Construct a source that reports the combined statistics of several caches.
+     *
+     * @param prefix metric name prefix
+     * @param caches caches to report on, which may change over time
+     */
+    public GuavaCacheSquigglyMetricsSource(String prefix, Iterable<? extends Cache> caches) {
         checkNotNull(prefix);
-        checkNotNull(cache);
+        checkNotNull(caches);
         this.prefix = prefix;
-        this.cache = cache;
+        this.caches = caches;
     }
 
     @Override
     public void applyMetrics(Map<String, Object> map) {
-        CacheStats stats = cache.stats();
+        CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+
+        for (Cache cache : caches) {
+            stats = stats.plus(cache.stats());
+        }
+
         map.put(prefix + "averageLoadPenalty", stats.averageLoadPenalty());
         map.put(prefix + "evictionCount", stats.evictionCount());
         map.put(prefix + "hitCount", stats.hitCount());
@@ -0,0 +1,41 @@
+package com.github.bohnman.squiggly.metric.source;
+
+import com.github.bohnman.squiggly.metric.HeavyHitterTracker;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A source that provides the most used filter expressions from a {@link HeavyHitterTracker}.  Each one is reported
+ * under its rank, starting at 01 for the most used, so that they sort in order.
+ */
+@ThreadSafe
+public class HeavyHitterSquigglyMetricsSource implements SquigglyMetricsSource {
+
+    private final String prefix;
+    private final HeavyHitterTracker tracker;
+
+    public HeavyHitterSquigglyMetricsSource(String prefix, HeavyHitterTracker tracker) {
+        this.prefix = checkNotNull(prefix);
+        this.tracker = checkNotNull(tracker);
+    }
+
+    @Override
+    public void applyMetrics(Map<String, Object> map) {
+        List<HeavyHitterTracker.HeavyHitter> hitters = tracker.getHeavyHitters();
+        String rankFormat = "%0" + Math.max(2, String.valueOf(hitters.size()).length()) + "d";
+
+        for (int i = 0; i < hitters.size(); i++) {
+            HeavyHitterTracker.HeavyHitter hitter = hitters.get(i);
+            String rankPrefix = prefix + String.format(rankFormat, i + 1) + ".";
+
+            map.put(rankPrefix + "filter", hitter.getFilter());
+            map.put(rankPrefix + "rootClass", hitter.getRootClassName());
+            map.put(rankPrefix + "count", hitter.getCount());
+            map.put(rankPrefix + "decisionTime", hitter.getDecisionTime());
+        }
+    }
+}
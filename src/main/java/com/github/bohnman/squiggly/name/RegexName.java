@@ -1,18 +1,43 @@
 package com.github.bohnman.squiggly.name;
 
+import com.github.bohnman.squiggly.config.SquigglyConfig;
+
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
+/**
+ * A name matched by a regular expression.
+ * <p>
+ * Results are memoized per name, since the same property names come up over and over.  The memo stops growing once
+ * it holds the configured number of names ({@link SquigglyConfig#getParserRegexMatchCacheMaxSize()} by default), after which unseen names are matched
+ * against the pattern every time.
+ */
 public class RegexName implements SquigglyName {
 
     private final String name;
     private final String rawName;
     private final Pattern pattern;
+    private final int maxMemoSize;
+    private final ConcurrentMap<String, Boolean> memo = new ConcurrentHashMap<>();
 
     public RegexName(String name, Set<String> flags) {
+        this(name, flags, SquigglyConfig.getParserRegexMatchCacheMaxSize());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param name        pattern
+     * @param flags       pattern flags
+     * @param maxMemoSize maximum number of names to remember the match result of
+     */
+    public RegexName(String name, Set<String> flags, int maxMemoSize) {
         this.name = name;
         this.rawName = name;
         this.pattern = buildPattern(name, flags);
+        this.maxMemoSize = maxMemoSize;
     }
 
     private Pattern buildPattern(String name, Set<String> flags) {
@@ -45,10 +70,45 @@ public class RegexName implements SquigglyName {
 
     @Override
     public int match(String name) {
-        if (pattern.matcher(name).matches()) {
-            return rawName.length() + 2;
+        Boolean matches = memo.get(name);
+
+        if (matches == null) {
+            matches = pattern.matcher(name).matches();
+
+            // the size check is racy, so the memo can overshoot by a few entries
+            if (memo.size() < maxMemoSize) {
+                memo.put(name, matches);
+            }
+        }
+
+        if (matches) {
+            return getMatchStrength();
         }
 
         return -1;
     }
+
+    /**
+     * Get the strength returned by every successful match.
+     *
+     * @return match strength
+     */
+    public int getMatchStrength() {
+        return rawName.length() + 2;
+    }
+
+    // the same pattern with different flags is a different name
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        RegexName that = (RegexName) o;
+        return name.equals(that.name) && pattern.flags() == that.pattern.flags();
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + pattern.flags();
+    }
 }
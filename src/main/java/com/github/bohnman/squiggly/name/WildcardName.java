@@ -2,25 +2,60 @@ package com.github.bohnman.squiggly.name;
 
 import org.apache.commons.lang3.StringUtils;
 
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * A name with '*' (any number of characters) and '?' (zero or one character) wildcards.
+ * <p>
+ * Rather than going through a regular expression, the wildcard is compiled into a matcher for its shape: a prefix,
+ * a suffix, a contained string, or a sequence of literal segments.  Only names containing '?' fall back to a
+ * general (backtracking) matcher.  None of the matchers allocate.
+ */
 public class WildcardName implements SquigglyName {
 
     private final String name;
     private final String rawName;
-    private final Pattern pattern;
+    private final int matchStrength;
+    private final GlobMatcher matcher;
 
     public WildcardName(String name) {
         this.name = name;
         this.rawName = StringUtils.remove(this.name, '*');
-        this.pattern = buildPattern();
+        this.matchStrength = rawName.length() + 2;
+        this.matcher = compile(name);
     }
 
-    private Pattern buildPattern() {
-        String[] search = {"*", "?"};
-        String[] replace = {".*", ".?"};
+    private static GlobMatcher compile(String glob) {
+        if (glob.indexOf('?') >= 0) {
+            return new BacktrackingMatcher(glob);
+        }
+
+        List<String> segments = new ArrayList<>();
+
+        for (String segment : StringUtils.splitPreserveAllTokens(glob, '*')) {
+            segments.add(segment);
+        }
+
+        // splitting "a*b" gives [a, b], "*b" gives [, b], "a*" gives [a, ], "*a*" gives [, a, ]
+        String first = segments.get(0);
+        String last = segments.get(segments.size() - 1);
 
-        return Pattern.compile("^" + StringUtils.replaceEach(name, search, replace) + "$");
+        if (segments.size() == 2) {
+            if (last.isEmpty()) {
+                return new PrefixMatcher(first);
+            }
+
+            if (first.isEmpty()) {
+                return new SuffixMatcher(last);
+            }
+        }
+
+        if (segments.size() == 3 && first.isEmpty() && last.isEmpty()) {
+            return new ContainsMatcher(segments.get(1));
+        }
+
+        return new SegmentsMatcher(segments.toArray(new String[segments.size()]));
     }
 
     @Override
@@ -35,10 +70,171 @@ public class WildcardName implements SquigglyName {
 
     @Override
     public int match(String name) {
-        if (pattern.matcher(name).matches()) {
-            return rawName.length() + 2;
+        if (matcher.matches(name)) {
+            return matchStrength;
         }
 
         return -1;
     }
+
+    /**
+     * Get the strength returned by every successful match.
+     *
+     * @return match strength
+     */
+    public int getMatchStrength() {
+        return matchStrength;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return name.equals(((WildcardName) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    private interface GlobMatcher {
+        boolean matches(String name);
+    }
+
+    // eg. eco*
+    private static class PrefixMatcher implements GlobMatcher {
+        private final String prefix;
+
+        PrefixMatcher(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean matches(String name) {
+            return name.startsWith(prefix);
+        }
+    }
+
+    // eg. *Time
+    private static class SuffixMatcher implements GlobMatcher {
+        private final String suffix;
+
+        SuffixMatcher(String suffix) {
+            this.suffix = suffix;
+        }
+
+        @Override
+        public boolean matches(String name) {
+            return name.endsWith(suffix);
+        }
+    }
+
+    // eg. *Weight*
+    private static class ContainsMatcher implements GlobMatcher {
+        private final String infix;
+
+        ContainsMatcher(String infix) {
+            this.infix = infix;
+        }
+
+        @Override
+        public boolean matches(String name) {
+            return name.contains(infix);
+        }
+    }
+
+    /*
+        Literal segments separated by '*', eg. a*b*c.  The first segment has to be a prefix and the last a suffix;
+        taking the leftmost occurrence of each segment in between is always safe since '*' can absorb the rest.
+     */
+    private static class SegmentsMatcher implements GlobMatcher {
+        private final String[] segments;
+        private final int minLength;
+
+        SegmentsMatcher(String[] segments) {
+            this.segments = segments;
+            int length = 0;
+
+            for (String segment : segments) {
+                length += segment.length();
+            }
+
+            this.minLength = length;
+        }
+
+        @Override
+        public boolean matches(String name) {
+            String first = segments[0];
+            String last = segments[segments.length - 1];
+
+            if (segments.length == 1) {
+                return name.equals(first);
+            }
+
+            if (name.length() < minLength || !name.startsWith(first) || !name.endsWith(last)) {
+                return false;
+            }
+
+            int from = first.length();
+            int to = name.length() - last.length();
+
+            for (int i = 1; i < segments.length - 1; i++) {
+                String segment = segments[i];
+                int index = name.indexOf(segment, from);
+
+                if (index < 0 || index + segment.length() > to) {
+                    return false;
+                }
+
+                from = index + segment.length();
+            }
+
+            return true;
+        }
+    }
+
+    // anything with '?', which matches zero or one character
+    private static class BacktrackingMatcher implements GlobMatcher {
+        private final String glob;
+
+        BacktrackingMatcher(String glob) {
+            this.glob = glob;
+        }
+
+        @Override
+        public boolean matches(String name) {
+            return matches(name, 0, 0);
+        }
+
+        private boolean matches(String name, int globIndex, int nameIndex) {
+            while (globIndex < glob.length()) {
+                char c = glob.charAt(globIndex);
+
+                if (c == '*') {
+                    for (int i = nameIndex; i <= name.length(); i++) {
+                        if (matches(name, globIndex + 1, i)) {
+                            return true;
+                        }
+                    }
+
+                    return false;
+                }
+
+                if (c == '?') {
+                    return matches(name, globIndex + 1, nameIndex)
+                            || (nameIndex < name.length() && matches(name, globIndex + 1, nameIndex + 1));
+                }
+
+                if (nameIndex >= name.length() || name.charAt(nameIndex) != c) {
+                    return false;
+                }
+
+                globIndex++;
+                nameIndex++;
+            }
+
+            return nameIndex == name.length();
+        }
+    }
 }
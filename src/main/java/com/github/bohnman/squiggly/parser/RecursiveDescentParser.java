@@ -0,0 +1,367 @@
+package com.github.bohnman.squiggly.parser;
+
+import com.github.bohnman.squiggly.name.AnyDeepName;
+import com.github.bohnman.squiggly.name.AnyShallowName;
+import com.github.bohnman.squiggly.name.ExactName;
+import com.github.bohnman.squiggly.name.RegexName;
+import com.github.bohnman.squiggly.name.SquigglyName;
+import com.github.bohnman.squiggly.name.WildcardName;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A hand-written parser for the SquigglyExpression.g4 grammar.
+ * <p>
+ * It accepts exactly the same expressions as the generated ANTLR parser, but without building a lexer, token stream
+ * and parse tree, and without ANTLR's shared DFA cache, which grows with every distinct filter.  The input is split
+ * into tokens the same way the ANTLR lexer does it, then parsed with one token of lookahead.
+ */
+class RecursiveDescentParser {
+
+    // token types, named after the grammar
+    private static final int EOF = 0;
+    private static final int IDENTIFIER = 1;
+    private static final int WILDCARD_SHALLOW = 2;
+    private static final int WILDCARD_DEEP = 3;
+    private static final int LBRACE = 4;
+    private static final int RBRACE = 5;
+    private static final int LSQUIGGLY = 6;
+    private static final int RSQUIGGLY = 7;
+    private static final int COMMA = 8;
+    private static final int DOT = 9;
+    private static final int DASH = 10;
+    private static final int PIPE = 11;
+    private static final int LPAREN = 12;
+    private static final int RPAREN = 13;
+    private static final int TILDE = 14;
+    private static final int SLASH = 15;
+    private static final int QUESTION = 16;
+    private static final int FLAG_I = 17;
+    private static final int REGEX_CHAR = 18;
+
+    private final String input;
+    private final int[] types;
+    private final int[] starts;
+    private final int tokenCount;
+    private final int regexMatchCacheMaxSize;
+    private int pos;
+
+    RecursiveDescentParser(String input, int regexMatchCacheMaxSize) {
+        this.input = input;
+        this.regexMatchCacheMaxSize = regexMatchCacheMaxSize;
+        this.types = new int[input.length() + 1];
+        this.starts = new int[input.length() + 2];
+        this.tokenCount = tokenize();
+    }
+
+    /*
+        Tokenizing follows the ANTLR lexer: the longest match wins, and on a tie the literal tokens of the parser
+        rules beat the named lexer rules.  That is why a lone "i" is the regex flag rather than an identifier.
+     */
+    private int tokenize() {
+        int count = 0;
+        int i = 0;
+        int length = input.length();
+
+        while (i < length) {
+            char c = input.charAt(i);
+            int start = i;
+            int type;
+
+            if (isFieldChar(c)) {
+                while (i < length && isFieldChar(input.charAt(i))) {
+                    i++;
+                }
+
+                type = (i - start == 1 && c == 'i') ? FLAG_I : IDENTIFIER;
+            } else if (c == '*' && i + 1 < length && input.charAt(i + 1) == '*') {
+                type = WILDCARD_DEEP;
+                i += 2;
+            } else {
+                type = getSingleCharType(c);
+                i++;
+            }
+
+            types[count] = type;
+            starts[count] = start;
+            count++;
+        }
+
+        types[count] = EOF;
+        starts[count] = length;
+        starts[count + 1] = length;
+
+        return count;
+    }
+
+    private static boolean isFieldChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '$' || c == '_';
+    }
+
+    private static int getSingleCharType(char c) {
+        switch (c) {
+            case '*':
+                return WILDCARD_SHALLOW;
+            case '[':
+                return LBRACE;
+            case ']':
+                return RBRACE;
+            case '{':
+                return LSQUIGGLY;
+            case '}':
+                return RSQUIGGLY;
+            case ',':
+                return COMMA;
+            case '.':
+                return DOT;
+            case '-':
+                return DASH;
+            case '|':
+                return PIPE;
+            case '(':
+                return LPAREN;
+            case ')':
+                return RPAREN;
+            case '~':
+                return TILDE;
+            case '/':
+                return SLASH;
+            case '?':
+                return QUESTION;
+            default:
+                return REGEX_CHAR;
+        }
+    }
+
+    List<SquigglyParser.Expression> parse() {
+        List<SquigglyParser.Expression> expressions = parseExpressionList();
+        expect(EOF);
+        return expressions;
+    }
+
+    private int peek() {
+        return types[pos];
+    }
+
+    private String text(int fromToken, int toToken) {
+        return input.substring(starts[fromToken], starts[toToken]);
+    }
+
+    private void expect(int type) {
+        if (peek() != type) {
+            throw error();
+        }
+
+        pos++;
+    }
+
+    private SquigglyParseException error() {
+        String found = peek() == EOF ? "<EOF>" : "'" + text(pos, pos + 1) + "'";
+        return new SquigglyParseException("line 1:" + starts[pos] + " unexpected " + found + " in " + input);
+    }
+
+    // expression_list : expression (',' expression)*
+    private List<SquigglyParser.Expression> parseExpressionList() {
+        List<SquigglyParser.Expression> expressions = new ArrayList<>();
+        expressions.add(parseExpression());
+
+        while (peek() == COMMA) {
+            pos++;
+            expressions.add(parseExpression());
+        }
+
+        return expressions;
+    }
+
+    private SquigglyParser.Expression parseExpression() {
+        SquigglyParser.Expression expression = new SquigglyParser.Expression();
+
+        switch (peek()) {
+            case DASH:
+                // negated_expression : '-' field | '-' dot_path
+                pos++;
+                expression.negated = true;
+                parseFieldOrDotPath(expression);
+                return expression;
+            case WILDCARD_DEEP:
+                // deep
+                pos++;
+                expression.names = Collections.singletonList((SquigglyName) AnyDeepName.get());
+                return expression;
+            case LPAREN:
+                // field_list (nested_expression | empty_nested_expression), with the parenthesized form of field_list
+                pos++;
+                expression.names = new ArrayList<>();
+                expression.names.add(parseField());
+
+                while (peek() == COMMA || peek() == PIPE) {
+                    pos++;
+                    expression.names.add(parseField());
+                }
+
+                expect(RPAREN);
+
+                if (!parseNested(expression)) {
+                    throw error();
+                }
+
+                return expression;
+            default:
+                // field, dot_path, or either followed by a nested expression
+                parseFieldOrDotPath(expression);
+                parseNested(expression);
+                return expression;
+        }
+    }
+
+    // field | dot_path, where dot_path : field ('.' field)+
+    private void parseFieldOrDotPath(SquigglyParser.Expression expression) {
+        SquigglyName name = parseField();
+
+        if (peek() == DOT) {
+            expression.dotPath = new ArrayList<>();
+
+            while (peek() == DOT) {
+                pos++;
+                expression.dotPath.add(name);
+                name = parseField();
+            }
+        }
+
+        expression.names = Collections.singletonList(name);
+    }
+
+    // nested_expression | empty_nested_expression, returning false if neither is next
+    private boolean parseNested(SquigglyParser.Expression expression) {
+        int close;
+
+        if (peek() == LSQUIGGLY) {
+            close = RSQUIGGLY;
+        } else if (peek() == LBRACE) {
+            close = RBRACE;
+        } else {
+            return false;
+        }
+
+        pos++;
+
+        if (peek() == close) {
+            pos++;
+            expression.emptyNested = true;
+            return true;
+        }
+
+        expression.nested = parseExpressionList();
+        expect(close);
+        return true;
+    }
+
+    // field : exact_field | regex_field | wildcard_shallow_field | wildcard_field
+    private SquigglyName parseField() {
+        int type = peek();
+
+        if (type == TILDE || type == SLASH) {
+            return parseRegexField(type);
+        }
+
+        if (type != IDENTIFIER && type != WILDCARD_SHALLOW && type != QUESTION) {
+            throw error();
+        }
+
+        /*
+            Exact and wildcard fields are alternating runs of exact_field and single wildcard characters:
+            exact_field : IDENTIFIER ('-' | IDENTIFIER)*
+         */
+        int start = pos;
+        boolean exact = false;
+        boolean wildcard = false;
+        boolean lastWasWildcard = false;
+
+        while (true) {
+            type = peek();
+
+            if (type == IDENTIFIER) {
+                pos++;
+
+                while (peek() == DASH || peek() == IDENTIFIER) {
+                    pos++;
+                }
+
+                exact = true;
+                lastWasWildcard = false;
+            } else if ((type == WILDCARD_SHALLOW || type == QUESTION) && !lastWasWildcard) {
+                pos++;
+                wildcard = true;
+                lastWasWildcard = true;
+            } else {
+                break;
+            }
+        }
+
+        if (!wildcard) {
+            return new ExactName(text(start, pos));
+        }
+
+        if (exact) {
+            return new WildcardName(text(start, pos));
+        }
+
+        // a lone wildcard character; only * can stand on its own
+        if (types[start] == WILDCARD_SHALLOW) {
+            return AnyShallowName.get();
+        }
+
+        pos = start;
+        throw error();
+    }
+
+    // regex_field : '~' regex_pattern '~' regex_flag* | '/' regex_pattern '/' regex_flag*
+    private SquigglyName parseRegexField(int delimiter) {
+        pos++;
+        int start = pos;
+
+        while (isRegexPatternToken(peek())) {
+            pos++;
+        }
+
+        if (pos == start) {
+            throw error();
+        }
+
+        String pattern = text(start, pos);
+        expect(delimiter);
+
+        Set<String> flags = new HashSet<>();
+
+        while (peek() == FLAG_I) {
+            pos++;
+            flags.add("i");
+        }
+
+        // an invalid pattern throws the same PatternSyntaxException as the ANTLR parser
+        return new RegexName(pattern, flags, regexMatchCacheMaxSize);
+    }
+
+    private static boolean isRegexPatternToken(int type) {
+        switch (type) {
+            case DOT:
+            case PIPE:
+            case COMMA:
+            case LSQUIGGLY:
+            case RSQUIGGLY:
+            case LBRACE:
+            case RBRACE:
+            case DASH:
+            case REGEX_CHAR:
+            case IDENTIFIER:
+            case WILDCARD_SHALLOW:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -2,7 +2,10 @@ package com.github.bohnman.squiggly.parser;
 
 import com.github.bohnman.squiggly.name.AnyDeepName;
 import com.github.bohnman.squiggly.name.AnyShallowName;
+import com.github.bohnman.squiggly.name.ExactName;
+import com.github.bohnman.squiggly.name.RegexName;
 import com.github.bohnman.squiggly.name.SquigglyName;
+import com.github.bohnman.squiggly.name.WildcardName;
 import com.google.common.collect.ImmutableList;
 import net.jcip.annotations.ThreadSafe;
 
@@ -10,6 +13,8 @@ import java.util.List;
 
 /**
  * A squiggly node represents a component of a filter expression.
+ * <p>
+ * Nodes are compared structurally: two nodes are equal when they have equal names, flags and children.
  */
 @ThreadSafe
 public class SquigglyNode {
@@ -19,6 +24,10 @@ public class SquigglyNode {
     private final boolean squiggly;
     private final boolean negated;
     private final boolean emptyNested;
+    private final int matchStrength;
+    private final SquigglyNodeIndex childIndex;
+    private final int hashCode;
+    private final int estimatedSize;
 
     /**
      * Constructor.
@@ -36,6 +45,59 @@ public class SquigglyNode {
         this.children = ImmutableList.copyOf(children);
         this.squiggly = squiggly;
         this.emptyNested = emptyNested;
+        this.matchStrength = getMatchStrength(name);
+        this.childIndex = this.children.isEmpty() ? SquigglyNodeIndex.empty() : new SquigglyNodeIndex(this.children);
+        this.hashCode = computeHashCode();
+        this.estimatedSize = estimateSize();
+    }
+
+    // the node, its name, child list and child index, plus the children
+    private int estimateSize() {
+        int size = 160 + 2 * name.getName().length() + 48 * children.size();
+
+        for (SquigglyNode child : children) {
+            size += child.estimatedSize;
+        }
+
+        return size;
+    }
+
+    /**
+     * Get a rough estimate of the number of bytes retained by the node and its descendants, for weighing caches.
+     *
+     * @return estimated size in bytes
+     */
+    public int getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    private int computeHashCode() {
+        int result = name.hashCode();
+        result = 31 * result + children.hashCode();
+        result = 31 * result + (squiggly ? 1 : 0);
+        result = 31 * result + (negated ? 1 : 0);
+        result = 31 * result + (emptyNested ? 1 : 0);
+        return result;
+    }
+
+    private static int getMatchStrength(SquigglyName name) {
+        if (name instanceof ExactName) {
+            return Integer.MAX_VALUE;
+        }
+
+        if (name instanceof WildcardName) {
+            return ((WildcardName) name).getMatchStrength();
+        }
+
+        if (name instanceof RegexName) {
+            return ((RegexName) name).getMatchStrength();
+        }
+
+        if (name instanceof AnyShallowName || name instanceof AnyDeepName) {
+            return name.match("");
+        }
+
+        return -1;
     }
 
     /**
@@ -48,6 +110,15 @@ public class SquigglyNode {
         return name.match(otherName);
     }
 
+    /**
+     * Get the strength that every successful {@link #match(String)} returns.
+     *
+     * @return match strength, or -1 if it depends on the name being matched
+     */
+    public int getMatchStrength() {
+        return matchStrength;
+    }
+
     /**
      * Get the name of the node.
      *
@@ -66,6 +137,15 @@ public class SquigglyNode {
         return children;
     }
 
+    /**
+     * Get an index for finding the child that best matches a property name.
+     *
+     * @return child index
+     */
+    public SquigglyNodeIndex getChildIndex() {
+        return childIndex;
+    }
+
     /**
      * A node is considered squiggly if it is comes right before a nested expression.
      * <p>For example, given the filter expression:</p>
@@ -78,6 +158,15 @@ public class SquigglyNode {
         return squiggly;
     }
 
+    /**
+     * Says whether this node only matches its own name (ie. it has no wildcards and isn't a regex).
+     *
+     * @return true if exact, false if not
+     */
+    public boolean isExact() {
+        return name instanceof ExactName;
+    }
+
     /**
      * Says whether this node is **
      *
@@ -113,4 +202,24 @@ public class SquigglyNode {
     public boolean isNegated() {
         return negated;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SquigglyNode that = (SquigglyNode) o;
+
+        if (hashCode != that.hashCode) return false;
+        if (squiggly != that.squiggly) return false;
+        if (negated != that.negated) return false;
+        if (emptyNested != that.emptyNested) return false;
+        if (!name.equals(that.name)) return false;
+        return children.equals(that.children);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
 }
@@ -0,0 +1,207 @@
+package com.github.bohnman.squiggly.parser;
+
+import com.github.bohnman.squiggly.view.PropertyView;
+import com.google.common.collect.ImmutableList;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index over a list of sibling nodes for finding the node that best matches a property name.
+ * <p>
+ * Exact names are looked up in a hash map.  Since an exact match is always the strongest, the remaining pattern
+ * nodes are only consulted when that misses.  They are sorted by match strength, so the first one that matches is
+ * the best.  The result is the same as matching every node in order and keeping the strongest, where the later node
+ * wins a tie.
+ */
+@ThreadSafe
+public class SquigglyNodeIndex {
+
+    private static final SquigglyNodeIndex EMPTY = new SquigglyNodeIndex(Collections.<SquigglyNode>emptyList());
+
+    private final List<SquigglyNode> nodes;
+    private final Map<String, SquigglyNode> exactNodes;
+    private final SquigglyNode[] patternNodes;
+    private final boolean patternsSorted;
+    private final SquigglyNode baseNode;
+    private final boolean anyDeep;
+    private final boolean anyShallow;
+
+    /**
+     * Constructor.
+     *
+     * @param nodes sibling nodes, in filter order
+     */
+    public SquigglyNodeIndex(List<SquigglyNode> nodes) {
+        this.nodes = ImmutableList.copyOf(nodes);
+
+        Map<String, SquigglyNode> exactNodes = new HashMap<>();
+        final List<SquigglyNode> patternNodes = new ArrayList<>();
+        boolean patternsSorted = true;
+        SquigglyNode baseNode = null;
+        boolean anyDeep = false;
+        boolean anyShallow = false;
+
+        for (SquigglyNode node : this.nodes) {
+            if (node.isExact()) {
+                // later nodes win ties
+                exactNodes.put(node.getName(), node);
+            } else {
+                patternNodes.add(node);
+                patternsSorted &= node.getMatchStrength() >= 0;
+            }
+
+            if (baseNode == null && PropertyView.BASE_VIEW.equals(node.getName())) {
+                baseNode = node;
+            }
+
+            anyDeep |= node.isAnyDeep();
+            anyShallow |= node.isAnyShallow();
+        }
+
+        if (patternsSorted) {
+            final Map<SquigglyNode, Integer> order = new IdentityHashMap<>();
+
+            for (SquigglyNode node : patternNodes) {
+                order.put(node, order.size());
+            }
+
+            // strongest first, and the later of two equally strong nodes first
+            Collections.sort(patternNodes, new Comparator<SquigglyNode>() {
+                @Override
+                public int compare(SquigglyNode o1, SquigglyNode o2) {
+                    int result = Integer.compare(o2.getMatchStrength(), o1.getMatchStrength());
+
+                    if (result == 0) {
+                        result = Integer.compare(order.get(o2), order.get(o1));
+                    }
+
+                    return result;
+                }
+            });
+        }
+
+        this.exactNodes = exactNodes;
+        this.patternNodes = patternNodes.toArray(new SquigglyNode[patternNodes.size()]);
+        this.patternsSorted = patternsSorted;
+        this.baseNode = baseNode;
+        this.anyDeep = anyDeep;
+        this.anyShallow = anyShallow;
+    }
+
+    /**
+     * Get an index over no nodes.
+     *
+     * @return empty index
+     */
+    public static SquigglyNodeIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Get the indexed nodes, in filter order.
+     *
+     * @return nodes
+     */
+    public List<SquigglyNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Says whether there are no nodes.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    /**
+     * Find the node that best matches a name.
+     *
+     * @param name property name
+     * @return best node or null if none match
+     */
+    public SquigglyNode findBestMatch(String name) {
+        if (patternsSorted) {
+            SquigglyNode match = exactNodes.get(name);
+
+            if (match != null) {
+                return match;
+            }
+        }
+
+        return findBestPatternMatch(name);
+    }
+
+    /**
+     * Find the wildcard, regex, * or ** node that best matches a name, for when it's already known that no exact
+     * name matches.
+     *
+     * @param name property name
+     * @return best node or null if none match
+     */
+    public SquigglyNode findBestPatternMatch(String name) {
+        if (!patternsSorted) {
+            return findBestMatchInOrder(name);
+        }
+
+        for (SquigglyNode node : patternNodes) {
+            if (node.match(name) >= 0) {
+                return node;
+            }
+        }
+
+        return null;
+    }
+
+    // used when the strength of a name isn't known up front
+    private SquigglyNode findBestMatchInOrder(String name) {
+        SquigglyNode match = null;
+        int lastMatchStrength = -1;
+
+        for (SquigglyNode node : nodes) {
+            int matchStrength = node.match(name);
+
+            if (matchStrength >= 0 && matchStrength >= lastMatchStrength) {
+                match = node;
+                lastMatchStrength = matchStrength;
+            }
+        }
+
+        return match;
+    }
+
+    /**
+     * Get the first node named after the base view.
+     *
+     * @return base node or null
+     */
+    public SquigglyNode getBaseNode() {
+        return baseNode;
+    }
+
+    /**
+     * Says whether one of the nodes is **
+     *
+     * @return true if any deep
+     */
+    public boolean hasAnyDeep() {
+        return anyDeep;
+    }
+
+    /**
+     * Says whether one of the nodes is *
+     *
+     * @return true if any shallow
+     */
+    public boolean hasAnyShallow() {
+        return anyShallow;
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.bohnman.squiggly.parser;
+
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+/**
+ * Thrown when a filter expression can't be parsed, by either parser implementation.  It extends the exception the
+ * ANTLR parser has always thrown, so existing handlers keep working.
+ */
+public class SquigglyParseException extends ParseCancellationException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SquigglyParseException(String message) {
+        super(message);
+    }
+
+    public SquigglyParseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,6 +1,10 @@
 package com.github.bohnman.squiggly.parser;
 
+import com.github.bohnman.squiggly.cache.ReconfigurableCache;
 import com.github.bohnman.squiggly.config.SquigglyConfig;
+import com.github.bohnman.squiggly.config.SquigglySettings;
+import com.github.bohnman.squiggly.jfr.SquigglyEvents;
+import com.github.bohnman.squiggly.metric.HotPathMetrics;
 import com.github.bohnman.squiggly.metric.source.GuavaCacheSquigglyMetricsSource;
 import com.github.bohnman.squiggly.metric.source.SquigglyMetricsSource;
 import com.github.bohnman.squiggly.name.*;
@@ -9,29 +13,84 @@ import com.github.bohnman.squiggly.parser.antlr4.SquigglyExpressionLexer;
 import com.github.bohnman.squiggly.parser.antlr4.SquigglyExpressionParser;
 import com.github.bohnman.squiggly.util.antlr4.ThrowingErrorListener;
 import com.github.bohnman.squiggly.view.PropertyView;
+import com.google.common.base.Throwables;
 import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import net.jcip.annotations.ThreadSafe;
 import org.antlr.v4.runtime.ANTLRInputStream;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * The parser takes a filter expression and compiles it to an Abstract Syntax Tree (AST).  In this parser's case, the
  * tree doesn't have a root node but rather just returns top level nodes.
+ * <p>
+ * Trees are canonical: siblings are put in a standard order wherever their order can't change the outcome of the
+ * filter, and structurally equal nodes are interned.  Equivalent filters, such as <code>id,name</code> and
+ * <code>name,id</code>, therefore compile to equal node lists that share the same node instances.
  */
 @ThreadSafe
 public class SquigglyParser {
 
-    // Caches parsed filter expressions
-    private static final Cache<String, List<SquigglyNode>> CACHE;
-    private static final SquigglyMetricsSource METRICS_SOURCE;
+    // Caches parsed filter expressions for all parsers with the default settings
+    private static final ReconfigurableCache<String, List<SquigglyNode>> DEFAULT_CACHE = newCache(SquigglySettings.defaults());
+
+    // Caches of all parsers, used for reporting metrics
+    private static final Set<Cache> CACHES = Collections.newSetFromMap(new MapMaker().weakKeys().<Cache, Boolean>makeMap());
+    private static final SquigglyMetricsSource METRICS_SOURCE = new GuavaCacheSquigglyMetricsSource("squiggly.parser.nodeCache.", CACHES);
+
+    // Shares structurally equal nodes between all parsed filters
+    private static final Interner<SquigglyNode> NODE_INTERNER = Interners.newWeakInterner();
 
     static {
-        CACHE = CacheBuilder.from(SquigglyConfig.getParserNodeCacheSpec()).build();
-        METRICS_SOURCE = new GuavaCacheSquigglyMetricsSource("squiggly.parser.nodeCache.", CACHE);
+        CACHES.add(DEFAULT_CACHE);
+    }
+
+    private final SquigglySettings settings;
+    private final ReconfigurableCache<String, List<SquigglyNode>> cache;
+
+    /**
+     * Construct a parser with the default settings.  All such parsers share one node cache.
+     */
+    public SquigglyParser() {
+        this.settings = SquigglySettings.defaults();
+        this.cache = DEFAULT_CACHE;
+    }
+
+    /**
+     * Construct a parser with its own settings and node cache.
+     *
+     * @param settings settings
+     */
+    public SquigglyParser(SquigglySettings settings) {
+        this.settings = checkNotNull(settings);
+        this.cache = newCache(settings);
+        CACHES.add(cache);
+    }
+
+    private static ReconfigurableCache<String, List<SquigglyNode>> newCache(SquigglySettings settings) {
+        return new ReconfigurableCache<>(settings.getParserNodeCacheSpec(), settings.getCacheFactory(), new Weigher<String, List<SquigglyNode>>() {
+            @Override
+            public int weigh(String filter, List<SquigglyNode> nodes) {
+                int size = 64 + 2 * filter.length() + 8 * nodes.size();
+
+                for (SquigglyNode node : nodes) {
+                    size += node.getEstimatedSize();
+                }
+
+                return size;
+            }
+        });
     }
 
     /**
@@ -47,84 +106,220 @@ public class SquigglyParser {
             return Collections.emptyList();
         }
 
-        // get it from the cache if we can
-        List<SquigglyNode> cachedNodes = CACHE.getIfPresent(filter);
+        final String expression = filter;
+        long start = HotPathMetrics.startTimer();
+
+        // concurrent requests for the same filter wait for one of them to compile it
+        try {
+            return cache.getUnchecked(expression, new Callable<List<SquigglyNode>>() {
+                @Override
+                public List<SquigglyNode> call() {
+                    SquigglyEvents.Parse event = SquigglyEvents.beginParse();
+
+                    try {
+                        return compile(expression);
+                    } finally {
+                        if (event != null) {
+                            event.setExpressionLength(expression.length());
+                            event.commit();
+                        }
+                    }
+                }
+            });
+        } catch (UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        } finally {
+            HotPathMetrics.stopParseTimer(start);
+        }
+    }
 
-        if (cachedNodes != null) {
-            return cachedNodes;
+    // parse without going through the cache
+    List<SquigglyNode> compile(String filter) {
+        if (SquigglyConfig.PARSER_IMPLEMENTATION_ANTLR.equals(settings.getParserImplementation())) {
+            return compileWithAntlr(filter);
         }
 
+        return compileWithRecursiveDescent(filter);
+    }
 
+    List<SquigglyNode> compileWithAntlr(String filter) {
         SquigglyExpressionLexer lexer = ThrowingErrorListener.overwrite(new SquigglyExpressionLexer(new ANTLRInputStream(filter)));
         SquigglyExpressionParser parser = ThrowingErrorListener.overwrite(new SquigglyExpressionParser(new CommonTokenStream(lexer)));
 
-        Visitor visitor = new Visitor();
-        List<SquigglyNode> nodes = Collections.unmodifiableList(visitor.visit(parser.parse()));
+        return build(new Visitor().visit(parser.parse()));
+    }
+
+    List<SquigglyNode> compileWithRecursiveDescent(String filter) {
+        return build(new RecursiveDescentParser(filter, settings.getParserRegexMatchCacheMaxSize()).parse());
+    }
+
+    /**
+     * Get the settings of this parser.
+     *
+     * @return settings
+     */
+    public SquigglySettings getSettings() {
+        return settings;
+    }
 
-        CACHE.put(filter, nodes);
-        return nodes;
+    /**
+     * Get the cache of parsed filter expressions, which can be resized while in use.
+     *
+     * @return node cache
+     */
+    public ReconfigurableCache<String, List<SquigglyNode>> getNodeCache() {
+        return cache;
     }
 
     public static SquigglyMetricsSource getMetricsSource() {
         return METRICS_SOURCE;
     }
 
-    private class Visitor extends SquigglyExpressionBaseVisitor<List<SquigglyNode>> {
+    private List<SquigglyNode> build(List<Expression> expressions) {
+        MutableNode root = new MutableNode(new ExactName("root")).dotPathed(true);
+        handleExpressionList(expressions, root);
+        MutableNode analyzedRoot = analyze(root);
+        return analyzedRoot.toSquigglyNode().getChildren();
+    }
+
+    private void handleExpressionList(List<Expression> expressions, MutableNode parent) {
+        for (Expression expression : expressions) {
+            handleExpression(expression, parent);
+        }
+    }
+
+    private void handleExpression(Expression expression, MutableNode parent) {
+        if (expression.negated) {
+            handleNegatedExpression(expression, parent);
+            return;
+        }
+
+        if (expression.dotPath != null) {
+            parent.squiggly = true;
+            for (SquigglyName name : expression.dotPath) {
+                parent = parent.addChild(new MutableNode(name).dotPathed(true));
+                parent.squiggly = true;
+            }
+        }
+
+        for (SquigglyName name : expression.names) {
+            MutableNode node = parent.addChild(new MutableNode(name));
+
+            if (expression.emptyNested) {
+                node.emptyNested = true;
+            } else if (expression.nested != null) {
+                node.squiggly = true;
+                handleExpressionList(expression.nested, node);
+            }
+        }
+    }
+
+    private void handleNegatedExpression(Expression expression, MutableNode parent) {
+        SquigglyName name = expression.names.get(0);
+
+        if (expression.dotPath == null) {
+            parent.addChild(new MutableNode(name).negated(true));
+            return;
+        }
+
+        List<SquigglyName> path = new ArrayList<>(expression.dotPath);
+        path.add(name);
+
+        for (SquigglyName pathName : path) {
+            parent.squiggly = true;
+
+            MutableNode mutableNode = new MutableNode(pathName);
+            mutableNode.negativeParent = true;
+
+            parent = parent.addChild(mutableNode.dotPathed(true));
+        }
+
+        parent.negated(true);
+        parent.negativeParent = false;
+    }
+
+    /*
+        A single parsed expression, before it is merged into the node tree.  Both parser implementations produce
+        these, so the tree is built the same way regardless of which one is used.
+     */
+    static class Expression {
+        // the leading fields of a dot path (eg. a and b in a.b.c), or null
+        List<SquigglyName> dotPath;
+        // the field(s) the expression applies to (eg. c in a.b.c, or a and b in (a,b){c})
+        List<SquigglyName> names;
+        List<Expression> nested;
+        boolean emptyNested;
+        boolean negated;
+    }
+
+    // turns the ANTLR parse tree into expressions
+    private class Visitor extends SquigglyExpressionBaseVisitor<List<Expression>> {
         @Override
-        public List<SquigglyNode> visitParse(SquigglyExpressionParser.ParseContext ctx) {
-            MutableNode root = new MutableNode(new ExactName("root")).dotPathed(true);
-            handleExpressionList(ctx.expression_list(), root);
-            MutableNode analyzedRoot = analyze(root);
-            return analyzedRoot.toSquigglyNode().getChildren();
+        public List<Expression> visitParse(SquigglyExpressionParser.ParseContext ctx) {
+            return handleExpressionList(ctx.expression_list());
         }
 
-        private void handleExpressionList(SquigglyExpressionParser.Expression_listContext ctx, MutableNode parent) {
-            List<SquigglyExpressionParser.ExpressionContext> expressions = ctx.expression();
+        private List<Expression> handleExpressionList(SquigglyExpressionParser.Expression_listContext ctx) {
+            List<SquigglyExpressionParser.ExpressionContext> expressionContexts = ctx.expression();
+            List<Expression> expressions = new ArrayList<>(expressionContexts.size());
 
-            for (SquigglyExpressionParser.ExpressionContext expressionContext : expressions) {
-                handleExpression(expressionContext, parent);
+            for (SquigglyExpressionParser.ExpressionContext expressionContext : expressionContexts) {
+                expressions.add(handleExpression(expressionContext));
             }
+
+            return expressions;
         }
 
-        private void handleExpression(SquigglyExpressionParser.ExpressionContext ctx, MutableNode parent) {
+        private Expression handleExpression(SquigglyExpressionParser.ExpressionContext ctx) {
+            Expression expression = new Expression();
 
             if (ctx.negated_expression() != null) {
-                handleNegatedExpression(ctx.negated_expression(), parent);
-            }
+                SquigglyExpressionParser.Negated_expressionContext negatedCtx = ctx.negated_expression();
+                expression.negated = true;
 
-            List<SquigglyName> names;
+                if (negatedCtx.field() != null) {
+                    expression.names = Collections.singletonList(createName(negatedCtx.field()));
+                } else {
+                    handleDotPath(negatedCtx.dot_path(), expression);
+                }
+
+                return expression;
+            }
 
             if (ctx.field() != null) {
-                names = Collections.singletonList(createName(ctx.field()));
+                expression.names = Collections.singletonList(createName(ctx.field()));
             } else if (ctx.dot_path() != null) {
-                parent.squiggly = true;
-                for (int i = 0; i < ctx.dot_path().field().size() - 1; i++) {
-                    parent = parent.addChild(new MutableNode(createName(ctx.dot_path().field(i))).dotPathed(true));
-                    parent.squiggly = true;
-                }
-                names = Collections.singletonList(createName(ctx.dot_path().field().get(ctx.dot_path().field().size() - 1)));
+                handleDotPath(ctx.dot_path(), expression);
             } else if (ctx.field_list() != null) {
-                names = new ArrayList<>(ctx.field_list().field().size());
+                expression.names = new ArrayList<>(ctx.field_list().field().size());
                 for (SquigglyExpressionParser.FieldContext fieldContext : ctx.field_list().field()) {
-                    names.add(createName(fieldContext));
+                    expression.names.add(createName(fieldContext));
                 }
             } else if (ctx.deep() != null) {
-                names = Collections.singletonList((SquigglyName) AnyDeepName.get());
+                expression.names = Collections.singletonList((SquigglyName) AnyDeepName.get());
             } else {
-                names = Collections.emptyList();
+                expression.names = Collections.emptyList();
             }
 
+            if (ctx.empty_nested_expression() != null) {
+                expression.emptyNested = true;
+            } else if (ctx.nested_expression() != null) {
+                expression.nested = handleExpressionList(ctx.nested_expression().expression_list());
+            }
 
-            for (SquigglyName name : names) {
-                MutableNode node = parent.addChild(new MutableNode(name));
+            return expression;
+        }
 
-                if (ctx.empty_nested_expression() != null) {
-                    node.emptyNested = true;
-                } else if (ctx.nested_expression() != null) {
-                    node.squiggly = true;
-                    handleExpressionList(ctx.nested_expression().expression_list(), node);
-                }
+        private void handleDotPath(SquigglyExpressionParser.Dot_pathContext ctx, Expression expression) {
+            List<SquigglyExpressionParser.FieldContext> fields = ctx.field();
+            expression.dotPath = new ArrayList<>(fields.size() - 1);
+
+            for (int i = 0; i < fields.size() - 1; i++) {
+                expression.dotPath.add(createName(fields.get(i)));
             }
+
+            expression.names = Collections.singletonList(createName(fields.get(fields.size() - 1)));
         }
 
         private SquigglyName createName(SquigglyExpressionParser.FieldContext ctx) {
@@ -142,7 +337,7 @@ public class SquigglyParser {
                     regexFlags.add(regex_flagContext.getText());
                 }
 
-                name = new RegexName(regexPattern, regexFlags);
+                name = new RegexName(regexPattern, regexFlags, settings.getParserRegexMatchCacheMaxSize());
             } else if (ctx.wildcard_shallow_field() != null) {
                 name = AnyShallowName.get();
             } else {
@@ -151,27 +346,6 @@ public class SquigglyParser {
 
             return name;
         }
-
-
-        private void handleNegatedExpression(SquigglyExpressionParser.Negated_expressionContext ctx, MutableNode parent) {
-            if (ctx.field() != null) {
-                parent.addChild(new MutableNode(createName(ctx.field())).negated(true));
-            } else if (ctx.dot_path() != null) {
-                for (int i = 0; i < ctx.dot_path().field().size(); i++) {
-                    SquigglyExpressionParser.FieldContext fieldContext = ctx.dot_path().field(i);
-                    parent.squiggly = true;
-
-                    MutableNode mutableNode = new MutableNode(createName(fieldContext));
-                    mutableNode.negativeParent = true;
-
-                    parent = parent.addChild(mutableNode.dotPathed(true));
-                }
-
-                parent.negated(true);
-                parent.negativeParent = false;
-            }
-        }
-
     }
 
     private MutableNode analyze(MutableNode node) {
@@ -238,9 +412,10 @@ public class SquigglyParser {
                     childNodes.add(child.toSquigglyNode());
                 }
 
+                childNodes = canonicalize(childNodes);
             }
 
-            return newSquigglyNode(name, childNodes);
+            return NODE_INTERNER.intern(newSquigglyNode(name, childNodes));
         }
 
         private SquigglyNode newSquigglyNode(SquigglyName name, List<SquigglyNode> childNodes) {
@@ -294,6 +469,72 @@ public class SquigglyParser {
         }
     }
 
+    /*
+        Sort siblings by name, but only within runs of neighbours that can trade places without changing a decision.
+        Matching never depends on the order of an exact name, or of patterns with different strengths, but the
+        later of two equally strong patterns wins.  Views are resolved by the first node that names a view of the
+        property, so neighbours also have to resolve to the same state when matched as a view.
+     */
+    private List<SquigglyNode> canonicalize(List<SquigglyNode> nodes) {
+        if (nodes.size() < 2) {
+            return nodes;
+        }
+
+        ImmutableList.Builder<SquigglyNode> builder = ImmutableList.builder();
+        List<SquigglyNode> run = new ArrayList<>();
+        Set<Integer> runStrengths = new HashSet<>();
+
+        for (SquigglyNode node : nodes) {
+            if (!run.isEmpty() && !canJoinRun(run, runStrengths, node)) {
+                addSortedRun(builder, run);
+                runStrengths.clear();
+            }
+
+            run.add(node);
+
+            if (!node.isExact()) {
+                runStrengths.add(node.getMatchStrength());
+            }
+        }
+
+        addSortedRun(builder, run);
+        return builder.build();
+    }
+
+    private boolean canJoinRun(List<SquigglyNode> run, Set<Integer> runStrengths, SquigglyNode node) {
+        SquigglyNode first = run.get(0);
+
+        if (first.getMatchStrength() < 0 || node.getMatchStrength() < 0) {
+            return false;
+        }
+
+        if (!node.isExact() && runStrengths.contains(node.getMatchStrength())) {
+            return false;
+        }
+
+        // a view node puts its name on the view stack when views propagate
+        if (settings.isFilterPropagateViewToNestedFilters()) {
+            return false;
+        }
+
+        return first.isNegated() == node.isNegated()
+                && first.isSquiggly() == node.isSquiggly()
+                && first.isEmptyNested() == node.isEmptyNested()
+                && first.getChildren().equals(node.getChildren());
+    }
+
+    private static void addSortedRun(ImmutableList.Builder<SquigglyNode> builder, List<SquigglyNode> run) {
+        Collections.sort(run, new Comparator<SquigglyNode>() {
+            @Override
+            public int compare(SquigglyNode o1, SquigglyNode o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+
+        builder.addAll(run);
+        run.clear();
+    }
+
     private ExactName newBaseViewName() {
         return new ExactName(PropertyView.BASE_VIEW);
     }
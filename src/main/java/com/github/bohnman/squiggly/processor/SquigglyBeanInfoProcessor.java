@@ -0,0 +1,460 @@
+package com.github.bohnman.squiggly.processor;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.github.bohnman.squiggly.bean.BeanInfoTable;
+import com.github.bohnman.squiggly.view.PropertyView;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a {@link BeanInfoTable} for every class whose properties carry @{@link PropertyView} (or an annotation
+ * annotated with it, like @BaseView and @FullView), @{@link JsonProperty} or @{@link JsonUnwrapped}.
+ * <p>
+ * The tables hold exactly what {@link com.github.bohnman.squiggly.bean.BeanInfoIntrospector} would find by
+ * reflection: properties are the public getters as java.beans sees them, and annotations are read from the getter,
+ * the setter and the field of the same name.  Classes without any of these annotations are left to reflection, which
+ * gives the same result for them.
+ * <p>
+ * The processor isn't registered as a service, so it only runs when asked for, eg. with javac's -processor option or
+ * the annotationProcessors setting of the maven compiler plugin.
+ */
+@SupportedAnnotationTypes("*")
+public class SquigglyBeanInfoProcessor extends AbstractProcessor {
+
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement type : findClasses(roundEnv.getRootElements())) {
+            String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+
+            if (!generated.add(binaryName)) {
+                continue;
+            }
+
+            List<Property> properties = findProperties(type);
+
+            if (isAnnotated(properties)) {
+                writeTable(type, binaryName + BeanInfoTable.CLASS_SUFFIX, properties);
+            }
+        }
+
+        // other processors may want the same elements
+        return false;
+    }
+
+    private List<TypeElement> findClasses(Set<? extends Element> elements) {
+        List<TypeElement> classes = new ArrayList<>();
+
+        for (TypeElement type : ElementFilter.typesIn(elements)) {
+            if (type.getKind() == ElementKind.CLASS) {
+                classes.add(type);
+            }
+
+            classes.addAll(findClasses(new LinkedHashSet<>(type.getEnclosedElements())));
+        }
+
+        return classes;
+    }
+
+    /*
+        Properties as java.beans.Introspector finds them: a public getX() with a return value, or a public isX()
+        returning a boolean, which wins over getX().  The setter is a public void setX() taking the getter's type, and
+        the field is looked up starting at the class that declares the getter, like FieldUtils.getField does.
+     */
+    private List<Property> findProperties(TypeElement type) {
+        Map<String, Property> properties = new LinkedHashMap<>();
+        List<ExecutableElement> methods = ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type));
+
+        for (ExecutableElement method : methods) {
+            String baseName = getReadMethodBaseName(method);
+
+            if (baseName == null) {
+                continue;
+            }
+
+            String name = decapitalize(baseName);
+            Property existing = properties.get(name);
+
+            if (existing != null && existing.readMethod.getSimpleName().toString().startsWith("is")) {
+                continue;
+            }
+
+            properties.put(name, new Property(name, method, findWriteMethod(methods, baseName, method.getReturnType()), findField((TypeElement) method.getEnclosingElement(), name)));
+        }
+
+        return new ArrayList<>(properties.values());
+    }
+
+    private String getReadMethodBaseName(ExecutableElement method) {
+        if (!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers().contains(Modifier.STATIC) || !method.getParameters().isEmpty()) {
+            return null;
+        }
+
+        String name = method.getSimpleName().toString();
+        TypeKind returnKind = method.getReturnType().getKind();
+
+        if (name.startsWith("get") && name.length() > 3 && returnKind != TypeKind.VOID) {
+            return name.substring(3);
+        }
+
+        if (name.startsWith("is") && name.length() > 2 && returnKind == TypeKind.BOOLEAN) {
+            return name.substring(2);
+        }
+
+        return null;
+    }
+
+    private ExecutableElement findWriteMethod(List<ExecutableElement> methods, String baseName, TypeMirror type) {
+        String name = "set" + baseName;
+
+        for (ExecutableElement method : methods) {
+            if (method.getSimpleName().contentEquals(name)
+                    && method.getModifiers().contains(Modifier.PUBLIC)
+                    && !method.getModifiers().contains(Modifier.STATIC)
+                    && method.getReturnType().getKind() == TypeKind.VOID
+                    && method.getParameters().size() == 1
+                    && isSameErasure(method.getParameters().get(0).asType(), type)) {
+                return method;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean isSameErasure(TypeMirror type1, TypeMirror type2) {
+        return processingEnv.getTypeUtils().isSameType(processingEnv.getTypeUtils().erasure(type1), processingEnv.getTypeUtils().erasure(type2));
+    }
+
+    private VariableElement findField(TypeElement type, String name) {
+        for (TypeElement current = type; current != null; current = getSuperclass(current)) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (field.getSimpleName().contentEquals(name)) {
+                    return field;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private TypeElement getSuperclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        return (TypeElement) ((DeclaredType) superclass).asElement();
+    }
+
+    // same as java.beans.Introspector.decapitalize
+    private static String decapitalize(String name) {
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+            return name;
+        }
+
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private boolean isAnnotated(List<Property> properties) {
+        for (Property property : properties) {
+            for (AnnotationMirror annotation : property.getAnnotations()) {
+                if (isType(annotation, JsonUnwrapped.class)
+                        || getPropertyName(annotation) != null
+                        || !getViews(annotation).isEmpty()) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    // the @JsonProperty value of the annotation, or of its type
+    private String getPropertyName(AnnotationMirror annotation) {
+        if (isType(annotation, JsonProperty.class)) {
+            return emptyToNull(getStringValue(annotation));
+        }
+
+        for (AnnotationMirror metaAnnotation : annotation.getAnnotationType().asElement().getAnnotationMirrors()) {
+            if (isType(metaAnnotation, JsonProperty.class)) {
+                String name = emptyToNull(getStringValue(metaAnnotation));
+
+                if (name != null) {
+                    return name;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    // the @PropertyView values of the annotation, and of its type
+    private Set<String> getViews(AnnotationMirror annotation) {
+        Set<String> views = new LinkedHashSet<>();
+
+        if (isType(annotation, PropertyView.class)) {
+            views.addAll(getStringValues(annotation));
+        }
+
+        for (AnnotationMirror metaAnnotation : annotation.getAnnotationType().asElement().getAnnotationMirrors()) {
+            if (isType(metaAnnotation, PropertyView.class)) {
+                views.addAll(getStringValues(metaAnnotation));
+            }
+        }
+
+        return views;
+    }
+
+    private static boolean isType(AnnotationMirror annotation, Class<?> annotationClass) {
+        return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationClass.getName());
+    }
+
+    private String getStringValue(AnnotationMirror annotation) {
+        AnnotationValue value = getValue(annotation);
+        return value == null ? null : (String) value.getValue();
+    }
+
+    private List<String> getStringValues(AnnotationMirror annotation) {
+        List<String> values = new ArrayList<>();
+        AnnotationValue value = getValue(annotation);
+
+        if (value != null) {
+            Object raw = value.getValue();
+
+            if (raw instanceof List) {
+                for (Object element : (List<?>) raw) {
+                    values.add((String) ((AnnotationValue) element).getValue());
+                }
+            } else {
+                values.add((String) raw);
+            }
+        }
+
+        return values;
+    }
+
+    private AnnotationValue getValue(AnnotationMirror annotation) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : processingEnv.getElementUtils().getElementValuesWithDefaults(annotation).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("value")) {
+                return entry.getValue();
+            }
+        }
+
+        return null;
+    }
+
+    private static String emptyToNull(String value) {
+        return (value == null || value.isEmpty()) ? null : value;
+    }
+
+    private void writeTable(TypeElement type, String tableName, List<Property> properties) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        String simpleName = packageName.isEmpty() ? tableName : tableName.substring(packageName.length() + 1);
+
+        List<String> names = new ArrayList<>();
+        List<String> readMethods = new ArrayList<>();
+        List<String> views = new ArrayList<>();
+        List<String> unwrapped = new ArrayList<>();
+
+        for (Property property : properties) {
+            String name = getPropertyName(property);
+            names.add(literal(name));
+
+            // getClass() is a property to java.beans but has no type as far as jackson is concerned
+            boolean isGetClass = property.readMethod.getSimpleName().contentEquals("getClass")
+                    && ((TypeElement) property.readMethod.getEnclosingElement()).getQualifiedName().contentEquals(Object.class.getName());
+            readMethods.add(isGetClass ? "null" : literal(property.readMethod.getSimpleName().toString()));
+
+            List<String> propertyViews = new ArrayList<>();
+            boolean isUnwrapped = false;
+
+            for (AnnotationMirror annotation : property.getAnnotations()) {
+                for (String view : getViews(annotation)) {
+                    propertyViews.add(literal(view));
+                }
+
+                isUnwrapped |= isType(annotation, JsonUnwrapped.class);
+            }
+
+            views.add("{" + join(propertyViews) + "}");
+
+            if (isUnwrapped) {
+                unwrapped.add(literal(name));
+            }
+        }
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(tableName, type);
+
+            try (Writer writer = file.openWriter()) {
+                if (!packageName.isEmpty()) {
+                    writer.write("package " + packageName + ";\n\n");
+                }
+
+                writer.write("/**\n * Generated by " + getClass().getName() + " from " + type.getQualifiedName() + ".  Do not edit.\n */\n");
+                writer.write("public final class " + simpleName + " implements " + BeanInfoTable.class.getName() + " {\n\n");
+                writer.write("    private static final String[] PROPERTY_NAMES = {" + join(names) + "};\n");
+                writer.write("    private static final String[] READ_METHOD_NAMES = {" + join(readMethods) + "};\n");
+                writer.write("    private static final String[][] PROPERTY_VIEWS = {" + join(views) + "};\n");
+                writer.write("    private static final String[] UNWRAPPED_PROPERTY_NAMES = {" + join(unwrapped) + "};\n\n");
+                writeGetter(writer, "String[]", "getPropertyNames", "PROPERTY_NAMES");
+                writeGetter(writer, "String[]", "getReadMethodNames", "READ_METHOD_NAMES");
+                writeGetter(writer, "String[][]", "getPropertyViews", "PROPERTY_VIEWS");
+                writeGetter(writer, "String[]", "getUnwrappedPropertyNames", "UNWRAPPED_PROPERTY_NAMES");
+                writer.write("}\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + tableName + ": " + e.getMessage(), type);
+        }
+    }
+
+    private static void writeGetter(Writer writer, String type, String name, String field) throws IOException {
+        writer.write("    @Override\n");
+        writer.write("    public " + type + " " + name + "() {\n");
+        writer.write("        return " + field + ";\n");
+        writer.write("    }\n\n");
+    }
+
+    // the first @JsonProperty name on the getter, the setter or the field, else the java.beans name
+    private String getPropertyName(Property property) {
+        for (Element element : property.getElements()) {
+            for (AnnotationMirror annotation : getRuntimeAnnotations(element)) {
+                String name = getPropertyName(annotation);
+
+                if (name != null) {
+                    return name;
+                }
+            }
+        }
+
+        return property.name;
+    }
+
+    // only annotations that reflection would see
+    private static List<AnnotationMirror> getRuntimeAnnotations(Element element) {
+        List<AnnotationMirror> annotations = new ArrayList<>();
+
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            Retention retention = annotation.getAnnotationType().asElement().getAnnotation(Retention.class);
+
+            if (retention != null && retention.value() == RetentionPolicy.RUNTIME) {
+                annotations.add(annotation);
+            }
+        }
+
+        return annotations;
+    }
+
+    private static String join(List<String> values) {
+        StringBuilder builder = new StringBuilder();
+
+        for (String value : values) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+
+            builder.append(value);
+        }
+
+        return builder.toString();
+    }
+
+    private static String literal(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                // a unicode escape of a line break would end the literal, since javac expands those first
+                builder.append(String.format("\\%03o", (int) c));
+            } else if (c > 0x7e) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+
+        return builder.append('"').toString();
+    }
+
+    private static class Property {
+        private final String name;
+        private final ExecutableElement readMethod;
+        private final ExecutableElement writeMethod;
+        private final VariableElement field;
+
+        Property(String name, ExecutableElement readMethod, ExecutableElement writeMethod, VariableElement field) {
+            this.name = name;
+            this.readMethod = readMethod;
+            this.writeMethod = writeMethod;
+            this.field = field;
+        }
+
+        // in the order reflection looks at them
+        List<Element> getElements() {
+            List<Element> elements = new ArrayList<>(3);
+            elements.add(readMethod);
+
+            if (writeMethod != null) {
+                elements.add(writeMethod);
+            }
+
+            if (field != null) {
+                elements.add(field);
+            }
+
+            return elements;
+        }
+
+        List<AnnotationMirror> getAnnotations() {
+            List<AnnotationMirror> annotations = new ArrayList<>();
+
+            for (Element element : getElements()) {
+                annotations.addAll(getRuntimeAnnotations(element));
+            }
+
+            return annotations;
+        }
+    }
+}
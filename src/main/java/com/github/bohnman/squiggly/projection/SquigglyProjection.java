@@ -0,0 +1,80 @@
+package com.github.bohnman.squiggly.projection;
+
+import com.github.bohnman.squiggly.bean.BeanInfoIntrospector;
+import com.github.bohnman.squiggly.context.LazySquigglyContext;
+import com.github.bohnman.squiggly.filter.SquigglyFilterPlan;
+import com.github.bohnman.squiggly.filter.SquigglyPropertyFilter;
+import com.github.bohnman.squiggly.parser.SquigglyParser;
+import net.jcip.annotations.ThreadSafe;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Resolves which properties of a class a filter expression asks for, without serializing anything.
+ * <p>
+ * This lets the data layer only load what will be written, eg. by building a JPA entity graph or a SQL column list
+ * from the projected tree.  The decisions are made by the same compiled plan the property filter uses, so views, the
+ * base view, negations and unwrapped properties are treated exactly as they are during serialization.
+ */
+@ThreadSafe
+public class SquigglyProjection {
+
+    private final SquigglyParser parser;
+    private final SquigglyPropertyFilter filter;
+
+    public SquigglyProjection() {
+        this(new SquigglyParser(), new BeanInfoIntrospector());
+    }
+
+    public SquigglyProjection(SquigglyParser parser, BeanInfoIntrospector beanInfoIntrospector) {
+        // the filter is never registered with a mapper, it only compiles and caches the plans
+        this(parser, new SquigglyPropertyFilter(null, beanInfoIntrospector));
+    }
+
+    /**
+     * Construct with the filter of a mapper, so that projections and serialization share the compiled plans.
+     *
+     * @param parser parser of the filter expressions
+     * @param filter filter whose introspector and plan cache are used
+     */
+    public SquigglyProjection(SquigglyParser parser, SquigglyPropertyFilter filter) {
+        this.parser = checkNotNull(parser);
+        this.filter = checkNotNull(filter);
+    }
+
+    /**
+     * Project a filter expression onto a class.  The compiled plan is cached by the filter.
+     *
+     * @param filter    the filter expression
+     * @param rootClass the class of the top-level object
+     * @return the root of the requested property tree
+     */
+    public SquigglyProjectionNode project(String filter, Class rootClass) {
+        return project(this.filter.getPlan(new LazySquigglyContext(rootClass, parser, filter)), rootClass);
+    }
+
+    /**
+     * Project an already compiled plan onto a class.  Resolving the tree memoizes the plan's transitions, so this
+     * can also be used to prepare a plan that will be used for serialization.
+     *
+     * @param plan      the compiled plan
+     * @param rootClass the class of the top-level object
+     * @return the root of the requested property tree
+     */
+    public SquigglyProjectionNode project(SquigglyFilterPlan plan, Class rootClass) {
+        return new SquigglyProjectionNode(filter.getBeanInfoIntrospector(), null, null, rootClass, plan.getRootState());
+    }
+
+    /**
+     * Says whether a filter expression requests a property path of a class.
+     *
+     * @param filter    the filter expression
+     * @param rootClass the class of the top-level object
+     * @param path      dot separated property path, eg. assignee.firstName
+     * @return true if requested
+     * @see SquigglyProjectionNode#isRequested(String)
+     */
+    public boolean isRequested(String filter, Class rootClass, String path) {
+        return project(filter, rootClass).isRequested(path);
+    }
+}
@@ -0,0 +1,274 @@
+package com.github.bohnman.squiggly.projection;
+
+import com.github.bohnman.squiggly.bean.BeanInfo;
+import com.github.bohnman.squiggly.bean.BeanInfoIntrospector;
+import com.github.bohnman.squiggly.filter.SquigglyFilterPlan;
+import com.google.common.base.Splitter;
+import com.google.common.reflect.TypeToken;
+import net.jcip.annotations.ThreadSafe;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A requested property in a projection.
+ * <p>
+ * Children are resolved lazily, the first time they are asked for, so recursive object graphs can be projected.  Use
+ * {@link #isRecursive()} to find out where a branch starts repeating one of its ancestors.
+ */
+@ThreadSafe
+public class SquigglyProjectionNode {
+
+    private static final Splitter PATH_SPLITTER = Splitter.on('.');
+
+    private final BeanInfoIntrospector beanInfoIntrospector;
+    private final SquigglyProjectionNode parent;
+    private final String name;
+    private final String path;
+    private final Type type;
+    private final Class valueClass;
+    private final Type mapValueType;
+    private final SquigglyFilterPlan.State state;
+    private final boolean recursive;
+    private volatile Map<String, SquigglyProjectionNode> children;
+
+    SquigglyProjectionNode(BeanInfoIntrospector beanInfoIntrospector, SquigglyProjectionNode parent, String name, Type type, SquigglyFilterPlan.State state) {
+        this.beanInfoIntrospector = beanInfoIntrospector;
+        this.parent = parent;
+        this.name = name;
+        this.path = (parent == null || parent.parent == null) ? name : parent.path + "." + name;
+        this.type = type;
+        this.state = state;
+
+        // collections and arrays are filtered element by element, so it's the element type that matters
+        TypeToken<?> token = TypeToken.of(type);
+
+        while (true) {
+            if (token.isArray()) {
+                token = token.getComponentType();
+            } else if (Iterable.class.isAssignableFrom(token.getRawType())) {
+                token = token.resolveType(Iterable.class.getTypeParameters()[0]);
+            } else {
+                break;
+            }
+        }
+
+        this.valueClass = token.getRawType();
+        this.mapValueType = Map.class.isAssignableFrom(valueClass) ? token.resolveType(Map.class.getTypeParameters()[1]).getType() : null;
+        this.recursive = isRepeatOfAncestor();
+    }
+
+    private boolean isRepeatOfAncestor() {
+        for (SquigglyProjectionNode ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            if (ancestor.state == state && ancestor.valueClass == valueClass) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the property name.
+     *
+     * @return name, or null for the root
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the dot separated path of the property from the root.
+     *
+     * @return path, or null for the root
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Get the node of the owning property.
+     *
+     * @return parent, or null for the root
+     */
+    public SquigglyProjectionNode getParent() {
+        return parent;
+    }
+
+    /**
+     * Get the declared type of the property.
+     *
+     * @return type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Get the class whose properties are projected.  For collections and arrays this is the element class.
+     *
+     * @return value class
+     */
+    public Class getValueClass() {
+        return valueClass;
+    }
+
+    /**
+     * Says whether the value is a map, whose keys can only be looked up by {@link #getChild(String)}.
+     *
+     * @return true if a map
+     */
+    public boolean isMap() {
+        return mapValueType != null;
+    }
+
+    /**
+     * Says whether everything beneath this property is requested (eg. **).
+     *
+     * @return true if everything is included
+     */
+    public boolean isIncludeAll() {
+        return state.isIncludeAll();
+    }
+
+    /**
+     * Says whether this property projects the same class in the same way as one of its ancestors, meaning its
+     * children repeat those of the ancestor.  Consumers building fetch plans will usually stop here.
+     *
+     * @return true if recursive
+     */
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    /**
+     * Get the requested properties of the value, in the order the introspector reports them.  Properties of
+     * unwrapped values appear as properties of this node, as they do in the output.
+     *
+     * @return children
+     */
+    public Map<String, SquigglyProjectionNode> getChildren() {
+        Map<String, SquigglyProjectionNode> result = children;
+
+        if (result == null) {
+            result = new LinkedHashMap<>();
+
+            if (!isMap()) {
+                addChildren(result, valueClass);
+            }
+
+            result = Collections.unmodifiableMap(result);
+            children = result;
+        }
+
+        return result;
+    }
+
+    private void addChildren(Map<String, SquigglyProjectionNode> result, Class beanClass) {
+        if (!isBean(beanClass)) {
+            return;
+        }
+
+        BeanInfo beanInfo = beanInfoIntrospector.introspect(beanClass);
+        TypeToken<?> beanType = TypeToken.of((Type) beanClass);
+
+        for (Map.Entry<String, Type> entry : beanInfo.getPropertyTypes().entrySet()) {
+            String propertyName = entry.getKey();
+            SquigglyFilterPlan.State nextState = state.transition(beanClass, propertyName);
+
+            if (nextState.isExcluded()) {
+                continue;
+            }
+
+            Type propertyType = beanType.resolveType(entry.getValue()).getType();
+
+            if (beanInfo.isUnwrapped(propertyName)) {
+                // unwrapped properties are written as if they belonged to this bean
+                addChildren(result, TypeToken.of(propertyType).getRawType());
+            } else {
+                result.put(propertyName, new SquigglyProjectionNode(beanInfoIntrospector, this, propertyName, propertyType, nextState));
+            }
+        }
+    }
+
+    // only look inside classes that jackson serializes as beans
+    private static boolean isBean(Class beanClass) {
+        if (beanClass.isPrimitive() || beanClass.isArray() || beanClass.isEnum()) {
+            return false;
+        }
+
+        String className = beanClass.getName();
+        return !className.startsWith("java.") && !className.startsWith("javax.");
+    }
+
+    /**
+     * Get a requested property of the value.  For maps this resolves the key against the filter.
+     *
+     * @param name property name or map key
+     * @return child, or null if not requested
+     */
+    public SquigglyProjectionNode getChild(String name) {
+        if (!isMap()) {
+            return getChildren().get(name);
+        }
+
+        SquigglyFilterPlan.State nextState = state.transitionKey(name);
+
+        if (nextState.isExcluded()) {
+            return null;
+        }
+
+        return new SquigglyProjectionNode(beanInfoIntrospector, this, name, mapValueType, nextState);
+    }
+
+    /**
+     * Says whether a property path beneath this node is requested.
+     *
+     * @param path dot separated property path, eg. assignee.firstName
+     * @return true if requested
+     */
+    public boolean isRequested(String path) {
+        SquigglyProjectionNode node = this;
+
+        for (String segment : PATH_SPLITTER.split(path)) {
+            node = node.getChild(segment);
+
+            if (node == null) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the paths of all requested properties beneath this node, depth first.  Recursive branches are listed but
+     * not descended into, and map keys are not listed since they are only known at runtime.
+     *
+     * @return paths
+     */
+    public List<String> getPaths() {
+        List<String> paths = new ArrayList<>();
+        addPaths(paths);
+        return paths;
+    }
+
+    private void addPaths(List<String> paths) {
+        for (SquigglyProjectionNode child : getChildren().values()) {
+            paths.add(child.path);
+
+            if (!child.recursive) {
+                child.addPaths(paths);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path == null ? "<root>" : path;
+    }
+}
@@ -0,0 +1,261 @@
+package com.github.bohnman.squiggly.stream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.github.bohnman.squiggly.bean.BeanInfoIntrospector;
+import com.github.bohnman.squiggly.filter.SquigglyFilterPlan;
+import com.github.bohnman.squiggly.metric.HotPathMetrics;
+import com.github.bohnman.squiggly.parser.SquigglyNode;
+import com.github.bohnman.squiggly.parser.SquigglyParser;
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Filters JSON that has already been serialized, eg. payloads from a cache or an upstream service, by copying tokens
+ * from a {@link JsonParser} to a {@link JsonGenerator}.  Nothing is bound to objects or trees: excluded values are
+ * skipped with {@link JsonParser#skipChildren()} and values whose whole subtree is included are copied as they are.
+ * <p>
+ * There are no bean classes in raw JSON, so every object is filtered the way Squiggly filters a {@link java.util.Map}.
+ * Views therefore resolve to the base view, which includes all fields of an object.  Arrays are transparent: their
+ * elements are filtered with the state of the property that holds them, and a top-level array is filtered as a list
+ * of top-level objects.
+ */
+@ThreadSafe
+public class SquigglyStreamFilter {
+
+    private final SquigglyFilterPlan plan;
+    private final JsonFactory jsonFactory;
+
+    /**
+     * Construct from a filter expression.
+     *
+     * @param filter filter expression
+     */
+    public SquigglyStreamFilter(String filter) {
+        this(new SquigglyParser().parse(filter));
+    }
+
+    /**
+     * Construct from parsed nodes.
+     *
+     * @param nodes parsed nodes of the filter expression
+     */
+    public SquigglyStreamFilter(List<SquigglyNode> nodes) {
+        this(new SquigglyFilterPlan(nodes, new BeanInfoIntrospector()), new JsonFactory());
+    }
+
+    /**
+     * Construct from a compiled plan and the factory used by the batch methods.
+     *
+     * @param plan        compiled plan
+     * @param jsonFactory factory of parsers and generators
+     */
+    public SquigglyStreamFilter(SquigglyFilterPlan plan, JsonFactory jsonFactory) {
+        this.plan = checkNotNull(plan);
+        this.jsonFactory = checkNotNull(jsonFactory);
+    }
+
+    /**
+     * Filter the next value of a parser, which may be a scalar, an object or an array, into a generator.  The parser
+     * is left on the last token of the value.
+     *
+     * @param parser    parser positioned on, or just before, the value
+     * @param generator generator to write to
+     * @return false if the parser has no more values
+     * @throws IOException if reading or writing fails
+     */
+    public boolean filter(JsonParser parser, JsonGenerator generator) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+
+        if (token == null) {
+            token = parser.nextToken();
+
+            if (token == null) {
+                return false;
+            }
+        }
+
+        SquigglyFilterPlan.State root = plan.getRootState();
+
+        if (root.isIncludeAll() || token.isScalarValue()) {
+            generator.copyCurrentStructure(parser);
+            return true;
+        }
+
+        // states of the enclosing objects and arrays, where an array holds the state of its elements
+        SquigglyFilterPlan.State[] stack = new SquigglyFilterPlan.State[16];
+        int depth = 0;
+        int included = 0;
+        int excluded = 0;
+        SquigglyFilterPlan.State state = root;
+
+        while (true) {
+            switch (token) {
+                case FIELD_NAME:
+                    String name = parser.getCurrentName();
+                    SquigglyFilterPlan.State next = stack[depth - 1].transitionKey(name);
+                    parser.nextToken();
+
+                    if (next.isExcluded()) {
+                        excluded++;
+                        parser.skipChildren();
+                        break;
+                    }
+
+                    included++;
+                    generator.writeFieldName(name);
+
+                    if (next.isIncludeAll()) {
+                        generator.copyCurrentStructure(parser);
+                        break;
+                    }
+
+                    // let the value be handled below, in the state of its property
+                    state = next;
+                    token = parser.getCurrentToken();
+                    continue;
+                case START_OBJECT:
+                case START_ARRAY:
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+
+                    stack[depth++] = state;
+                    generator.copyCurrentEvent(parser);
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    stack[--depth] = null;
+                    generator.copyCurrentEvent(parser);
+
+                    if (depth > 0) {
+                        state = stack[depth - 1];
+                    }
+
+                    break;
+                default:
+                    generator.copyCurrentEvent(parser);
+                    break;
+            }
+
+            if (depth == 0) {
+                break;
+            }
+
+            token = parser.nextToken();
+
+            if (token == null) {
+                break;
+            }
+        }
+
+        HotPathMetrics.recordDecisions(included, excluded);
+        return true;
+    }
+
+    /**
+     * Filter a JSON document.  Concatenated top-level values are each filtered.
+     *
+     * @param json JSON document
+     * @return filtered JSON
+     * @throws IOException if the JSON is malformed
+     */
+    public byte[] filter(byte[] json) throws IOException {
+        ByteArrayBuilder builder = new ByteArrayBuilder(jsonFactory._getBufferRecycler());
+
+        try {
+            filter(json, builder);
+            return builder.toByteArray();
+        } finally {
+            builder.release();
+        }
+    }
+
+    /**
+     * Filter a JSON document to an output stream, which is left open.  Concatenated top-level values are each
+     * filtered.
+     *
+     * @param json JSON document
+     * @param out  output stream
+     * @throws IOException if the JSON is malformed or the stream can't be written
+     */
+    public void filter(byte[] json, OutputStream out) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            filterAll(parser, out);
+        }
+    }
+
+    /**
+     * Filter a JSON document from an input stream to an output stream, which are both left open.  Concatenated
+     * top-level values are each filtered, so newline delimited JSON can be filtered in one pass.
+     *
+     * @param in  input stream
+     * @param out output stream
+     * @throws IOException if the JSON is malformed or a stream can't be read or written
+     */
+    public void filter(InputStream in, OutputStream out) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            filterAll(parser, out);
+        }
+    }
+
+    /**
+     * Filter a JSON string.  Concatenated top-level values are each filtered.
+     *
+     * @param json JSON string
+     * @return filtered JSON
+     * @throws IOException if the JSON is malformed
+     */
+    public String filter(String json) throws IOException {
+        StringWriter writer = new StringWriter(json.length());
+
+        try (JsonParser parser = jsonFactory.createParser(json);
+             JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+            while (filter(parser, generator)) {
+                parser.clearCurrentToken();
+            }
+        }
+
+        return writer.toString();
+    }
+
+    private void filterAll(JsonParser parser, OutputStream out) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            while (filter(parser, generator)) {
+                parser.clearCurrentToken();
+            }
+        }
+    }
+
+    /**
+     * Get the compiled plan that the filter applies.
+     *
+     * @return plan
+     */
+    public SquigglyFilterPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * Get the factory used by the batch methods.
+     *
+     * @return json factory
+     */
+    public JsonFactory getJsonFactory() {
+        return jsonFactory;
+    }
+}
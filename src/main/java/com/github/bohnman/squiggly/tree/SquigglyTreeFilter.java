@@ -0,0 +1,240 @@
+package com.github.bohnman.squiggly.tree;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.bohnman.squiggly.bean.BeanInfoIntrospector;
+import com.github.bohnman.squiggly.filter.SquigglyFilterPlan;
+import com.github.bohnman.squiggly.metric.HotPathMetrics;
+import com.github.bohnman.squiggly.parser.SquigglyNode;
+import com.github.bohnman.squiggly.parser.SquigglyParser;
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Filters {@link JsonNode} trees, either by pruning them in place or by copying only the included branches.
+ * <p>
+ * Like raw JSON, trees have no bean classes, so every object node is filtered the way Squiggly filters a
+ * {@link java.util.Map}, and array nodes are filtered element by element.  Mappers set up with
+ * {@link com.github.bohnman.squiggly.Squiggly#init} filter trees while writing them, see {@link #write}.
+ */
+@ThreadSafe
+public class SquigglyTreeFilter {
+
+    private final SquigglyFilterPlan plan;
+
+    /**
+     * Construct from a filter expression.
+     *
+     * @param filter filter expression
+     */
+    public SquigglyTreeFilter(String filter) {
+        this(new SquigglyParser().parse(filter));
+    }
+
+    /**
+     * Construct from parsed nodes.
+     *
+     * @param nodes parsed nodes of the filter expression
+     */
+    public SquigglyTreeFilter(List<SquigglyNode> nodes) {
+        this(new SquigglyFilterPlan(nodes, new BeanInfoIntrospector()));
+    }
+
+    /**
+     * Construct from a compiled plan.
+     *
+     * @param plan compiled plan
+     */
+    public SquigglyTreeFilter(SquigglyFilterPlan plan) {
+        this.plan = checkNotNull(plan);
+    }
+
+    /**
+     * Remove the excluded fields of a tree.
+     *
+     * @param node tree, which is modified
+     * @param <T>  node type
+     * @return the same tree, for convenience
+     */
+    public <T extends JsonNode> T prune(T node) {
+        prune(node, plan.getRootState());
+        return node;
+    }
+
+    /**
+     * Copy the included branches of a tree, leaving it untouched.
+     *
+     * @param node tree
+     * @return filtered copy
+     */
+    public JsonNode copy(JsonNode node) {
+        return copy(node, plan.getRootState());
+    }
+
+    /**
+     * Get the compiled plan that the filter applies.
+     *
+     * @return plan
+     */
+    public SquigglyFilterPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * Remove the fields of a tree that are excluded in a given state.
+     *
+     * @param node  tree, which is modified
+     * @param state state that applies to the fields of the tree
+     */
+    public static void prune(JsonNode node, SquigglyFilterPlan.State state) {
+        Decisions decisions = new Decisions();
+        prune(node, state, decisions);
+        decisions.record();
+    }
+
+    /**
+     * Copy the branches of a tree that are included in a given state.
+     *
+     * @param node  tree
+     * @param state state that applies to the fields of the tree
+     * @return filtered copy
+     */
+    public static JsonNode copy(JsonNode node, SquigglyFilterPlan.State state) {
+        Decisions decisions = new Decisions();
+        JsonNode copy = copy(node, state, decisions);
+        decisions.record();
+        return copy;
+    }
+
+    /**
+     * Write the branches of a tree that are included in a given state, without copying it.  This is how trees nested
+     * in beans are filtered by the part of the filter that applies to them.
+     *
+     * @param node      tree
+     * @param state     state that applies to the fields of the tree
+     * @param generator generator to write to
+     * @param provider  provider of the serialization
+     * @throws IOException if writing fails
+     */
+    public static void write(JsonNode node, SquigglyFilterPlan.State state, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        Decisions decisions = new Decisions();
+        write(node, state, generator, provider, decisions);
+        decisions.record();
+    }
+
+    private static void prune(JsonNode node, SquigglyFilterPlan.State state, Decisions decisions) {
+        if (state.isIncludeAll()) {
+            return;
+        }
+
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                SquigglyFilterPlan.State next = state.transitionKey(field.getKey());
+
+                if (next.isExcluded()) {
+                    decisions.excluded++;
+                    fields.remove();
+                } else {
+                    decisions.included++;
+                    prune(field.getValue(), next, decisions);
+                }
+            }
+        } else if (node.isArray()) {
+            for (JsonNode element : node) {
+                prune(element, state, decisions);
+            }
+        }
+    }
+
+    private static JsonNode copy(JsonNode node, SquigglyFilterPlan.State state, Decisions decisions) {
+        if (state.isIncludeAll()) {
+            return node.deepCopy();
+        }
+
+        if (node.isObject()) {
+            ObjectNode copy = ((ObjectNode) node).objectNode();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                SquigglyFilterPlan.State next = state.transitionKey(field.getKey());
+
+                if (next.isExcluded()) {
+                    decisions.excluded++;
+                } else {
+                    decisions.included++;
+                    copy.set(field.getKey(), copy(field.getValue(), next, decisions));
+                }
+            }
+
+            return copy;
+        }
+
+        if (node.isArray()) {
+            ArrayNode copy = ((ArrayNode) node).arrayNode();
+
+            for (JsonNode element : node) {
+                copy.add(copy(element, state, decisions));
+            }
+
+            return copy;
+        }
+
+        // value nodes are immutable, so they're shared
+        return node;
+    }
+
+    private static void write(JsonNode node, SquigglyFilterPlan.State state, JsonGenerator generator, SerializerProvider provider, Decisions decisions) throws IOException {
+        if (state.isIncludeAll() || !node.isContainerNode()) {
+            node.serialize(generator, provider);
+        } else if (node.isObject()) {
+            generator.writeStartObject(node);
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                SquigglyFilterPlan.State next = state.transitionKey(field.getKey());
+
+                if (next.isExcluded()) {
+                    decisions.excluded++;
+                } else {
+                    decisions.included++;
+                    generator.writeFieldName(field.getKey());
+                    write(field.getValue(), next, generator, provider, decisions);
+                }
+            }
+
+            generator.writeEndObject();
+        } else {
+            generator.writeStartArray(node.size());
+
+            for (JsonNode element : node) {
+                write(element, state, generator, provider, decisions);
+            }
+
+            generator.writeEndArray();
+        }
+    }
+
+    // decisions of a whole tree, recorded at once
+    private static class Decisions {
+        private int included;
+        private int excluded;
+
+        void record() {
+            HotPathMetrics.recordDecisions(included, excluded);
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package com.github.bohnman.squiggly.util;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.CollectionType;
 import com.fasterxml.jackson.databind.type.MapType;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
 import net.jcip.annotations.ThreadSafe;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -43,13 +49,13 @@ public class SquigglyUtils {
      * @return collection
      */
     public static <E> Collection<E> collectify(ObjectMapper mapper, Object source, Class<? extends Collection> targetCollectionType, Class<E> targetElementType) {
-        CollectionType collectionType = mapper.getTypeFactory().constructCollectionType(targetCollectionType, targetElementType);
-        return objectify(mapper, convertToCollection(source), collectionType);
+        return collectify(mapper, source, targetCollectionType, mapper.getTypeFactory().constructType(targetElementType));
     }
 
 
     /**
-     * Convert an object to a collection.
+     * Convert an object to a collection.  Elements are converted one at a time, so only one element's worth of
+     * filtered tokens is held in memory.
      *
      * @param mapper               the object mapper
      * @param source               the source object
@@ -58,8 +64,29 @@ public class SquigglyUtils {
      * @return collection
      */
     public static <E> Collection<E> collectify(ObjectMapper mapper, Object source, Class<? extends Collection> targetCollectionType, JavaType targetElementType) {
+        if (source == null) {
+            return null;
+        }
+
         CollectionType collectionType = mapper.getTypeFactory().constructCollectionType(targetCollectionType, targetElementType);
-        return objectify(mapper, convertToCollection(source), collectionType);
+
+        try {
+            // let jackson pick the collection implementation, the same way it would for a whole array
+            TokenBuffer emptyArray = new TokenBuffer(mapper, false);
+            emptyArray.writeStartArray();
+            emptyArray.writeEndArray();
+            Collection<E> target = read(mapper, emptyArray, collectionType);
+
+            for (Object element : (Collection<?>) convertToCollection(source)) {
+                target.add(SquigglyUtils.<E>read(mapper, write(mapper, element), targetElementType));
+            }
+
+            return target;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
     }
 
     /**
@@ -89,6 +116,37 @@ public class SquigglyUtils {
         return Collections.singleton(source);
     }
 
+    /**
+     * Lazily convert the elements of an iterable, one at a time as they are iterated, so that large collections can
+     * be converted without holding all of the converted elements in memory.
+     *
+     * @param mapper            the object mapper
+     * @param source            the source elements
+     * @param targetElementType the target element type
+     * @return converted elements
+     */
+    public static <E> Iterable<E> iterify(ObjectMapper mapper, Iterable<?> source, Class<E> targetElementType) {
+        return iterify(mapper, source, mapper.getTypeFactory().constructType(targetElementType));
+    }
+
+    /**
+     * Lazily convert the elements of an iterable, one at a time as they are iterated.
+     *
+     * @param mapper            the object mapper
+     * @param source            the source elements
+     * @param targetElementType the target element type
+     * @return converted elements
+     * @see SquigglyUtils#iterify(ObjectMapper, Iterable, Class)
+     */
+    public static <E> Iterable<E> iterify(final ObjectMapper mapper, Iterable<?> source, final JavaType targetElementType) {
+        return Iterables.transform(source, new Function<Object, E>() {
+            @Override
+            public E apply(Object element) {
+                return objectify(mapper, element, targetElementType);
+            }
+        });
+    }
+
     /**
      * Convert an object to a list of maps.
      *
@@ -151,8 +209,9 @@ public class SquigglyUtils {
 
     /**
      * Converts an object to an instance of the target type.  Unlike {@link ObjectMapper#convertValue(Object, Class)},
-     * this method will apply Squiggly filters.  It does so by first converting the source to bytes and then re-reading
-     * it.
+     * this method will apply Squiggly filters.  It does so by writing the filtered source to a {@link TokenBuffer} and
+     * reading the target from its tokens, so nothing is encoded to or decoded from JSON text.  As with
+     * {@link ObjectMapper#convertValue(Object, Class)}, untyped numbers keep the type they were written with.
      *
      * @param mapper     the object mapper
      * @param source     the source to convert
@@ -175,7 +234,7 @@ public class SquigglyUtils {
      */
     public static <T> T objectify(ObjectMapper mapper, Object source, JavaType targetType) {
         try {
-            return mapper.readValue(mapper.writeValueAsBytes(source), targetType);
+            return read(mapper, write(mapper, source), targetType);
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
@@ -183,6 +242,23 @@ public class SquigglyUtils {
         }
     }
 
+    private static TokenBuffer write(ObjectMapper mapper, Object source) throws IOException {
+        TokenBuffer buffer = new TokenBuffer(mapper, false);
+
+        if (mapper.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)) {
+            buffer = buffer.forceUseOfBigDecimal(true);
+        }
+
+        mapper.writeValue(buffer, source);
+        return buffer;
+    }
+
+    private static <T> T read(ObjectMapper mapper, TokenBuffer buffer, JavaType targetType) throws IOException {
+        try (JsonParser parser = buffer.asParser()) {
+            return mapper.readValue(parser, targetType);
+        }
+    }
+
     /**
      * Convert an object to a set of maps.
      *
@@ -1,9 +1,9 @@
 package com.github.bohnman.squiggly.util.antlr4;
 
+import com.github.bohnman.squiggly.parser.SquigglyParseException;
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
-import org.antlr.v4.runtime.misc.ParseCancellationException;
 
 public class ThrowingErrorListener extends BaseErrorListener {
 
@@ -11,7 +11,7 @@ public class ThrowingErrorListener extends BaseErrorListener {
 
     @Override
     public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
-        throw new ParseCancellationException("line " + line + ":" + charPositionInLine + " " + msg);
+        throw new SquigglyParseException("line " + line + ":" + charPositionInLine + " " + msg);
     }
 
 
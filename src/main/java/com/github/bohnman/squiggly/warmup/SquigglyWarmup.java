@@ -0,0 +1,304 @@
+package com.github.bohnman.squiggly.warmup;
+
+import com.github.bohnman.squiggly.context.LazySquigglyContext;
+import com.github.bohnman.squiggly.filter.SquigglyFilterPlan;
+import com.github.bohnman.squiggly.filter.SquigglyPropertyFilter;
+import com.github.bohnman.squiggly.name.AnyDeepName;
+import com.github.bohnman.squiggly.parser.SquigglyParser;
+import com.github.bohnman.squiggly.projection.SquigglyProjection;
+import com.github.bohnman.squiggly.projection.SquigglyProjectionNode;
+import com.google.common.collect.ImmutableList;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Fills the caches of a property filter before it serves traffic, so the first requests after a deploy don't pay for
+ * introspection, parsing and plan compilation.
+ * <p>
+ * Warming up happens in two phases on a fork-join pool of bounded size:
+ * <ol>
+ * <li>the given classes are introspected, along with the classes of their properties, transitively</li>
+ * <li>the given filter expressions are parsed and compiled into plans, and the plans are walked over each of the
+ * given classes to materialize their states and transitions</li>
+ * </ol>
+ * Filter expressions that can't be parsed are skipped and reported in the result, since a corpus taken from access
+ * logs will usually have a few.
+ */
+@ThreadSafe
+public class SquigglyWarmup {
+
+    private final SquigglyPropertyFilter filter;
+    private final SquigglyParser parser;
+    private final SquigglyProjection projection;
+    private final int parallelism;
+
+    /**
+     * Constructor that uses one thread per processor.
+     *
+     * @param filter the filter to warm up
+     */
+    public SquigglyWarmup(SquigglyPropertyFilter filter) {
+        this(filter, new SquigglyParser(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param filter      the filter to warm up
+     * @param parser      parser used to compile filter expressions
+     * @param parallelism maximum number of threads to warm up with
+     */
+    public SquigglyWarmup(SquigglyPropertyFilter filter, SquigglyParser parser, int parallelism) {
+        checkArgument(parallelism > 0, "parallelism must be positive");
+        this.filter = checkNotNull(filter);
+        this.parser = checkNotNull(parser);
+        this.projection = new SquigglyProjection(parser, filter);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Warm up the filter.  This blocks until done.
+     *
+     * @param classes top-level classes that will be serialized
+     * @param filters filter expressions that are expected to be requested
+     * @return what was warmed up
+     */
+    public Result warmUp(Collection<? extends Class> classes, Collection<String> filters) {
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Set<Class> visitedClasses = Collections.newSetFromMap(new ConcurrentHashMap<Class, Boolean>());
+        Set<SquigglyFilterPlan> plans = Collections.newSetFromMap(new ConcurrentHashMap<SquigglyFilterPlan, Boolean>());
+        Collection<String> invalidFilters = new ConcurrentLinkedQueue<>();
+        List<Class> rootClasses = ImmutableList.copyOf(classes);
+
+        try {
+            List<RecursiveAction> introspections = new ArrayList<>(rootClasses.size());
+
+            for (Class rootClass : rootClasses) {
+                if (visitedClasses.add(rootClass)) {
+                    // ** requests everything, so projecting it visits every reachable property
+                    introspections.add(new IntrospectTask(projection.project(AnyDeepName.ID, rootClass), visitedClasses));
+                }
+            }
+
+            pool.invoke(new AllTask(introspections));
+
+            List<RecursiveAction> compilations = new ArrayList<>(filters.size());
+
+            for (String filterExpression : filters) {
+                compilations.add(new CompileTask(filterExpression, rootClasses, plans, invalidFilters));
+            }
+
+            pool.invoke(new AllTask(compilations));
+        } finally {
+            pool.shutdown();
+        }
+
+        int stateCount = 0;
+
+        for (SquigglyFilterPlan plan : plans) {
+            stateCount += plan.getStateCount();
+        }
+
+        return new Result(System.nanoTime() - start, visitedClasses.size(), filters.size() - invalidFilters.size(),
+                plans.size(), stateCount, ImmutableList.copyOf(invalidFilters));
+    }
+
+    private static class AllTask extends RecursiveAction {
+        private final List<RecursiveAction> tasks;
+
+        AllTask(List<RecursiveAction> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(tasks);
+        }
+    }
+
+    // introspects the classes beneath a node, forking a task for every class seen for the first time
+    private static class IntrospectTask extends RecursiveAction {
+        private final SquigglyProjectionNode node;
+        private final Set<Class> visitedClasses;
+
+        IntrospectTask(SquigglyProjectionNode node, Set<Class> visitedClasses) {
+            this.node = node;
+            this.visitedClasses = visitedClasses;
+        }
+
+        @Override
+        protected void compute() {
+            List<IntrospectTask> tasks = new ArrayList<>();
+
+            for (SquigglyProjectionNode child : node.getChildren().values()) {
+                if (child.isMap()) {
+                    // every key is included, so any key gives the node of the map's values
+                    child = child.getChild("");
+                }
+
+                if (child != null && visitedClasses.add(child.getValueClass())) {
+                    tasks.add(new IntrospectTask(child, visitedClasses));
+                }
+            }
+
+            invokeAll(tasks);
+        }
+    }
+
+    private class CompileTask extends RecursiveAction {
+        private final String filterExpression;
+        private final List<Class> rootClasses;
+        private final Set<SquigglyFilterPlan> plans;
+        private final Collection<String> invalidFilters;
+
+        CompileTask(String filterExpression, List<Class> rootClasses, Set<SquigglyFilterPlan> plans, Collection<String> invalidFilters) {
+            this.filterExpression = filterExpression;
+            this.rootClasses = rootClasses;
+            this.plans = plans;
+            this.invalidFilters = invalidFilters;
+        }
+
+        @Override
+        protected void compute() {
+            SquigglyFilterPlan plan;
+
+            try {
+                plan = filter.getPlan(new LazySquigglyContext(null, parser, filterExpression));
+            } catch (RuntimeException e) {
+                invalidFilters.add(filterExpression);
+                return;
+            }
+
+            plans.add(plan);
+            List<WalkTask> tasks = new ArrayList<>(rootClasses.size());
+
+            for (Class rootClass : rootClasses) {
+                tasks.add(new WalkTask(projection.project(plan, rootClass)));
+            }
+
+            invokeAll(tasks);
+        }
+    }
+
+    // resolving the children of a projection memoizes the plan transitions that serialization will take
+    private static class WalkTask extends RecursiveAction {
+        private final SquigglyProjectionNode root;
+
+        WalkTask(SquigglyProjectionNode root) {
+            this.root = root;
+        }
+
+        @Override
+        protected void compute() {
+            walk(root);
+        }
+
+        private void walk(SquigglyProjectionNode node) {
+            // nothing is memoized beneath a node that includes everything
+            if (node.isIncludeAll() || node.isRecursive()) {
+                return;
+            }
+
+            for (SquigglyProjectionNode child : node.getChildren().values()) {
+                walk(child);
+            }
+        }
+    }
+
+    /**
+     * What a warm-up did.
+     */
+    public static class Result {
+        private final long elapsedNanos;
+        private final int classCount;
+        private final int filterCount;
+        private final int planCount;
+        private final int stateCount;
+        private final List<String> invalidFilters;
+
+        Result(long elapsedNanos, int classCount, int filterCount, int planCount, int stateCount, List<String> invalidFilters) {
+            this.elapsedNanos = elapsedNanos;
+            this.classCount = classCount;
+            this.filterCount = filterCount;
+            this.planCount = planCount;
+            this.stateCount = stateCount;
+            this.invalidFilters = invalidFilters;
+        }
+
+        /**
+         * Get how long the warm-up took.
+         *
+         * @param unit time unit
+         * @return elapsed time
+         */
+        public long getElapsedTime(TimeUnit unit) {
+            return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Get the number of classes reached from the given classes, including themselves.
+         *
+         * @return class count
+         */
+        public int getClassCount() {
+            return classCount;
+        }
+
+        /**
+         * Get the number of filter expressions that were parsed.
+         *
+         * @return filter count
+         */
+        public int getFilterCount() {
+            return filterCount;
+        }
+
+        /**
+         * Get the number of distinct plans the filter expressions compiled to.  Equivalent expressions share a plan.
+         *
+         * @return plan count
+         */
+        public int getPlanCount() {
+            return planCount;
+        }
+
+        /**
+         * Get the number of plan states that have been materialized.
+         *
+         * @return state count
+         */
+        public int getStateCount() {
+            return stateCount;
+        }
+
+        /**
+         * Get the filter expressions that couldn't be parsed.
+         *
+         * @return invalid filters
+         */
+        public List<String> getInvalidFilters() {
+            return invalidFilters;
+        }
+
+        @Override
+        public String toString() {
+            return "Warmed up " + classCount + " classes, " + filterCount + " filters, " + planCount + " plans and "
+                    + stateCount + " states in " + getElapsedTime(TimeUnit.MILLISECONDS) + "ms"
+                    + (invalidFilters.isEmpty() ? "" : ", skipped " + invalidFilters.size() + " invalid filters");
+        }
+    }
+}
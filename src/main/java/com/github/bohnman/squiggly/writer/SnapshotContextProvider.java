@@ -0,0 +1,63 @@
+package com.github.bohnman.squiggly.writer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.github.bohnman.squiggly.context.SquigglyContext;
+import com.github.bohnman.squiggly.context.provider.SquigglyContextProvider;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Context provider that holds the contexts another provider returned on the thread that created it, so that they can
+ * be used on other threads.  Contexts for classes that weren't resolved up front come from the other provider.
+ */
+@ThreadSafe
+class SnapshotContextProvider implements SquigglyContextProvider {
+
+    private final SquigglyContextProvider delegate;
+    private final boolean filteringEnabled;
+    private final Map<Class, SquigglyContext> contexts;
+
+    SnapshotContextProvider(SquigglyContextProvider delegate, Set<Class> beanClasses) {
+        this.delegate = delegate;
+        this.filteringEnabled = delegate.isFilteringEnabled();
+        this.contexts = new HashMap<>(beanClasses.size() * 2);
+
+        if (!filteringEnabled) {
+            return;
+        }
+
+        for (Class beanClass : beanClasses) {
+            SquigglyContext context = delegate.getContext(beanClass);
+
+            // parse now, since contexts may parse lazily and aren't thread safe
+            context.getNodes();
+            contexts.put(beanClass, context);
+        }
+    }
+
+    @Override
+    public SquigglyContext getContext(Class beanClass) {
+        SquigglyContext context = contexts.get(beanClass);
+        return context == null ? delegate.getContext(beanClass) : context;
+    }
+
+    @Override
+    public boolean isFilteringEnabled() {
+        return filteringEnabled;
+    }
+
+    @Override
+    public void serializeAsIncludedField(Object pojo, JsonGenerator jgen, SerializerProvider provider, PropertyWriter writer) throws Exception {
+        delegate.serializeAsIncludedField(pojo, jgen, provider, writer);
+    }
+
+    @Override
+    public void serializeAsExcludedField(Object pojo, JsonGenerator jgen, SerializerProvider provider, PropertyWriter writer) throws Exception {
+        delegate.serializeAsExcludedField(pojo, jgen, provider, writer);
+    }
+}
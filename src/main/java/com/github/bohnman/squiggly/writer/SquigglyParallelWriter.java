@@ -0,0 +1,300 @@
+package com.github.bohnman.squiggly.writer;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.github.bohnman.squiggly.config.SquigglySettings;
+import com.github.bohnman.squiggly.context.provider.SquigglyContextProvider;
+import com.github.bohnman.squiggly.filter.SquigglyPropertyFilter;
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes large top-level lists and arrays on several threads.  The elements are split into chunks, which are
+ * serialized on a fork-join pool into pooled buffers and then written out in order, so the output is byte for byte
+ * the same as serializing the list on one thread.
+ * <p>
+ * Lists smaller than the {@link SquigglySettings#getWriterParallelThreshold() parallel threshold}, other values, and
+ * mappers whose output can't be stitched from chunks (eg. indented output, unwrapped single element arrays or default
+ * typing) are written on the calling thread.
+ * <p>
+ * Filters are resolved on the calling thread for the classes of the elements, so that context providers that depend
+ * on the current thread, such as the one for the current request, apply the same filter to every chunk.
+ */
+@ThreadSafe
+public class SquigglyParallelWriter {
+
+    private final ObjectMapper mapper;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final int parallelThreshold;
+
+    // the number of chunks in flight at once, which bounds the memory held by finished chunks waiting their turn
+    private final int window;
+    private final Queue<ChunkBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Construct with the settings of the mapper's squiggly filter.  The pool is owned by the caller, who shuts it down.
+     *
+     * @param mapper mapper set up with a squiggly filter
+     * @param pool   pool that chunks are serialized on
+     */
+    public SquigglyParallelWriter(ObjectMapper mapper, ForkJoinPool pool) {
+        this(mapper, pool, getSettings(mapper));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param mapper   mapper set up with a squiggly filter
+     * @param pool     pool that chunks are serialized on, which is owned by the caller
+     * @param settings settings of the chunk size and parallel threshold
+     */
+    public SquigglyParallelWriter(ObjectMapper mapper, ForkJoinPool pool, SquigglySettings settings) {
+        this.mapper = checkNotNull(mapper);
+        this.pool = checkNotNull(pool);
+        this.chunkSize = settings.getWriterChunkSize();
+        this.parallelThreshold = settings.getWriterParallelThreshold();
+        this.window = 2 * pool.getParallelism();
+    }
+
+    private static SquigglySettings getSettings(ObjectMapper mapper) {
+        SquigglyPropertyFilter filter = findFilter(mapper);
+        return filter == null ? SquigglySettings.defaults() : filter.getSettings();
+    }
+
+    private static SquigglyPropertyFilter findFilter(ObjectMapper mapper) {
+        FilterProvider filterProvider = mapper.getSerializationConfig().getFilterProvider();
+        PropertyFilter filter = (filterProvider == null) ? null : filterProvider.findPropertyFilter(SquigglyPropertyFilter.FILTER_ID, null);
+        return (filter instanceof SquigglyPropertyFilter) ? (SquigglyPropertyFilter) filter : null;
+    }
+
+    /**
+     * Serialize a value to bytes.
+     *
+     * @param value value, where lists and object arrays may be written in parallel
+     * @return json
+     * @throws IOException if serialization fails
+     */
+    public byte[] writeValueAsBytes(Object value) throws IOException {
+        ByteArrayBuilder builder = new ByteArrayBuilder(mapper.getFactory()._getBufferRecycler());
+
+        try {
+            writeValue(builder, value);
+            return builder.toByteArray();
+        } finally {
+            builder.release();
+        }
+    }
+
+    /**
+     * Serialize a value to an output stream, which is left open.
+     *
+     * @param out   output stream
+     * @param value value, where lists and object arrays may be written in parallel
+     * @throws IOException if serialization fails or the stream can't be written
+     */
+    public void writeValue(OutputStream out, Object value) throws IOException {
+        List<?> elements = asList(value);
+
+        if (elements == null || elements.size() < parallelThreshold || elements.size() <= chunkSize || !canStitch()) {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                mapper.writer().writeValue(generator, value);
+            }
+
+            return;
+        }
+
+        writeChunks(out, elements, newChunkWriter(elements));
+    }
+
+    private List<?> asList(Object value) {
+        if (value instanceof List) {
+            return (List<?>) value;
+        }
+
+        if (value instanceof Object[]) {
+            return Arrays.asList((Object[]) value);
+        }
+
+        return null;
+    }
+
+    /*
+        Chunks are written as arrays and stitched together, which only gives the same bytes for plain compact output.
+        Single element arrays can't be written unwrapped, since a chunk of one element would lose its brackets.
+     */
+    private boolean canStitch() {
+        SerializationConfig config = mapper.getSerializationConfig();
+
+        return !config.isEnabled(SerializationFeature.INDENT_OUTPUT)
+                && !config.isEnabled(SerializationFeature.WRAP_ROOT_VALUE)
+                && !config.isEnabled(SerializationFeature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED)
+                && config.getDefaultTyper(mapper.constructType(Object.class)) == null;
+    }
+
+    private ObjectWriter newChunkWriter(List<?> elements) {
+        ObjectWriter writer = mapper.writer();
+        SquigglyPropertyFilter filter = findFilter(mapper);
+
+        if (filter == null) {
+            return writer;
+        }
+
+        Set<Class> elementClasses = new LinkedHashSet<>();
+
+        for (Object element : elements) {
+            if (element != null) {
+                elementClasses.add(element.getClass());
+            }
+        }
+
+        return writer.withAttribute(SquigglyContextProvider.class, new SnapshotContextProvider(filter.getContextProvider(), elementClasses));
+    }
+
+    private void writeChunks(OutputStream out, List<?> elements, ObjectWriter writer) throws IOException {
+        int chunkCount = (elements.size() + chunkSize - 1) / chunkSize;
+        ForkJoinTask<ChunkBuffer>[] tasks = newTaskArray(chunkCount);
+
+        try {
+            for (int i = 0; i < Math.min(window, chunkCount); i++) {
+                tasks[i] = submit(elements, i, writer);
+            }
+
+            out.write('[');
+
+            for (int i = 0; i < chunkCount; i++) {
+                ChunkBuffer buffer = join(tasks[i]);
+                tasks[i] = null;
+
+                // keep the pool busy while this chunk is written out
+                if (i + window < chunkCount) {
+                    tasks[i + window] = submit(elements, i + window, writer);
+                }
+
+                if (i > 0) {
+                    out.write(',');
+                }
+
+                try {
+                    buffer.writeElementsTo(out);
+                } finally {
+                    release(buffer);
+                }
+            }
+
+            out.write(']');
+        } finally {
+            for (ForkJoinTask<ChunkBuffer> task : tasks) {
+                if (task != null) {
+                    task.cancel(false);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ForkJoinTask<ChunkBuffer>[] newTaskArray(int length) {
+        return new ForkJoinTask[length];
+    }
+
+    private ForkJoinTask<ChunkBuffer> submit(List<?> elements, int chunk, final ObjectWriter writer) {
+        final List<?> chunkElements = elements.subList(chunk * chunkSize, Math.min(elements.size(), (chunk + 1) * chunkSize));
+
+        return pool.submit(new Callable<ChunkBuffer>() {
+            @Override
+            public ChunkBuffer call() throws IOException {
+                ChunkBuffer buffer = acquire();
+
+                try {
+                    writer.writeValue(buffer, chunkElements);
+                    return buffer;
+                } catch (IOException | RuntimeException e) {
+                    release(buffer);
+                    throw e;
+                }
+            }
+        });
+    }
+
+    private ChunkBuffer join(ForkJoinTask<ChunkBuffer> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing chunks", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+
+    private ChunkBuffer acquire() {
+        ChunkBuffer buffer = buffers.poll();
+        return buffer == null ? new ChunkBuffer() : buffer;
+    }
+
+    private void release(ChunkBuffer buffer) {
+        buffer.reset();
+
+        // a buffer for each chunk in flight, plus the one being written out, covers every caller but the concurrent ones
+        if (buffers.size() <= window) {
+            buffers.offer(buffer);
+        }
+    }
+
+    /**
+     * Get the pool that chunks are serialized on.
+     *
+     * @return pool
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    // a reusable buffer that can write its array without the enclosing brackets, and without copying
+    private static class ChunkBuffer extends ByteArrayOutputStream {
+        ChunkBuffer() {
+            super(8192);
+        }
+
+        synchronized void writeElementsTo(OutputStream out) throws IOException {
+            out.write(buf, 1, count - 2);
+        }
+    }
+}
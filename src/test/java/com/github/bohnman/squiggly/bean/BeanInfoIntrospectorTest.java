@@ -0,0 +1,41 @@
+package com.github.bohnman.squiggly.bean;
+
+import com.github.bohnman.squiggly.model.Issue;
+import com.github.bohnman.squiggly.model.Outer;
+import com.github.bohnman.squiggly.view.PropertyView;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BeanInfoIntrospectorTest {
+
+    private final BeanInfoIntrospector introspector = new BeanInfoIntrospector();
+
+    @Test
+    public void testViews() {
+        BeanInfo beanInfo = introspector.introspect(Issue.class);
+
+        assertTrue(beanInfo.isPropertyInView("issueSummary", PropertyView.BASE_VIEW));
+        assertFalse(beanInfo.isPropertyInView("actions", PropertyView.BASE_VIEW));
+        assertTrue(beanInfo.isPropertyInView("actions", PropertyView.FULL_VIEW));
+        assertTrue(beanInfo.isPropertyInView("actions", "other"));
+        assertTrue(beanInfo.isPropertyInView("properties", "view1"));
+        assertFalse(beanInfo.isPropertyInView("missing", PropertyView.BASE_VIEW));
+        assertFalse(beanInfo.hasView("missing"));
+
+        assertTrue(beanInfo.getPropertyNamesForView(PropertyView.FULL_VIEW).containsAll(ImmutableSet.of("issueSummary", "actions", "properties")));
+        assertEquals(-1, beanInfo.getPropertyOrdinal("missing"));
+    }
+
+    @Test
+    public void testUnwrapped() {
+        BeanInfo beanInfo = introspector.introspect(Outer.class);
+
+        assertTrue(beanInfo.isUnwrapped("inner"));
+        assertFalse(beanInfo.isUnwrapped("outerText"));
+        assertFalse(beanInfo.isUnwrapped("missing"));
+    }
+}
@@ -0,0 +1,182 @@
+package com.github.bohnman.squiggly.bean;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.bohnman.squiggly.Squiggly;
+import com.github.bohnman.squiggly.processor.SquigglyBeanInfoProcessor;
+import com.github.bohnman.squiggly.util.SquigglyUtils;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+
+public class BeanInfoTableTest {
+
+    private static final String SAMPLE_SOURCE = "package sample;\n"
+            + "import com.fasterxml.jackson.annotation.JsonProperty;\n"
+            + "import com.fasterxml.jackson.annotation.JsonUnwrapped;\n"
+            + "import com.github.bohnman.squiggly.view.PropertyView;\n"
+            + "import java.util.List;\n"
+            + "public class Sample extends SampleBase {\n"
+            + "    @JsonProperty(\"renamed\") private String name;\n"
+            + "    @PropertyView({\"a\\\"b\", \"line\\nbreak\"}) private boolean active;\n"
+            + "    private List<String> tags;\n"
+            + "    @JsonUnwrapped private SampleBase nested;\n"
+            + "    public String getName() { return name; }\n"
+            + "    public void setName(String name) { this.name = name; }\n"
+            + "    public boolean isActive() { return active; }\n"
+            + "    public List<String> getTags() { return tags; }\n"
+            + "    public SampleBase getNested() { return nested; }\n"
+            + "    public String getURL() { return null; }\n"
+            + "}\n"
+            + "class SampleBase {\n"
+            + "    @PropertyView(\"inherited\") private int count;\n"
+            + "    public int getCount() { return count; }\n"
+            + "}\n";
+
+    private static final List<String> VIEWS = Arrays.asList("base", "full", "other", "view1", "inherited", "a\"b", "line\nbreak");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final BeanInfoIntrospector introspector = new BeanInfoIntrospector();
+    private ClassLoader classLoader;
+
+    @Before
+    public void compile() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeNotNull(compiler);
+
+        File outputDir = temporaryFolder.newFolder();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        List<JavaFileObject> sources = new ArrayList<>();
+
+        File[] modelFiles = new File("src/test/java/com/github/bohnman/squiggly/model").listFiles();
+        assumeNotNull((Object) modelFiles);
+
+        for (JavaFileObject source : fileManager.getJavaFileObjects(modelFiles)) {
+            sources.add(source);
+        }
+
+        sources.add(new SimpleJavaFileObject(URI.create("string:///sample/Sample.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return SAMPLE_SOURCE;
+            }
+        });
+
+        List<String> options = Arrays.asList("-d", outputDir.getPath(), "-classpath", System.getProperty("java.class.path"));
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null, sources);
+        task.setProcessors(Arrays.asList(new SquigglyBeanInfoProcessor()));
+        assertTrue(task.call());
+        fileManager.close();
+
+        classLoader = new URLClassLoader(new URL[]{outputDir.toURI().toURL()}, getClass().getClassLoader());
+    }
+
+    @Test
+    public void testModels() throws Exception {
+        assertSameAsReflection("com.github.bohnman.squiggly.model.Issue");
+        assertSameAsReflection("com.github.bohnman.squiggly.model.IssueAction");
+        assertSameAsReflection("com.github.bohnman.squiggly.model.User");
+        assertSameAsReflection("com.github.bohnman.squiggly.model.Outer");
+    }
+
+    @Test
+    public void testSample() throws Exception {
+        BeanInfo beanInfo = assertSameAsReflection("sample.Sample");
+        assertTrue(beanInfo.getPropertyNamesForView("base").contains("renamed"));
+        assertTrue(beanInfo.getPropertyNamesForView("line\nbreak").contains("active"));
+        assertTrue(beanInfo.isUnwrapped("nested"));
+        assertSameAsReflection("sample.SampleBase");
+    }
+
+    @Test
+    public void testLoadedByDefaultInit() throws Exception {
+        // the table puts the property in a view that the class itself doesn't declare, so only the table can find it
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), "tabled");
+        assertEquals("{\"name\":\"a\"}", SquigglyUtils.stringify(mapper, new Tabled()));
+    }
+
+    @Test
+    public void testUnannotated() throws Exception {
+        assertNull(classLoader.getResource("com/github/bohnman/squiggly/model/Inner" + BeanInfoTable.CLASS_SUFFIX + ".class"));
+    }
+
+    private BeanInfo assertSameAsReflection(String className) throws Exception {
+        Class beanClass = classLoader.loadClass(className);
+        BeanInfoTable table = (BeanInfoTable) classLoader.loadClass(className + BeanInfoTable.CLASS_SUFFIX).getDeclaredConstructor().newInstance();
+
+        BeanInfo expected = introspector.introspectWithReflection(beanClass);
+        BeanInfo actual = introspector.introspectTable(beanClass, table);
+
+        assertEquals(className, expected.getPropertyTypes(), actual.getPropertyTypes());
+
+        for (String view : VIEWS) {
+            assertEquals(className + " " + view, toSet(expected.getPropertyNamesForView(view)), toSet(actual.getPropertyNamesForView(view)));
+        }
+
+        for (String propertyName : Sets.union(expected.getPropertyTypes().keySet(), Sets.newHashSet("class"))) {
+            assertEquals(className + " " + propertyName, expected.isUnwrapped(propertyName), actual.isUnwrapped(propertyName));
+        }
+
+        return actual;
+    }
+
+    private static Set<String> toSet(Set<String> names) {
+        return names == null ? null : new HashSet<>(names);
+    }
+
+    public static class Tabled {
+        public String getName() {
+            return "a";
+        }
+
+        public String getOther() {
+            return "b";
+        }
+
+        // hand-written in place of a generated table, whose binary name is Tabled$SquigglyBeanInfo
+        public static class SquigglyBeanInfo implements BeanInfoTable {
+            @Override
+            public String[] getPropertyNames() {
+                return new String[]{"name", "other"};
+            }
+
+            @Override
+            public String[] getReadMethodNames() {
+                return new String[]{"getName", "getOther"};
+            }
+
+            @Override
+            public String[][] getPropertyViews() {
+                return new String[][]{{"tabled"}, {"hidden"}};
+            }
+
+            @Override
+            public String[] getUnwrappedPropertyNames() {
+                return new String[0];
+            }
+        }
+    }
+}
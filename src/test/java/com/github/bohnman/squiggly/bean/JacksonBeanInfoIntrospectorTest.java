@@ -0,0 +1,81 @@
+package com.github.bohnman.squiggly.bean;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.github.bohnman.squiggly.Squiggly;
+import com.github.bohnman.squiggly.config.SquigglyConfig;
+import com.github.bohnman.squiggly.config.SquigglySettings;
+import com.github.bohnman.squiggly.context.provider.SimpleSquigglyContextProvider;
+import com.github.bohnman.squiggly.filter.SquigglyPropertyFilter;
+import com.github.bohnman.squiggly.model.Issue;
+import com.github.bohnman.squiggly.model.Outer;
+import com.github.bohnman.squiggly.model.User;
+import com.github.bohnman.squiggly.parser.SquigglyParser;
+import com.github.bohnman.squiggly.util.SquigglyUtils;
+import com.github.bohnman.squiggly.view.PropertyView;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JacksonBeanInfoIntrospectorTest {
+
+    @Test
+    public void testSameAsBeanIntrospection() {
+        BeanInfo beanInfo = new JacksonBeanInfoIntrospector(new ObjectMapper()).introspect(Issue.class);
+
+        assertTrue(beanInfo.isPropertyInView("issueSummary", PropertyView.BASE_VIEW));
+        assertFalse(beanInfo.isPropertyInView("actions", PropertyView.BASE_VIEW));
+        assertTrue(beanInfo.isPropertyInView("actions", PropertyView.FULL_VIEW));
+        assertTrue(beanInfo.isPropertyInView("actions", "other"));
+        assertTrue(beanInfo.isPropertyInView("properties", "view1"));
+        assertEquals(User.class, beanInfo.getPropertyTypes().get("assignee"));
+        assertFalse(beanInfo.getPropertyTypes().containsKey("class"));
+        assertTrue(new JacksonBeanInfoIntrospector(new ObjectMapper()).introspect(Outer.class).isUnwrapped("inner"));
+    }
+
+    @Test
+    public void testNamingStrategy() {
+        ObjectMapper mapper = new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+        BeanInfo beanInfo = new JacksonBeanInfoIntrospector(mapper).introspect(Issue.class);
+
+        assertTrue(beanInfo.isPropertyInView("issue_summary", PropertyView.BASE_VIEW));
+        assertEquals(-1, beanInfo.getPropertyOrdinal("issueSummary"));
+
+        // views resolve against the names the serializer writes
+        Squiggly.init(mapper, "base", SquigglySettings.builder().propertyIntrospector(SquigglyConfig.PROPERTY_INTROSPECTOR_JACKSON).build());
+        String json = SquigglyUtils.stringify(mapper, new User("Jorah", "Mormont"));
+        assertEquals("{\"first_name\":\"Jorah\",\"last_name\":\"Mormont\"}", json);
+    }
+
+    @Test
+    public void testOptIn() {
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), "base");
+        assertEquals(BeanInfoIntrospector.class, getFilter(mapper).getBeanInfoIntrospector().getClass());
+
+        mapper = Squiggly.init(new ObjectMapper(), new SimpleSquigglyContextProvider(new SquigglyParser(), "base"),
+                SquigglySettings.builder().properties(ImmutableMap.of("property.introspector", "jackson")).build());
+        assertEquals(JacksonBeanInfoIntrospector.class, getFilter(mapper).getBeanInfoIntrospector().getClass());
+    }
+
+    private static SquigglyPropertyFilter getFilter(ObjectMapper mapper) {
+        return (SquigglyPropertyFilter) mapper.getSerializationConfig().getFilterProvider().findPropertyFilter(SquigglyPropertyFilter.FILTER_ID, null);
+    }
+
+    @Test
+    public void testMixIn() {
+        ObjectMapper mapper = new ObjectMapper().addMixIn(User.class, SecretLastName.class);
+        BeanInfo beanInfo = new JacksonBeanInfoIntrospector(mapper).introspect(User.class);
+
+        assertTrue(beanInfo.isPropertyInView("lastName", "secret"));
+        assertFalse(beanInfo.isPropertyInView("lastName", PropertyView.BASE_VIEW));
+        assertTrue(beanInfo.isPropertyInView("firstName", PropertyView.BASE_VIEW));
+    }
+
+    private abstract static class SecretLastName {
+        @PropertyView("secret")
+        public abstract String getLastName();
+    }
+}
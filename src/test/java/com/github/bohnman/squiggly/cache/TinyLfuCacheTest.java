@@ -0,0 +1,244 @@
+package com.github.bohnman.squiggly.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilderSpec;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TinyLfuCacheTest {
+
+    private static final Weigher<String, String> LENGTH_WEIGHER = new Weigher<String, String>() {
+        @Override
+        public int weigh(String key, String value) {
+            return value.length();
+        }
+    };
+
+    @Test
+    public void testFactory() {
+        TinyLfuCacheFactory factory = new TinyLfuCacheFactory();
+
+        assertTrue(factory.build(CacheBuilderSpec.parse("maximumSize=10,recordStats"), LENGTH_WEIGHER) instanceof TinyLfuCache);
+        assertTrue(factory.build(CacheBuilderSpec.parse("maximumWeight=10"), LENGTH_WEIGHER) instanceof TinyLfuCache);
+        assertTrue(!(factory.build(CacheBuilderSpec.parse("maximumSize=10,expireAfterWrite=1m"), LENGTH_WEIGHER) instanceof TinyLfuCache));
+        assertTrue(!(factory.build(CacheBuilderSpec.parse(""), LENGTH_WEIGHER) instanceof TinyLfuCache));
+    }
+
+    @Test
+    public void testStatsOnlyWhenRecorded() {
+        TinyLfuCacheFactory factory = new TinyLfuCacheFactory();
+        Cache<String, String> unrecorded = factory.build(CacheBuilderSpec.parse("maximumSize=10"), LENGTH_WEIGHER);
+        Cache<String, String> recorded = factory.build(CacheBuilderSpec.parse("maximumSize=10,recordStats"), LENGTH_WEIGHER);
+
+        for (Cache<String, String> cache : Arrays.asList(unrecorded, recorded)) {
+            cache.put("a", "a");
+            cache.getIfPresent("a");
+            cache.getIfPresent("b");
+        }
+
+        assertEquals(new CacheStats(0, 0, 0, 0, 0, 0), unrecorded.stats());
+        assertEquals(1, recorded.stats().hitCount());
+        assertEquals(1, recorded.stats().missCount());
+    }
+
+    @Test
+    public void testMaximumSize() {
+        Cache<Integer, Integer> cache = new TinyLfuCache<>(10, null, true);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+
+        assertEquals(10, cache.size());
+        assertEquals(90, cache.stats().evictionCount());
+    }
+
+    @Test
+    public void testMaximumWeight() {
+        Cache<String, String> cache = new TinyLfuCache<>(100, LENGTH_WEIGHER, true);
+
+        for (int i = 0; i < 10; i++) {
+            cache.put("key" + i, repeat('x', 30));
+        }
+
+        assertEquals(3, cache.size());
+
+        cache.put("huge", repeat('x', 101));
+        assertNull(cache.getIfPresent("huge"));
+    }
+
+    @Test
+    public void testZeroSize() throws Exception {
+        Cache<String, String> cache = new TinyLfuCache<>(0, null, true);
+
+        assertEquals("value", cache.get("key", constant("value")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testScanResistance() throws Exception {
+        Cache<String, String> cache = new TinyLfuCache<>(100, null, true);
+
+        // a hot set that fits, used over and over
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.get("hot" + i, constant("value"));
+            }
+        }
+
+        // a burst of keys that are never seen again
+        for (int i = 0; i < 10000; i++) {
+            cache.get("cold" + i, constant("value"));
+        }
+
+        int hot = 0;
+
+        for (int i = 0; i < 50; i++) {
+            if (cache.asMap().containsKey("hot" + i)) {
+                hot++;
+            }
+        }
+
+        // an LRU cache would have lost all of them; the hot key that was sitting in the window may be lost on a tie
+        assertTrue(hot >= 49);
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        final Cache<String, String> cache = new TinyLfuCache<>(100, null, true);
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return cache.get("key", new Callable<String>() {
+                            @Override
+                            public String call() throws Exception {
+                                loads.incrementAndGet();
+                                release.await();
+                                return "value";
+                            }
+                        });
+                    }
+                }));
+            }
+
+            // give every thread a chance to miss before the load finishes
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<String> future : futures) {
+                assertEquals("value", future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().loadSuccessCount());
+    }
+
+    @Test
+    public void testLoadFailures() throws Exception {
+        Cache<String, String> cache = new TinyLfuCache<>(100, null, true);
+
+        try {
+            cache.get("key", new Callable<String>() {
+                @Override
+                public String call() {
+                    throw new IllegalStateException("boom");
+                }
+            });
+            fail();
+        } catch (UncheckedExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        try {
+            cache.get("key", new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    throw new Exception("boom");
+                }
+            });
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("boom", e.getCause().getMessage());
+        }
+
+        try {
+            cache.get("key", constant(null));
+            fail();
+        } catch (CacheLoader.InvalidCacheLoadException e) {
+            // expected
+        }
+
+        assertEquals(0, cache.size());
+        assertEquals(3, cache.stats().loadExceptionCount());
+    }
+
+    @Test
+    public void testReconfigure() {
+        ReconfigurableCache<Integer, Integer> cache = new ReconfigurableCache<>(CacheBuilderSpec.parse("maximumSize=100"), new TinyLfuCacheFactory(), new Weigher<Integer, Integer>() {
+            @Override
+            public int weigh(Integer key, Integer value) {
+                return 1;
+            }
+        });
+
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, i);
+        }
+
+        cache.reconfigure("maximumSize=200");
+        assertEquals(50, cache.size());
+
+        cache.reconfigure("maximumSize=10");
+        assertEquals(10, cache.size());
+    }
+
+    private static Callable<String> constant(final String value) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                return value;
+            }
+        };
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+
+        return builder.toString();
+    }
+}
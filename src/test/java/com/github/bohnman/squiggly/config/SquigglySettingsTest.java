@@ -0,0 +1,95 @@
+package com.github.bohnman.squiggly.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.bohnman.squiggly.Squiggly;
+import com.github.bohnman.squiggly.bean.BeanInfoIntrospector;
+import com.github.bohnman.squiggly.cache.ReconfigurableCache;
+import com.github.bohnman.squiggly.model.User;
+import com.github.bohnman.squiggly.parser.SquigglyNode;
+import com.github.bohnman.squiggly.parser.SquigglyParser;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SquigglySettingsTest {
+
+    @Test
+    public void testFallsBackToConfig() {
+        SquigglySettings settings = SquigglySettings.builder().filterPropagateViewToNestedFilters(true).build();
+
+        assertEquals(true, settings.isFilterPropagateViewToNestedFilters());
+        assertEquals(SquigglyConfig.isPropertyAddNonAnnotatedFieldsToBaseView(), settings.isPropertyAddNonAnnotatedFieldsToBaseView());
+        assertEquals(SquigglyConfig.getParserImplementation(), settings.getParserImplementation());
+        assertEquals(false, settings.toBuilder().filterPropagateViewToNestedFilters(false).build().isFilterPropagateViewToNestedFilters());
+    }
+
+    @Test
+    public void testProperties() {
+        SquigglySettings settings = SquigglySettings.builder()
+                .properties(ImmutableMap.of("parser.implementation", "antlr", "parser.regexMatchCache.maxSize", "7"))
+                .build();
+
+        assertEquals(SquigglyConfig.PARSER_IMPLEMENTATION_ANTLR, settings.getParserImplementation());
+        assertEquals(7, settings.getParserRegexMatchCacheMaxSize());
+    }
+
+    @Test
+    public void testPathCacheSpecSizesPlanCache() {
+        SquigglySettings pathOnly = SquigglySettings.builder().properties(ImmutableMap.of("filter.pathCache.spec", "maximumSize=5")).build();
+        SquigglySettings both = SquigglySettings.builder()
+                .properties(ImmutableMap.of("filter.planCache.spec", "maximumSize=7", "filter.pathCache.spec", "maximumSize=5"))
+                .build();
+
+        assertEquals("maximumSize=5", pathOnly.getFilterPlanCacheSpec().toParsableString());
+        assertEquals("maximumSize=7", both.getFilterPlanCacheSpec().toParsableString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownProperty() {
+        SquigglySettings.builder().properties(ImmutableMap.of("filter.bogus", "true"));
+    }
+
+    @Test
+    public void testMappersConfiguredSeparately() throws Exception {
+        User user = new User("Jorah", "Mormont");
+        SquigglySettings annotatedOnly = SquigglySettings.builder().propertyAddNonAnnotatedFieldsToBaseView(false).build();
+
+        ObjectMapper publicMapper = Squiggly.init(new ObjectMapper(), "base");
+        ObjectMapper adminMapper = Squiggly.init(new ObjectMapper(), "base", annotatedOnly);
+
+        assertEquals("{\"firstName\":\"Jorah\",\"lastName\":\"Mormont\"}", publicMapper.writeValueAsString(user));
+        assertEquals("{}", adminMapper.writeValueAsString(user));
+    }
+
+    @Test
+    public void testCachesAreScoped() {
+        SquigglySettings settings = SquigglySettings.builder().parserNodeCacheSpec("maximumSize=10").build();
+
+        assertSame(new SquigglyParser().getNodeCache(), new SquigglyParser().getNodeCache());
+        assertNotSame(new SquigglyParser(settings).getNodeCache(), new SquigglyParser(settings).getNodeCache());
+        assertSame(new BeanInfoIntrospector().getDescriptorCache(), new BeanInfoIntrospector().getDescriptorCache());
+    }
+
+    @Test
+    public void testReconfigure() {
+        SquigglyParser parser = new SquigglyParser(SquigglySettings.builder().parserNodeCacheSpec("maximumSize=10,recordStats").build());
+        ReconfigurableCache<String, List<SquigglyNode>> cache = parser.getNodeCache();
+
+        List<SquigglyNode> nodes = parser.parse("id,name");
+        assertSame(nodes, parser.parse("id,name"));
+
+        cache.reconfigure("maximumSize=100,recordStats");
+        assertEquals("maximumSize=100,recordStats", cache.getSpec().toParsableString());
+        assertSame(nodes, parser.parse("id,name"));
+        assertEquals(2, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+
+        cache.reconfigure("maximumSize=0");
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.bohnman.squiggly.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs the filter tests with beans written by {@link SquigglyBeanSerializer}.
+ */
+public class SquigglyBeanSerializerTest extends SquigglyPropertyFilterTest {
+
+    @Override
+    protected ObjectMapper newObjectMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.setSerializerFactory(mapper.getSerializerFactory().withSerializerModifier(new SquigglyBeanSerializerModifier()));
+        return mapper;
+    }
+}
@@ -4,7 +4,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
-import com.github.bohnman.squiggly.config.SquigglyConfig;
+import com.github.bohnman.squiggly.bean.BeanInfoIntrospector;
+import com.github.bohnman.squiggly.config.SquigglySettings;
+import com.github.bohnman.squiggly.context.SquigglyContext;
 import com.github.bohnman.squiggly.context.provider.SimpleSquigglyContextProvider;
 import com.github.bohnman.squiggly.model.*;
 import com.github.bohnman.squiggly.parser.SquigglyParser;
@@ -14,8 +16,6 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
@@ -46,7 +46,7 @@ public class SquigglyPropertyFilterTest {
     public void beforeEachTest() {
         if (!init) {
             issue = buildIssue();
-            objectMapper = new ObjectMapper();
+            objectMapper = newObjectMapper();
             filterProvider = new SimpleFilterProvider();
             objectMapper.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
             objectMapper.setFilterProvider(filterProvider);
@@ -57,6 +57,10 @@ public class SquigglyPropertyFilterTest {
         filterProvider.removeFilter(SquigglyPropertyFilter.FILTER_ID);
     }
 
+    protected ObjectMapper newObjectMapper() {
+        return new ObjectMapper();
+    }
+
     private Issue buildIssue() {
         Map<String, Object> properties = new HashMap<>();
         properties.put("email", "motherofdragons@got.com");
@@ -251,6 +255,36 @@ public class SquigglyPropertyFilterTest {
         assertEquals("{\"actions\":[{\"type\":\"" + issue.getActions().get(0).getType() + "\",\"text\":\"" + issue.getActions().get(0).getText() + "\"},{\"type\":\"" + issue.getActions().get(1).getType() + "\",\"text\":\"" + issue.getActions().get(1).getText() + "\"}]}", stringify());
     }
 
+    @Test
+    public void testTopLevelList() {
+        filter("id,assignee[firstName]");
+        String single = "{\"id\":\"ISSUE-1\",\"assignee\":{\"firstName\":\"Jorah\"}}";
+        assertEquals("[" + single + "," + single + "]", stringify(Arrays.asList(issue, issue)));
+    }
+
+    @Test
+    public void testContextResolvedOncePerSerialization() {
+        final int[] counts = new int[2];
+        SimpleSquigglyContextProvider provider = new SimpleSquigglyContextProvider(new SquigglyParser(), "id,actions[user[firstName]]") {
+            @Override
+            public boolean isFilteringEnabled() {
+                counts[0]++;
+                return super.isFilteringEnabled();
+            }
+
+            @Override
+            public SquigglyContext getContext(Class beanClass) {
+                counts[1]++;
+                return super.getContext(beanClass);
+            }
+        };
+        filterProvider.addFilter(SquigglyPropertyFilter.FILTER_ID, new SquigglyPropertyFilter(provider));
+
+        assertEquals("{\"id\":\"ISSUE-1\",\"actions\":[{\"user\":{\"firstName\":\"Jorah\"}},{\"user\":{\"firstName\":\"Daario\"}}]}", stringify());
+        assertEquals(1, counts[0]);
+        assertEquals(1, counts[1]);
+    }
+
     @Test
     public void testMultipleNestedSingle() {
         filter("(reporter,assignee)[lastName]");
@@ -263,6 +297,24 @@ public class SquigglyPropertyFilterTest {
         assertEquals("{\"properties\":{\"priority\":\"" + issue.getProperties().get("priority") + "\"}}", stringify());
     }
 
+    @Test
+    public void testNestedMapManyKeys() {
+        Map<String, Object> properties = new HashMap<>();
+        Map<String, Object> expected = new HashMap<>();
+
+        for (int i = 0; i < 1000; i++) {
+            properties.put("key" + i, i);
+        }
+
+        for (String key : new String[]{"key5", "key99", "key990", "key991", "key992", "key993", "key994", "key995", "key996", "key997", "key998"}) {
+            expected.put(key, properties.get(key));
+        }
+
+        issue.setProperties(properties);
+        filter("properties[key99*,-key999,key5]");
+        assertEquals("{\"properties\":" + stringifyRaw(expected) + "}", stringify());
+    }
+
     @Test
     public void testDeepNested() {
         filter("actions[user[lastName]]");
@@ -283,41 +335,20 @@ public class SquigglyPropertyFilterTest {
 
     @Test
     public void testFilterExcludesBaseFieldsInView() {
-        String fieldName = "filterImplicitlyIncludeBaseFieldsInView";
-
-        try {
-            setFieldValue(SquigglyConfig.class, fieldName, false);
-            filter("view1");
-            assertEquals("{\"properties\":" + stringifyRaw(issue.getProperties()) + "}", stringify());
-        } finally {
-            setFieldValue(SquigglyConfig.class, fieldName, true);
-        }
+        filter("view1", SquigglySettings.builder().filterImplicitlyIncludeBaseFieldsInView(false).build());
+        assertEquals("{\"properties\":" + stringifyRaw(issue.getProperties()) + "}", stringify());
     }
 
     @Test
     public void testPropagateViewToNestedFilters() {
-        String fieldName = "filterPropagateViewToNestedFilters";
-
-        try {
-            setFieldValue(SquigglyConfig.class, fieldName, true);
-            filter("full");
-            assertEquals(stringifyRaw(), stringify());
-        } finally {
-            setFieldValue(SquigglyConfig.class, fieldName, false);
-        }
+        filter("full", SquigglySettings.builder().filterPropagateViewToNestedFilters(true).build());
+        assertEquals(stringifyRaw(), stringify());
     }
 
     @Test
     public void testPropertyAddNonAnnotatedFieldsToBaseView() {
-        String fieldName = "propertyAddNonAnnotatedFieldsToBaseView";
-
-        try {
-            setFieldValue(SquigglyConfig.class, fieldName, false);
-            filter("base");
-            assertEquals("{}", stringify());
-        } finally {
-            setFieldValue(SquigglyConfig.class, fieldName, true);
-        }
+        filter("base", SquigglySettings.builder().propertyAddNonAnnotatedFieldsToBaseView(false).build());
+        assertEquals("{}", stringify());
     }
 
     @Test
@@ -357,36 +388,6 @@ public class SquigglyPropertyFilterTest {
         assertEquals("{\"full-name\":\"Fred Flintstone\"}", stringify(new DashObject("ID-1", "Fred Flintstone")));
     }
 
-    private void setFieldValue(Class<?> ownerClass, String fieldName, boolean value) {
-        Field field = getField(ownerClass, fieldName);
-        try {
-            field.setBoolean(null, value);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    private void removeFinalModifier(Field field) {
-        try {
-            Field modifiersField = Field.class.getDeclaredField("modifiers");
-            modifiersField.setAccessible(true);
-            modifiersField.setInt(field, field.getModifiers() & ~Modifier.FINAL);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    private Field getField(Class<?> ownerClass, String fieldName) {
-        try {
-            Field field = ownerClass.getDeclaredField(fieldName);
-            field.setAccessible(true);
-            removeFinalModifier(field);
-            return field;
-        } catch (NoSuchFieldException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     private String regexRemove(String input, String regex) {
         Matcher matcher = regex(input, regex);
         StringBuffer sb = new StringBuffer();
@@ -411,6 +412,12 @@ public class SquigglyPropertyFilterTest {
         return filter;
     }
 
+    // settings of their own keep the introspector and filter from sharing caches with the other tests
+    private void filter(String filter, SquigglySettings settings) {
+        SimpleSquigglyContextProvider provider = new SimpleSquigglyContextProvider(new SquigglyParser(settings), filter);
+        filterProvider.addFilter(SquigglyPropertyFilter.FILTER_ID, new SquigglyPropertyFilter(provider, new BeanInfoIntrospector(settings), settings));
+    }
+
     private String stringify() {
         return stringify(issue);
     }
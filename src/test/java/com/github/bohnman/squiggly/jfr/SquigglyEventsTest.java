@@ -0,0 +1,88 @@
+package com.github.bohnman.squiggly.jfr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.bohnman.squiggly.Squiggly;
+import com.github.bohnman.squiggly.bean.BeanInfoIntrospector;
+import com.github.bohnman.squiggly.filter.SquigglySerializerProvider;
+import com.github.bohnman.squiggly.model.User;
+import com.github.bohnman.squiggly.parser.SquigglyParser;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class SquigglyEventsTest {
+
+    @Test
+    public void testDisabledWithoutRecording() {
+        assertNull(SquigglyEvents.beginParse());
+        assertNull(SquigglyEvents.beginIntrospection());
+        assertNull(SquigglyEvents.beginSerialization());
+    }
+
+    @Test
+    public void testSerializerProviderOptIn() {
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), "firstName");
+        assertFalse(mapper.getSerializerProvider() instanceof SquigglySerializerProvider);
+
+        Squiggly.enableFlightRecorder(mapper);
+        assertEquals(SquigglyEvents.isAvailable(), mapper.getSerializerProvider() instanceof SquigglySerializerProvider);
+    }
+
+    @Test
+    public void testRecordedEvents() throws Exception {
+        assumeTrue(SquigglyEvents.isAvailable());
+
+        ObjectMapper mapper = Squiggly.enableFlightRecorder(Squiggly.init(new ObjectMapper(), "firstName"));
+        List<RecordedEvent> events = new ArrayList<>();
+        File file = File.createTempFile("squiggly", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("com.github.bohnman.squiggly.Parse");
+            recording.enable("com.github.bohnman.squiggly.Introspection");
+            recording.enable("com.github.bohnman.squiggly.Serialization");
+            recording.start();
+
+            new SquigglyParser().parse("id,assignee[firstName]");
+            new BeanInfoIntrospector().introspect(User.class);
+            mapper.writeValueAsString(Arrays.asList(new User("Jorah", "Mormont"), new User("Daario", "Naharis")));
+
+            recording.stop();
+            recording.dump(file.toPath());
+            events.addAll(RecordingFile.readAllEvents(file.toPath()));
+        } finally {
+            assertTrue(file.delete());
+        }
+
+        RecordedEvent parse = find(events, "com.github.bohnman.squiggly.Parse");
+        assertEquals("id,assignee[firstName]".length(), parse.getInt("expressionLength"));
+
+        RecordedEvent introspection = find(events, "com.github.bohnman.squiggly.Introspection");
+        assertEquals(User.class.getName(), introspection.getClass("beanClass").getName());
+
+        RecordedEvent serialization = find(events, "com.github.bohnman.squiggly.Serialization");
+        assertEquals(2, serialization.getInt("fieldsIncluded"));
+        assertEquals(4, serialization.getInt("fieldsExcluded"));
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                return event;
+            }
+        }
+
+        throw new AssertionError("No " + name + " event in " + events);
+    }
+}
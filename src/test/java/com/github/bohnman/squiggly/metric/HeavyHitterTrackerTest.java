@@ -0,0 +1,97 @@
+package com.github.bohnman.squiggly.metric;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.bohnman.squiggly.Squiggly;
+import com.github.bohnman.squiggly.filter.SquigglyPropertyFilter;
+import com.github.bohnman.squiggly.model.User;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HeavyHitterTrackerTest {
+
+    @Test
+    public void testFindsHeavyHitters() {
+        HeavyHitterTracker tracker = new HeavyHitterTracker(10, 1024, 0, TimeUnit.SECONDS);
+        Random random = new Random(42);
+
+        // hot filters interleaved with a long tail of filters that are only seen once
+        for (int i = 0; i < 20000; i++) {
+            tracker.record("cold" + i, User.class);
+
+            if (i % 4 == 0) {
+                tracker.record("hot" + random.nextInt(10), User.class);
+            }
+        }
+
+        List<HeavyHitterTracker.HeavyHitter> hitters = tracker.getHeavyHitters();
+        Set<String> filters = new HashSet<>();
+
+        for (HeavyHitterTracker.HeavyHitter hitter : hitters) {
+            filters.add(hitter.getFilter());
+            assertEquals(User.class.getName(), hitter.getRootClassName());
+        }
+
+        assertEquals(10, hitters.size());
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(filters.contains("hot" + i));
+        }
+
+        assertTrue(hitters.get(0).getCount() >= hitters.get(9).getCount());
+        assertTrue(hitters.get(9).getCount() >= 400);
+    }
+
+    @Test
+    public void testResetAndWindow() {
+        HeavyHitterTracker tracker = new HeavyHitterTracker(5, 64, 0, TimeUnit.SECONDS);
+        tracker.record("id", User.class);
+        tracker.reset();
+        assertEquals(0, tracker.getHeavyHitters().size());
+
+        HeavyHitterTracker windowed = new HeavyHitterTracker(5, 64, 1, TimeUnit.NANOSECONDS);
+
+        for (int i = 0; i < 10; i++) {
+            windowed.record("id", User.class);
+        }
+
+        assertEquals(1, windowed.getHeavyHitters().get(0).getCount());
+    }
+
+    @Test
+    public void testDisabled() {
+        assertNull(new HeavyHitterTracker(0, 64, 0, TimeUnit.SECONDS).record("id", User.class));
+    }
+
+    @Test
+    public void testTracksSerializations() throws Exception {
+        HotPathMetrics.setSampleInterval(1);
+
+        try {
+            ObjectMapper mapper = Squiggly.init(new ObjectMapper(), "firstName,lastName");
+            SquigglyPropertyFilter.getHeavyHitterTracker().reset();
+
+            for (int i = 0; i < 3; i++) {
+                mapper.writeValueAsString(new User("Jorah", "Mormont"));
+            }
+
+            Map<String, Object> metrics = SquigglyMetrics.asMap();
+
+            assertEquals("firstName,lastName", metrics.get("squiggly.filter.heavyHitters.01.filter"));
+            assertEquals(User.class.getName(), metrics.get("squiggly.filter.heavyHitters.01.rootClass"));
+            assertEquals(3L, metrics.get("squiggly.filter.heavyHitters.01.count"));
+            assertTrue((Long) metrics.get("squiggly.filter.heavyHitters.01.decisionTime") > 0);
+        } finally {
+            HotPathMetrics.setSampleInterval(64);
+        }
+    }
+}
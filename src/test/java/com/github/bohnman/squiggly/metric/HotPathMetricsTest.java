@@ -0,0 +1,98 @@
+package com.github.bohnman.squiggly.metric;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.bohnman.squiggly.Squiggly;
+import com.github.bohnman.squiggly.model.User;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HotPathMetricsTest {
+
+    @After
+    public void restoreSampleInterval() {
+        HotPathMetrics.setSampleInterval(64);
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        for (long value = 0; value < 100000; value += 7) {
+            long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value));
+
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 8);
+        }
+
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testHistogramQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMaxTime());
+        assertWithin(500000, histogram.getValueAtQuantile(0.5));
+        assertWithin(990000, histogram.getValueAtQuantile(0.99));
+        assertEquals(1000000, histogram.getValueAtQuantile(1.0));
+    }
+
+    @Test
+    public void testStripedCounter() throws Exception {
+        final StripedCounter counter = new StripedCounter();
+        Thread[] threads = new Thread[4];
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        counter.increment();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000, counter.sum());
+    }
+
+    @Test
+    public void testDecisionsAndTimings() throws Exception {
+        HotPathMetrics.setSampleInterval(1);
+        Map<String, Object> before = SquigglyMetrics.asMap();
+
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), "firstName");
+        mapper.writeValueAsString(new User("Jorah", "Mormont"));
+        mapper.writeValueAsString(new User("Daenerys", "Targaryen"));
+
+        Map<String, Object> after = SquigglyMetrics.asMap();
+
+        assertEquals(2L, delta(before, after, "squiggly.filter.includeCount"));
+        assertEquals(4L, delta(before, after, "squiggly.filter.excludeCount"));
+        assertEquals(6L, delta(before, after, "squiggly.filter.decisionCount"));
+        assertTrue(delta(before, after, "squiggly.parser.parseTime.count") > 0);
+        assertTrue(after.containsKey("squiggly.filter.matchTime.p99"));
+        assertTrue(after.containsKey("squiggly.property.introspectTime.p99"));
+    }
+
+    private static long delta(Map<String, Object> before, Map<String, Object> after, String key) {
+        return (Long) after.get(key) - (Long) before.get(key);
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual + " is not close to " + expected, Math.abs(actual - expected) <= expected / 8);
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.bohnman.squiggly.name;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+
+public class SquigglyNameTest {
+
+    private static final String[] WILDCARDS = {
+            "eco*", "*Time", "*Weight*", "a*b", "a*b*c", "*a*b*", "ab*bc", "a?c", "?bc", "ab?", "a*?c", "a?*", "first*Name*"
+    };
+
+    private static final String[] NAMES = {
+            "", "a", "b", "ab", "ac", "abc", "abbc", "abcbc", "aXbYc", "cba", "economy", "eco", "echo", "startTime",
+            "Time", "timeTime", "grossWeight", "Weight", "weigh", "firstName", "firstMiddleName", "firstNameX", "first"
+    };
+
+    @Test
+    public void testWildcardMatchesSameAsRegex() {
+        for (String wildcard : WILDCARDS) {
+            WildcardName wildcardName = new WildcardName(wildcard);
+            Pattern pattern = Pattern.compile("^" + StringUtils.replaceEach(wildcard, new String[]{"*", "?"}, new String[]{".*", ".?"}) + "$");
+
+            for (String name : NAMES) {
+                int expected = pattern.matcher(name).matches() ? StringUtils.remove(wildcard, '*').length() + 2 : -1;
+                assertEquals(wildcard + " vs " + name, expected, wildcardName.match(name));
+            }
+        }
+    }
+
+    @Test
+    public void testRegexMemo() {
+        RegexName regexName = new RegexName("first.*", Collections.singleton("i"));
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(9, regexName.match("FirstName"));
+            assertEquals(-1, regexName.match("lastName"));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.bohnman.squiggly.parser;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SquigglyNodeIndexTest {
+
+    private static final String[] NAMES = {"", "a", "ab", "abc", "b", "ba", "xab", "xyz", "foo"};
+
+    @Test
+    public void testSameAsLinearScan() {
+        assertSameAsLinearScan("a*,ab*,*b,a?,ab,-ab,*,~a.*~,x*,*y*");
+        assertSameAsLinearScan("**,*,foo");
+        assertSameAsLinearScan("*,**");
+        assertSameAsLinearScan("ab*,a*b,~[a-z]b~,x?b");
+    }
+
+    @Test
+    public void testFlags() {
+        SquigglyNodeIndex index = new SquigglyNodeIndex(new SquigglyParser().parse("base,*,foo"));
+        assertEquals("base", index.getBaseNode().getName());
+        assertTrue(index.hasAnyShallow());
+        assertFalse(index.hasAnyDeep());
+    }
+
+    private void assertSameAsLinearScan(String filter) {
+        List<SquigglyNode> nodes = new SquigglyParser().parse(filter);
+        SquigglyNodeIndex index = new SquigglyNodeIndex(nodes);
+
+        for (String name : NAMES) {
+            assertSame(filter + " vs " + name, findBestLinear(nodes, name), index.findBestMatch(name));
+        }
+    }
+
+    private SquigglyNode findBestLinear(List<SquigglyNode> nodes, String name) {
+        SquigglyNode match = null;
+        int lastMatchStrength = -1;
+
+        for (SquigglyNode node : nodes) {
+            int matchStrength = node.match(name);
+
+            if (matchStrength < 0) {
+                continue;
+            }
+
+            if (lastMatchStrength < 0 || matchStrength >= lastMatchStrength) {
+                match = node;
+                lastMatchStrength = matchStrength;
+            }
+        }
+
+        return match;
+    }
+}
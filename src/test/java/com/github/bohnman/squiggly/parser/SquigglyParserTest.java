@@ -0,0 +1,149 @@
+package com.github.bohnman.squiggly.parser;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class SquigglyParserTest {
+
+    private static final String ALPHABET = "abi-*?.,(){}[]|~/ $";
+
+    private final SquigglyParser parser = new SquigglyParser();
+
+    @Test
+    public void testSameAsAntlr() {
+        String[] filters = {
+                "", "id", "id,name", "**", "*", "-id", "-a.b", "a.b.c", "a{b,c}", "a[b,c]", "a{}", "a[]",
+                "(a,b){c}", "(a|b)[]", "a.b{c}", "assignee{firstName,-lastName}", "a*", "*a", "a*b", "*a*",
+                "a?", "?a", "a*b?c", "first-name", "~a.*~", "~a.*~i", "/a|b/i", "~[a-z]+~", "a{**}", "a{*,-b}",
+                "base", "full,actions{user}", "a{b{c{d}}},e", "i", "a,i", "**.a", "a.**", "a b", "a{b]",
+                "-a{b}", "(a)", "a..b", "a,", ",a", "~~", "~a?~", "a{-b.c}", "-~a~", "*.a", "a.*", "?", "??",
+                "a**", "**a", "a-b-", "-", "a{,}", "/a/ii", "(~a~|b*){c}"
+        };
+
+        for (String filter : filters) {
+            assertSameAsAntlr(filter);
+        }
+    }
+
+    @Test
+    public void testFuzzSameAsAntlr() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 5000; i++) {
+            int length = random.nextInt(12);
+            StringBuilder filter = new StringBuilder(length);
+
+            for (int j = 0; j < length; j++) {
+                filter.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+
+            assertSameAsAntlr(filter.toString());
+        }
+    }
+
+    @Test
+    public void testEquivalentFiltersShareNodes() {
+        List<SquigglyNode> nodes = parser.parse("id,name");
+        assertEquals(nodes, parser.parse("name,id"));
+        assertEquals(nodes, parser.parse("name,id,name"));
+        assertSame(nodes.get(0), parser.parse("name,id").get(0));
+        assertSame(parser.parse("a{b,c}").get(0).getChildren().get(0), parser.parse("x{c,b},y").get(0).getChildren().get(0));
+        assertEquals(parser.parse("~a~i,b"), parser.parse("b,~a~i"));
+        assertNotEquals(parser.parse("~a~i"), parser.parse("~a~"));
+        assertEquals(parser.parse("id,assignee{firstName,lastName}"), parser.parse("id,assignee{lastName,firstName},id"));
+    }
+
+    @Test
+    public void testOrderKeptWhereItMatters() {
+        // the first view that holds a property wins
+        assertNotEquals(parser.parse("full{id},base"), parser.parse("base,full{id}"));
+        // the later of two equally strong patterns wins
+        assertNotEquals(parser.parse("a*{x},*b"), parser.parse("*b,a*{x}"));
+        assertEquals(parser.parse("a*,*bc"), parser.parse("*bc,a*"));
+    }
+
+    @Test(expected = SquigglyParseException.class)
+    public void testParseException() {
+        parser.compileWithRecursiveDescent("a{b");
+    }
+
+    @Test
+    public void testSameExceptionsAsAntlr() {
+        for (String filter : new String[]{"a{b", "a{b]", "~[~"}) {
+            assertEquals(filter, exceptionClass(filter, false), exceptionClass(filter, true));
+        }
+
+        assertSame(SquigglyParseException.class, exceptionClass("a{b", false));
+        assertSame(PatternSyntaxException.class, exceptionClass("~[~", false));
+    }
+
+    private Class<?> exceptionClass(String filter, boolean recursiveDescent) {
+        try {
+            if (recursiveDescent) {
+                parser.compileWithRecursiveDescent(filter);
+            } else {
+                parser.compileWithAntlr(filter);
+            }
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+
+        return null;
+    }
+
+    private void assertSameAsAntlr(String filter) {
+        String expected;
+        String actual;
+
+        try {
+            expected = describe(parser.compileWithAntlr(filter));
+        } catch (RuntimeException e) {
+            expected = null;
+        }
+
+        try {
+            actual = describe(parser.compileWithRecursiveDescent(filter));
+        } catch (RuntimeException e) {
+            actual = null;
+        }
+
+        if (expected == null && actual != null) {
+            fail("Expected [" + filter + "] to fail, but it parsed to " + actual);
+        }
+
+        assertEquals("Parsing [" + filter + "]", expected, actual);
+    }
+
+    private static String describe(List<SquigglyNode> nodes) {
+        StringBuilder builder = new StringBuilder();
+        describe(nodes, builder);
+        return builder.toString();
+    }
+
+    private static void describe(List<SquigglyNode> nodes, StringBuilder builder) {
+        builder.append('[');
+
+        for (SquigglyNode node : nodes) {
+            builder.append(node.isNegated() ? "-" : "")
+                    .append(node.getName())
+                    .append(node.isSquiggly() ? "{" : "")
+                    .append(node.isEmptyNested() ? "e" : "")
+                    .append(node.isAnyDeep() ? "D" : "")
+                    .append(node.isAnyShallow() ? "S" : "")
+                    .append(node.isExact() ? "X" : "")
+                    .append(':').append(node.getMatchStrength());
+            describe(node.getChildren(), builder);
+            builder.append(',');
+        }
+
+        builder.append(']');
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.bohnman.squiggly.projection;
+
+import com.github.bohnman.squiggly.bean.BeanInfoIntrospector;
+import com.github.bohnman.squiggly.config.SquigglySettings;
+import com.github.bohnman.squiggly.filter.SquigglyPropertyFilter;
+import com.github.bohnman.squiggly.model.Issue;
+import com.github.bohnman.squiggly.model.IssueAction;
+import com.github.bohnman.squiggly.model.Outer;
+import com.github.bohnman.squiggly.model.User;
+import com.github.bohnman.squiggly.parser.SquigglyParser;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SquigglyProjectionTest {
+
+    private final SquigglyProjection projection = new SquigglyProjection();
+
+    @Test
+    public void testNested() {
+        SquigglyProjectionNode root = projection.project("id,assignee{firstName}", Issue.class);
+        assertEquals(Arrays.asList("assignee", "assignee.firstName", "id"), root.getPaths());
+        assertTrue(root.isRequested("assignee.firstName"));
+        assertFalse(root.isRequested("assignee.lastName"));
+        assertFalse(root.isRequested("reporter"));
+        assertEquals(User.class, root.getChild("assignee").getValueClass());
+    }
+
+    @Test
+    public void testPlansCached() {
+        SquigglySettings settings = SquigglySettings.builder().filterPlanCacheSpec("maximumSize=10,recordStats").build();
+        SquigglyPropertyFilter filter = new SquigglyPropertyFilter(null, new BeanInfoIntrospector(settings), settings);
+        SquigglyProjection cachingProjection = new SquigglyProjection(new SquigglyParser(), filter);
+
+        assertTrue(cachingProjection.isRequested("id,assignee{firstName}", Issue.class, "assignee.firstName"));
+        assertFalse(cachingProjection.isRequested("id,assignee{firstName}", Issue.class, "assignee.lastName"));
+        assertEquals(1, filter.getPlanCache().stats().missCount());
+        assertEquals(1, filter.getPlanCache().stats().hitCount());
+    }
+
+    @Test
+    public void testNegation() {
+        SquigglyProjectionNode root = projection.project("-issueDetails", Issue.class);
+        assertTrue(root.isRequested("issueSummary"));
+        assertFalse(root.isRequested("issueDetails"));
+    }
+
+    @Test
+    public void testViews() {
+        SquigglyProjectionNode root = projection.project("base", Issue.class);
+        assertTrue(root.isRequested("issueSummary"));
+        assertFalse(root.isRequested("actions"));
+        assertFalse(root.isRequested("properties"));
+
+        root = projection.project("full", Issue.class);
+        assertTrue(root.isRequested("actions.text"));
+        assertFalse(root.isRequested("actions.user"));
+        assertTrue(root.isRequested("properties"));
+    }
+
+    @Test
+    public void testCollectionElements() {
+        SquigglyProjectionNode root = projection.project("actions.text", Issue.class);
+        SquigglyProjectionNode actions = root.getChild("actions");
+        assertEquals(IssueAction.class, actions.getValueClass());
+        assertEquals(Arrays.asList("actions", "actions.text"), root.getPaths());
+    }
+
+    @Test
+    public void testMapKeys() {
+        SquigglyProjectionNode root = projection.project("properties[priority]", Issue.class);
+        assertTrue(root.getChild("properties").isMap());
+        assertTrue(root.isRequested("properties.priority"));
+        assertFalse(root.isRequested("properties.email"));
+    }
+
+    @Test
+    public void testAnyDeep() {
+        SquigglyProjectionNode root = projection.project("assignee{**}", Issue.class);
+        assertTrue(root.getChild("assignee").getChild("lastName").isIncludeAll());
+        assertTrue(root.isRequested("assignee.lastName"));
+        assertFalse(root.isRequested("id"));
+    }
+
+    @Test
+    public void testUnwrapped() {
+        SquigglyProjectionNode root = projection.project("innerText", Outer.class);
+        assertTrue(root.isRequested("innerText"));
+        assertFalse(root.isRequested("inner"));
+        assertFalse(root.isRequested("outerText"));
+    }
+
+    @Test
+    public void testEmptyFilter() {
+        SquigglyProjectionNode root = projection.project("", Issue.class);
+        assertTrue(root.getChildren().isEmpty());
+        assertNull(root.getChild("id"));
+    }
+}
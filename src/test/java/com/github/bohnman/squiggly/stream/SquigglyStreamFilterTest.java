@@ -0,0 +1,60 @@
+package com.github.bohnman.squiggly.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.bohnman.squiggly.Squiggly;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class SquigglyStreamFilterTest {
+
+    private static final String JSON = "{\"id\":1,\"name\":\"Jorah\",\"rank\":1.5,\"active\":true,\"nickname\":null,"
+            + "\"address\":{\"city\":\"Meereen\",\"zip\":\"123\",\"geo\":{\"lat\":1,\"lng\":2}},"
+            + "\"tags\":[\"knight\",\"exile\"],"
+            + "\"friends\":[{\"id\":2,\"name\":\"Daenerys\",\"address\":{\"city\":\"Dragonstone\"}},{\"id\":3,\"name\":\"Tyrion\"}],"
+            + "\"matrix\":[[{\"id\":4,\"name\":\"a\"}],[]]}";
+
+    @Test
+    public void testMatchesMapFiltering() throws Exception {
+        String[] filters = {"id", "id,name", "address", "address{city}", "address.geo.lat", "friends{name}",
+                "friends[address[city]]", "matrix{id}", "na*", "~na.*~", "*", "**", "base", "**,-address",
+                "-friends,-matrix", "address{-geo}", "tags", "friends.address.city,id", ""};
+
+        for (String filter : filters) {
+            assertEquals(filter, filterMap(filter, JSON), new SquigglyStreamFilter(filter).filter(JSON));
+        }
+    }
+
+    @Test
+    public void testTopLevelArraysAndScalars() throws Exception {
+        SquigglyStreamFilter filter = new SquigglyStreamFilter("id");
+
+        assertEquals("[{\"id\":1},{\"id\":2},[{\"id\":3}]]", filter.filter("[{\"id\":1,\"name\":\"a\"},{\"id\":2},[{\"id\":3,\"x\":{}}]]"));
+        assertEquals("\"text\"", filter.filter("\"text\""));
+        assertEquals("42", filter.filter("42"));
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        SquigglyStreamFilter filter = new SquigglyStreamFilter("id");
+        byte[] json = "{\"id\":1,\"name\":\"a\"}\n{\"id\":2,\"name\":\"b\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals("{\"id\":1} {\"id\":2}", new String(filter.filter(json), StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filter.filter(new ByteArrayInputStream(json), out);
+        out.write('!');
+
+        assertEquals("{\"id\":1} {\"id\":2}!", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private String filterMap(String filter, String json) throws Exception {
+        Map map = new ObjectMapper().readValue(json, Map.class);
+        return Squiggly.init(new ObjectMapper(), filter).writeValueAsString(map);
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.bohnman.squiggly.tree;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.bohnman.squiggly.Squiggly;
+import com.github.bohnman.squiggly.stream.SquigglyStreamFilter;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SquigglyTreeFilterTest {
+
+    private static final String JSON = "{\"id\":1,\"name\":\"Jorah\",\"nickname\":null,"
+            + "\"address\":{\"city\":\"Meereen\",\"zip\":\"123\",\"geo\":{\"lat\":1,\"lng\":2}},"
+            + "\"tags\":[\"knight\",\"exile\"],"
+            + "\"friends\":[{\"id\":2,\"name\":\"Daenerys\",\"address\":{\"city\":\"Dragonstone\"}},{\"id\":3,\"name\":\"Tyrion\"}]}";
+
+    private static final String[] FILTERS = {"id", "id,name", "address{city}", "address.geo.lat", "friends{name}",
+            "na*", "*", "**", "base", "**,-address", "address{-geo}", "friends.address.city,id", ""};
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testPruneAndCopy() throws Exception {
+        for (String filter : FILTERS) {
+            String expected = new SquigglyStreamFilter(filter).filter(JSON);
+            JsonNode tree = mapper.readTree(JSON);
+            SquigglyTreeFilter treeFilter = new SquigglyTreeFilter(filter);
+
+            assertEquals(filter, expected, mapper.writeValueAsString(treeFilter.copy(tree)));
+            assertEquals(filter, JSON, mapper.writeValueAsString(tree));
+            assertEquals(filter, expected, mapper.writeValueAsString(treeFilter.prune(tree)));
+            assertEquals(filter, expected, mapper.writeValueAsString(tree));
+        }
+    }
+
+    @Test
+    public void testSerializedTrees() throws Exception {
+        for (String filter : FILTERS) {
+            assertEquals(filter, new SquigglyStreamFilter(filter).filter(JSON),
+                    Squiggly.init(new ObjectMapper(), filter).writeValueAsString(mapper.readTree(JSON)));
+        }
+    }
+
+    @Test
+    public void testTreesNestedInBeans() throws Exception {
+        Holder holder = new Holder(7, mapper.readTree(JSON));
+        ObjectMapper squiggly = Squiggly.init(new ObjectMapper(), "id,tree{name,address{city}},trees.id");
+
+        assertEquals("{\"id\":7,\"tree\":{\"name\":\"Jorah\",\"address\":{\"city\":\"Meereen\"}},\"trees\":[{\"id\":1},{\"id\":1}]}",
+                squiggly.writeValueAsString(holder));
+        assertEquals("[{\"tree\":{\"id\":1}}]", Squiggly.init(new ObjectMapper(), "tree.id").writeValueAsString(Arrays.asList(holder)));
+    }
+
+    @SuppressWarnings("unused")
+    private static class Holder {
+        private final int id;
+        private final JsonNode tree;
+
+        Holder(int id, JsonNode tree) {
+            this.id = id;
+            this.tree = tree;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public JsonNode getTree() {
+            return tree;
+        }
+
+        public List<JsonNode> getTrees() {
+            return Arrays.asList(tree, tree);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.bohnman.squiggly.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.bohnman.squiggly.Squiggly;
+import com.github.bohnman.squiggly.model.User;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SquigglyUtilsTest {
+
+    private final ObjectMapper mapper = Squiggly.init(new ObjectMapper(), "firstName");
+    private final List<User> users = Arrays.asList(new User("Peter", "Dinklage"), new User("Lena", "Heady"));
+
+    @Test
+    public void testObjectify() {
+        assertEquals(ImmutableMap.of("firstName", "Peter"), SquigglyUtils.objectify(mapper, users.get(0)));
+
+        User user = SquigglyUtils.objectify(mapper, users.get(0), User.class);
+        assertEquals("Peter", user.getFirstName());
+        assertNull(user.getLastName());
+    }
+
+    @Test
+    public void testCollectify() {
+        List<Map<String, Object>> maps = SquigglyUtils.listify(mapper, users);
+        assertTrue(maps instanceof ArrayList);
+        assertEquals(Arrays.<Map<String, Object>>asList(ImmutableMap.<String, Object>of("firstName", "Peter"), ImmutableMap.<String, Object>of("firstName", "Lena")), maps);
+
+        Set<Map<String, Object>> set = SquigglyUtils.setify(mapper, users.get(1));
+        assertTrue(set instanceof HashSet);
+        assertEquals(1, set.size());
+
+        assertEquals("Lena", SquigglyUtils.listify(mapper, users, User.class).get(1).getFirstName());
+        assertNull(SquigglyUtils.listify(mapper, null));
+    }
+
+    @Test
+    public void testIterify() {
+        Iterator<User> iterator = SquigglyUtils.iterify(mapper, users, User.class).iterator();
+
+        assertEquals("Peter", iterator.next().getFirstName());
+        User user = iterator.next();
+        assertEquals("Lena", user.getFirstName());
+        assertNull(user.getLastName());
+        assertFalse(iterator.hasNext());
+    }
+}
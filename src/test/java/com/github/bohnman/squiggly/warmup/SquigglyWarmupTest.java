@@ -0,0 +1,61 @@
+package com.github.bohnman.squiggly.warmup;
+
+import com.github.bohnman.squiggly.bean.BeanInfoIntrospector;
+import com.github.bohnman.squiggly.config.SquigglySettings;
+import com.github.bohnman.squiggly.context.provider.SimpleSquigglyContextProvider;
+import com.github.bohnman.squiggly.filter.SquigglyFilterPlan;
+import com.github.bohnman.squiggly.filter.SquigglyPropertyFilter;
+import com.github.bohnman.squiggly.model.Issue;
+import com.github.bohnman.squiggly.model.IssueAction;
+import com.github.bohnman.squiggly.model.User;
+import com.github.bohnman.squiggly.parser.SquigglyParser;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class SquigglyWarmupTest {
+
+    @Test
+    public void testWarmUp() {
+        SquigglyParser parser = new SquigglyParser();
+        SquigglyPropertyFilter filter = new SquigglyPropertyFilter(new SimpleSquigglyContextProvider(parser, "id"));
+        SquigglyWarmup warmup = new SquigglyWarmup(filter, parser, 2);
+
+        SquigglyWarmup.Result result = warmup.warmUp(
+                Collections.singletonList(Issue.class),
+                Arrays.asList("id,assignee{firstName}", "assignee{firstName},id", "actions.user", "{bad"));
+
+        // Issue reaches User and IssueAction through its properties
+        assertTrue(result.getClassCount() >= 3);
+        assertEquals(3, result.getFilterCount());
+        assertEquals(Collections.singletonList("{bad"), result.getInvalidFilters());
+        // the test config turns the plan cache off, so equivalent filters don't share a plan here
+        assertEquals(3, result.getPlanCount());
+        assertTrue(result.getStateCount() > 2);
+        assertTrue(filter.getBeanInfoIntrospector().introspect(IssueAction.class).getPropertyTypes().containsKey("user"));
+        assertTrue(filter.getBeanInfoIntrospector().introspect(User.class).getPropertyTypes().containsKey("firstName"));
+    }
+
+    @Test
+    public void testFillsPlanCache() {
+        SquigglySettings settings = SquigglySettings.builder().filterPlanCacheSpec("maximumSize=100").build();
+        SquigglyParser parser = new SquigglyParser(settings);
+        SquigglyPropertyFilter filter = new SquigglyPropertyFilter(new SimpleSquigglyContextProvider(parser, "id"), new BeanInfoIntrospector(settings), settings);
+        List<String> filters = Arrays.asList("id,assignee{firstName}", "actions.user");
+
+        new SquigglyWarmup(filter, parser, 2).warmUp(Collections.singletonList(Issue.class), filters);
+
+        for (String filterExpression : filters) {
+            SquigglyFilterPlan plan = filter.getPlanCache().getIfPresent(parser.parse(filterExpression));
+            assertNotNull(filterExpression, plan);
+            // the cached plan is the one whose transitions were walked
+            assertTrue(filterExpression, plan.getStateCount() > 1);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.bohnman.squiggly.writer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.bohnman.squiggly.Squiggly;
+import com.github.bohnman.squiggly.config.SquigglySettings;
+import com.github.bohnman.squiggly.context.provider.SquigglyFilterHolder;
+import com.github.bohnman.squiggly.context.provider.ThreadLocalContextProvider;
+import com.github.bohnman.squiggly.model.Issue;
+import com.github.bohnman.squiggly.model.User;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SquigglyParallelWriterTest {
+
+    private static final SquigglySettings SETTINGS = SquigglySettings.builder()
+            .writerParallelThreshold(10)
+            .writerChunkSize(7)
+            .build();
+
+    private final ForkJoinPool pool = new ForkJoinPool(3);
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+        SquigglyFilterHolder.removeFilter();
+    }
+
+    @Test
+    public void testSameBytesAsSequential() throws Exception {
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), "firstName");
+        SquigglyParallelWriter writer = new SquigglyParallelWriter(mapper, pool, SETTINGS);
+
+        for (int size : new int[]{0, 1, 7, 9, 10, 14, 15, 100, 1001}) {
+            List<Object> values = values(size);
+
+            assertArrayEquals(String.valueOf(size), mapper.writeValueAsBytes(values), writer.writeValueAsBytes(values));
+            assertArrayEquals(String.valueOf(size), mapper.writeValueAsBytes(values.toArray()), writer.writeValueAsBytes(values.toArray()));
+        }
+
+        assertArrayEquals(mapper.writeValueAsBytes(new User("a", "b")), writer.writeValueAsBytes(new User("a", "b")));
+    }
+
+    @Test
+    public void testIndentedOutput() throws Exception {
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), "id").enable(SerializationFeature.INDENT_OUTPUT);
+        List<Object> values = values(100);
+
+        assertArrayEquals(mapper.writeValueAsBytes(values), new SquigglyParallelWriter(mapper, pool, SETTINGS).writeValueAsBytes(values));
+    }
+
+    @Test
+    public void testUnwrappedSingleElementArrays() throws Exception {
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), "firstName").enable(SerializationFeature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED);
+        SquigglySettings settings = SquigglySettings.builder().writerParallelThreshold(0).writerChunkSize(2).build();
+        List<User> users = Collections.nCopies(5, new User("Jorah", "Mormont"));
+
+        assertArrayEquals(mapper.writeValueAsBytes(users), new SquigglyParallelWriter(mapper, pool, settings).writeValueAsBytes(users));
+    }
+
+    @Test
+    public void testContextsResolvedOnCallingThread() throws Exception {
+        ObjectMapper mapper = Squiggly.init(new ObjectMapper(), new ThreadLocalContextProvider());
+        SquigglyFilterHolder.setFilter("lastName");
+
+        List<User> users = Collections.nCopies(50, new User("Jorah", "Mormont"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SquigglyParallelWriter(mapper, pool, SETTINGS).writeValue(out, users);
+
+        assertEquals(mapper.writeValueAsString(users), out.toString("UTF-8"));
+    }
+
+    private List<Object> values(int size) {
+        List<Object> values = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            if (i % 10 == 3) {
+                values.add(null);
+            } else if (i % 10 == 5) {
+                Issue issue = new Issue();
+                issue.setId("ISSUE-" + i);
+                values.add(issue);
+            } else {
+                values.add(new User("first" + i, "last" + i));
+            }
+        }
+
+        return values;
+    }
+}